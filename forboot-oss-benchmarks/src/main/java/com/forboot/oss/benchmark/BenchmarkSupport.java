@@ -0,0 +1,130 @@
+package com.forboot.oss.benchmark;
+
+import com.forboot.oss.enums.StoragePlatform;
+import com.forboot.oss.property.OssProperty;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试公共方法
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+final class BenchmarkSupport {
+
+    static final String ACCESS_KEY = "benchmark-access-key";
+
+    static final String SECRET_KEY = "benchmark-secret-key-0123456789abcdef";
+
+    static final String BUCKET_NAME = "benchmark";
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * 存储配置，远程平台使用本地替身地址，签名地址等本地计算不发起请求
+     *
+     * @param platform 存储平台
+     * @param endpoint 平台地址
+     * @return {@link OssProperty}
+     */
+    static OssProperty property(StoragePlatform platform, String endpoint) {
+        OssProperty ossProperty = new OssProperty();
+        ossProperty.setPlatform(platform);
+        ossProperty.setEndpoint(endpoint);
+        ossProperty.setAccessKey(ACCESS_KEY);
+        ossProperty.setSecretKey(SECRET_KEY);
+        ossProperty.setBucketName(BUCKET_NAME);
+        ossProperty.setBucketDomain("http://cdn.benchmark.local");
+        ossProperty.setAccessControl("private");
+        return ossProperty;
+    }
+
+    /**
+     * 本地存储配置
+     *
+     * @param directory 存储目录
+     * @return {@link OssProperty}
+     */
+    static OssProperty localProperty(Path directory) {
+        OssProperty ossProperty = property(StoragePlatform.LOCAL, null);
+        ossProperty.setLocalFilePath(directory.toString());
+        ossProperty.setLocalFileUrl("http://127.0.0.1/files");
+        return ossProperty;
+    }
+
+    /**
+     * 固定种子的随机内容，避免压缩、去重等优化影响结果
+     */
+    static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        if (null == directory || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.walk(directory)) {
+            for (Path path : stream.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * 丢弃输出的响应，只统计写出的字节数，其它方法返回默认值
+     *
+     * @return {@link HttpServletResponse}
+     */
+    static HttpServletResponse discardingResponse() {
+        ServletOutputStream outputStream = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+        return (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                    if ("getOutputStream".equals(method.getName())) {
+                        return outputStream;
+                    }
+                    Class<?> type = method.getReturnType();
+                    if (type == boolean.class) {
+                        return false;
+                    }
+                    if (type == int.class) {
+                        return 0;
+                    }
+                    if (type == long.class) {
+                        return 0L;
+                    }
+                    return null;
+                });
+    }
+}
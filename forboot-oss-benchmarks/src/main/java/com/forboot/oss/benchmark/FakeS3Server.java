@@ -0,0 +1,165 @@
+package com.forboot.oss.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 内存中的 S3 兼容服务替身，仅用于基准测试
+ * <p>
+ * 只支持路径风格的 PutObject、GetObject、HeadObject、DeleteObject 及 GetBucketLocation，不校验签名，
+ * 用于测量 SDK 请求构建、签名、序列化及本地回环传输的开销，不代表真实网络延迟。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+final class FakeS3Server implements AutoCloseable {
+
+    private static final String LOCATION = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <LocationConstraint xmlns="http://s3.amazonaws.com/doc/2006-03-01/">us-east-1</LocationConstraint>""";
+
+    private static final String NO_SUCH_KEY = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <Error><Code>NoSuchKey</Code><Message>The specified key does not exist.</Message></Error>""";
+
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private FakeS3Server(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    static FakeS3Server start() throws IOException {
+        // 响应头与响应体分开写出，关闭 Nagle 避免与延迟确认叠加产生数十毫秒的等待
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        FakeS3Server fake = new FakeS3Server(server, executor);
+        server.createContext("/", fake::handle);
+        server.setExecutor(executor);
+        server.start();
+        return fake;
+    }
+
+    String getEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getRawQuery();
+            String method = exchange.getRequestMethod();
+            if (null != query && query.contains("location")) {
+                this.send(exchange, 200, LOCATION.getBytes(StandardCharsets.UTF_8), "application/xml");
+                return;
+            }
+            switch (method) {
+                case "PUT" -> {
+                    byte[] body = exchange.getRequestBody().readAllBytes();
+                    String sha256 = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+                    if (null != sha256 && sha256.startsWith("STREAMING-")) {
+                        body = decodeChunked(body);
+                    }
+                    StoredObject object = new StoredObject(body, md5(body));
+                    objects.put(path, object);
+                    exchange.getResponseHeaders().add("ETag", "\"" + object.eTag + "\"");
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "GET", "HEAD" -> {
+                    StoredObject object = objects.get(path);
+                    if (null == object) {
+                        this.send(exchange, 404, NO_SUCH_KEY.getBytes(StandardCharsets.UTF_8), "application/xml");
+                        return;
+                    }
+                    exchange.getResponseHeaders().add("ETag", "\"" + object.eTag + "\"");
+                    if ("HEAD".equals(method)) {
+                        exchange.getResponseHeaders().add("Content-Length", String.valueOf(object.data.length));
+                        exchange.sendResponseHeaders(200, -1);
+                    } else {
+                        this.send(exchange, 200, object.data, "application/octet-stream");
+                    }
+                }
+                case "DELETE" -> {
+                    objects.remove(path);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, byte[] body, String contentType) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * 解码 aws-chunked 请求体：{十六进制长度};chunk-signature=...\r\n{数据}\r\n，长度为 0 时结束
+     */
+    private static byte[] decodeChunked(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length);
+        int position = 0;
+        while (position < body.length) {
+            int lineEnd = indexOfCrlf(body, position);
+            String header = new String(body, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int separator = header.indexOf(';');
+            int length = Integer.parseInt(separator < 0 ? header : header.substring(0, separator), 16);
+            position = lineEnd + 2;
+            if (length == 0) {
+                break;
+            }
+            out.write(body, position, length);
+            position += length + 2;
+        }
+        return out.toByteArray();
+    }
+
+    private static int indexOfCrlf(byte[] body, int from) {
+        for (int i = from; i < body.length - 1; i++) {
+            if (body[i] == '\r' && body[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return body.length;
+    }
+
+    private static String md5(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private record StoredObject(byte[] data, String eTag) {
+    }
+}
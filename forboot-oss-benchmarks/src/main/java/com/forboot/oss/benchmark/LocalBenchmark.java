@@ -0,0 +1,69 @@
+package com.forboot.oss.benchmark;
+
+import com.forboot.oss.platform.Local;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地存储上传、下载基准测试
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalBenchmark {
+
+    @Param({"1024", "65536", "1048576", "16777216"})
+    private int size;
+
+    private Path directory;
+
+    private Local storage;
+
+    private byte[] data;
+
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        this.directory = Files.createTempDirectory("forboot-oss-benchmark-");
+        this.storage = new Local(BenchmarkSupport.localProperty(directory));
+        this.data = BenchmarkSupport.randomBytes(size);
+        this.buffer = new byte[64 * 1024];
+        this.storage.uploadFile(new ByteArrayInputStream(data), size, "seed.bin", "seed.bin");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkSupport.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public Object upload() throws Exception {
+        return storage.uploadFile(new ByteArrayInputStream(data), size, "upload.bin", "upload.bin");
+    }
+
+    @Benchmark
+    public long download() throws Exception {
+        long total = 0;
+        try (InputStream is = storage.download("seed.bin")) {
+            int n;
+            while ((n = is.read(buffer)) != -1) {
+                total += n;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,59 @@
+package com.forboot.oss.benchmark;
+
+import com.forboot.oss.MediaType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 媒体类型识别基准测试，对比魔数表与直接使用 Tika
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MediaTypeBenchmark {
+
+    /**
+     * png、pdf 命中魔数表，zip、text 交给 Tika 识别
+     */
+    @Param({"png", "pdf", "zip", "text"})
+    private String type;
+
+    private byte[] data;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        byte[] header = switch (type) {
+            case "png" -> new byte[]{(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+            case "pdf" -> "%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII);
+            case "zip" -> new byte[]{'P', 'K', 0x03, 0x04};
+            default -> new byte[0];
+        };
+        if ("text".equals(type)) {
+            this.data = "forboot oss benchmark\n".repeat(6000).getBytes(StandardCharsets.US_ASCII);
+            return;
+        }
+        this.data = BenchmarkSupport.randomBytes(128 * 1024);
+        System.arraycopy(header, 0, data, 0, header.length);
+    }
+
+    @Benchmark
+    public String detect() throws Exception {
+        return MediaType.detect(new ByteArrayInputStream(data));
+    }
+
+    @Benchmark
+    public String tika() throws Exception {
+        return MediaType.getTika().detect(new ByteArrayInputStream(data));
+    }
+}
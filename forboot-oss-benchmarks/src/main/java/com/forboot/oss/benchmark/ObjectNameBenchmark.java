@@ -0,0 +1,67 @@
+package com.forboot.oss.benchmark;
+
+import com.forboot.oss.platform.Local;
+import com.forboot.oss.property.OssProperty;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对象名称生成基准测试
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObjectNameBenchmark {
+
+    private Path directory;
+
+    private NamingLocal storage;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        this.directory = Files.createTempDirectory("forboot-oss-benchmark-");
+        this.storage = new NamingLocal(BenchmarkSupport.localProperty(directory));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkSupport.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String objectName() {
+        return storage.objectName("png");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String objectNameContended() {
+        return storage.objectName("png");
+    }
+
+    /**
+     * 公开对象名称生成方法
+     */
+    private static class NamingLocal extends Local {
+
+        private NamingLocal(OssProperty ossProperty) {
+            super(ossProperty);
+        }
+
+        private String objectName(String suffix) {
+            return this.getObjectName(suffix);
+        }
+    }
+}
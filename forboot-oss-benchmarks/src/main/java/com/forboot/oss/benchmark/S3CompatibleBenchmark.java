@@ -0,0 +1,77 @@
+package com.forboot.oss.benchmark;
+
+import com.forboot.oss.AbstractFileStorage;
+import com.forboot.oss.enums.StoragePlatform;
+import com.forboot.oss.property.OssProperty;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * S3 兼容平台上传、下载基准测试
+ * <p>
+ * 请求发送到进程内的 {@link FakeS3Server}，结果只反映 SDK 请求构建、签名、流包装及回环传输的开销。
+ * 文件大小低于分片上传阈值，走单次上传。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class S3CompatibleBenchmark {
+
+    @Param({"AWS_S3", "MINIO"})
+    private StoragePlatform platform;
+
+    @Param({"1024", "65536", "1048576"})
+    private int size;
+
+    private FakeS3Server server;
+
+    private AbstractFileStorage storage;
+
+    private byte[] data;
+
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        this.server = FakeS3Server.start();
+        OssProperty ossProperty = BenchmarkSupport.property(platform, server.getEndpoint());
+        this.storage = (AbstractFileStorage) platform.getStrategyClass()
+                .getConstructor(OssProperty.class).newInstance(ossProperty);
+        this.data = BenchmarkSupport.randomBytes(size);
+        this.buffer = new byte[64 * 1024];
+        this.storage.uploadFile(new ByteArrayInputStream(data), size, "seed.bin", "seed.bin");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public Object upload() throws Exception {
+        return storage.uploadFile(new ByteArrayInputStream(data), size, "upload.bin", "upload.bin");
+    }
+
+    @Benchmark
+    public long download() throws Exception {
+        long total = 0;
+        try (InputStream is = storage.download("seed.bin")) {
+            int n;
+            while ((n = is.read(buffer)) != -1) {
+                total += n;
+            }
+        }
+        return total;
+    }
+}
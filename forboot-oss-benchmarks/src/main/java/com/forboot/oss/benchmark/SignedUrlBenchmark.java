@@ -0,0 +1,82 @@
+package com.forboot.oss.benchmark;
+
+import com.forboot.oss.AbstractFileStorage;
+import com.forboot.oss.cache.SignedUrlCache;
+import com.forboot.oss.enums.StoragePlatform;
+import com.forboot.oss.property.OssProperty;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 签名地址生成基准测试，签名在本地计算
+ * <p>
+ * minio 首次签名需要查询存储桶区域，指向进程内的 {@link FakeS3Server}，并在预热前完成查询。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignedUrlBenchmark {
+
+    private static final int NAME_COUNT = 1024;
+
+    @Param({"ALIYUN", "TENCENT_COS", "AWS_S3", "MINIO", "QINIU_KODO", "LOCAL"})
+    private StoragePlatform platform;
+
+    @Param({"false", "true"})
+    private boolean cached;
+
+    private FakeS3Server server;
+
+    private Path directory;
+
+    private AbstractFileStorage storage;
+
+    private String[] objectNames;
+
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        this.server = FakeS3Server.start();
+        this.directory = Files.createTempDirectory("forboot-oss-benchmark-");
+        OssProperty ossProperty = switch (platform) {
+            case ALIYUN -> BenchmarkSupport.property(platform, "https://oss-cn-hangzhou.aliyuncs.com");
+            case TENCENT_COS -> BenchmarkSupport.property(platform, "ap-guangzhou");
+            case QINIU_KODO -> BenchmarkSupport.property(platform, null);
+            case LOCAL -> BenchmarkSupport.localProperty(directory);
+            default -> BenchmarkSupport.property(platform, server.getEndpoint());
+        };
+        this.storage = (AbstractFileStorage) platform.getStrategyClass()
+                .getConstructor(OssProperty.class).newInstance(ossProperty);
+        if (cached) {
+            this.storage.setUrlCache(new SignedUrlCache(NAME_COUNT * 2, 0.5));
+        }
+        this.objectNames = new String[NAME_COUNT];
+        for (int i = 0; i < NAME_COUNT; i++) {
+            objectNames[i] = "2023/06/15/" + String.format("%08x", i) + ".png";
+        }
+        this.storage.getUrl(objectNames[0], 1, TimeUnit.HOURS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        server.close();
+        BenchmarkSupport.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public String getUrl() throws Exception {
+        return storage.getUrl(objectNames[index++ & (NAME_COUNT - 1)], 1, TimeUnit.HOURS);
+    }
+}
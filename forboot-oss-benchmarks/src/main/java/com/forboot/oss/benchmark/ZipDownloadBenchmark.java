@@ -0,0 +1,87 @@
+package com.forboot.oss.benchmark;
+
+import com.forboot.oss.platform.Local;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多文件打包下载基准测试，对比同步读取与预读
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZipDownloadBenchmark {
+
+    @Param({"8", "64"})
+    private int fileCount;
+
+    @Param({"16384", "1048576"})
+    private int fileSize;
+
+    @Param({"false", "true"})
+    private boolean compress;
+
+    /**
+     * 是否使用传输线程池预读
+     */
+    @Param({"false", "true"})
+    private boolean prefetch;
+
+    private Path directory;
+
+    private Local storage;
+
+    private ExecutorService executor;
+
+    private List<String> objectNames;
+
+    private HttpServletResponse response;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        this.directory = Files.createTempDirectory("forboot-oss-benchmark-");
+        this.storage = new Local(BenchmarkSupport.localProperty(directory));
+        if (prefetch) {
+            this.executor = Executors.newFixedThreadPool(4);
+            this.storage.setTransferExecutor(executor);
+        }
+        this.objectNames = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            String objectName = "zip/" + i + ".bin";
+            byte[] data = BenchmarkSupport.randomBytes(fileSize + i);
+            storage.uploadFile(new ByteArrayInputStream(data), data.length, i + ".bin", objectName);
+            objectNames.add(objectName);
+        }
+        this.response = BenchmarkSupport.discardingResponse();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (null != executor) {
+            executor.shutdownNow();
+        }
+        BenchmarkSupport.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void download() throws Exception {
+        storage.download(response, objectNames, compress);
+    }
+}
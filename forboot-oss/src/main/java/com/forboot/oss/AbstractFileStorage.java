@@ -1,15 +1,69 @@
 package com.forboot.oss;
 
 
+import com.forboot.oss.cache.BloomFilter;
+import com.forboot.oss.cache.SignedUrlCache;
+import com.forboot.oss.enums.ChecksumAlgorithm;
+import com.forboot.oss.enums.RetryCategory;
+import com.forboot.oss.enums.TransferType;
+import com.forboot.oss.exception.ChecksumException;
+import com.forboot.oss.exception.FileSizeException;
 import com.forboot.oss.exception.MediaTypeException;
+import com.forboot.oss.io.ChecksumInputStream;
+import com.forboot.oss.io.ProgressInputStream;
+import com.forboot.oss.io.ReplayableInputStream;
+import com.forboot.oss.io.ValidatingInputStream;
+import com.forboot.oss.model.request.UploadEntry;
+import com.forboot.oss.model.response.BatchResult;
+import com.forboot.oss.model.response.OssResult;
+import com.forboot.oss.multipart.CheckpointStore;
+import com.forboot.oss.multipart.MultipartUploadHandler;
+import com.forboot.oss.multipart.MultipartUploader;
+import com.forboot.oss.multipart.RetryingMultipartUploadHandler;
+import com.forboot.oss.progress.ProgressListener;
+import com.forboot.oss.progress.ProgressTracker;
+import com.forboot.oss.property.MultipartProperty;
 import com.forboot.oss.property.OssProperty;
+import com.forboot.oss.property.ProgressProperty;
+import com.forboot.oss.retry.RetryPolicy;
+import com.forboot.oss.throttle.TokenBucket;
+import com.forboot.oss.throttle.TransferThrottle;
+import com.forboot.oss.zip.ZipStreamWriter;
 import com.forboot.toolkit.DateUtils;
-import com.forboot.toolkit.ThreadLocalUtils;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 /**
@@ -20,45 +74,144 @@ import java.util.function.Function;
  * @author ye21st
  * @since 2023/6/15
  */
-public abstract class AbstractFileStorage implements IFileStorage {
+public abstract class AbstractFileStorage implements IFileStorage, Cloneable {
     /**
      * 配置属性
      */
     protected OssProperty ossProperty;
 
     /**
-     * 存储桶名称
+     * 传输线程池，由自动装配按 {@link OssProperty#getTransfer()} 创建并共享
      */
-    protected String getBucketName() {
-        String tempBucketName = this.tempBucketName();
-        String bucketName = ThreadLocalUtils.get(tempBucketName);
-        if (null == bucketName) {
-            bucketName = ossProperty.getBucketName();
-        } else {
-            // 释放临时桶名称
-            ThreadLocalUtils.remove(tempBucketName);
-        }
-        return bucketName;
-    }
+    protected Executor transferExecutor;
+
+    /**
+     * 分片上传断点存储，开启断点续传时由自动装配设置
+     */
+    protected CheckpointStore checkpointStore;
+
+    /**
+     * 签名地址缓存，开启缓存时由自动装配设置
+     */
+    protected SignedUrlCache urlCache;
+
+    /**
+     * 已存在的内容寻址文件，开启去重时由自动装配设置
+     */
+    protected BloomFilter dedupFilter;
 
     /**
-     * 临时桶名称
+     * 传输进度监听，存在 {@link ProgressListener} Bean 时由自动装配设置，{@link #progress(ProgressListener)} 视图上覆盖
      */
-    protected String tempBucketName() {
-        return this.getClass().getName() + "OssBucket";
+    protected ProgressListener progressListener;
+
+    /**
+     * 传输限速，配置速率时由自动装配设置
+     */
+    protected TransferThrottle throttle;
+
+    /**
+     * 失败重试策略，由自动装配按 {@link OssProperty#getRetry()} 设置，默认不重试
+     */
+    protected RetryPolicy retryPolicy = RetryPolicy.NONE;
+
+    /**
+     * 当前视图的租户，{@link #tenant(String)} 视图上设置
+     */
+    private String tenant;
+
+    /**
+     * 批量获取文件地址时单个任务签名的文件数，超过时分批并发签名
+     */
+    protected static final int URL_CHUNK_SIZE = 256;
+
+    /**
+     * 平台限流或暂不可用，请求未被处理的错误码
+     */
+    private static final Set<String> REJECTED_ERROR_CODES = Set.of("SlowDown", "ServiceUnavailable", "Throttling",
+            "ThrottlingException", "RequestLimitExceeded", "TooManyRequests", "QpsLimitExceeded");
+
+    /**
+     * 平台临时故障，请求可能已被处理的错误码
+     */
+    private static final Set<String> TRANSIENT_ERROR_CODES = Set.of("InternalError", "RequestTimeout",
+            "ServerBusy", "InternalServerError");
+
+    /**
+     * 当前视图的桶名称，为空使用配置的默认桶
+     */
+    private String bucketName;
+
+    /**
+     * 默认桶实例
+     */
+    private final AbstractFileStorage root = this;
+
+    /**
+     * 按桶名称缓存的存储视图，所有视图共享
+     */
+    private final ConcurrentMap<String, AbstractFileStorage> bucketViews = new ConcurrentHashMap<>();
+
+    @Override
+    public String getBucketName() {
+        return null == this.bucketName ? this.ossProperty.getBucketName() : this.bucketName;
     }
 
     @Override
     public IFileStorage bucket() {
-        return this;
+        return this.root;
     }
 
     @Override
     public IFileStorage bucket(String bucketName) {
-        if (StringUtils.hasLength(bucketName)) {
-            ThreadLocalUtils.set(this.tempBucketName(), bucketName);
+        if (!StringUtils.hasLength(bucketName)) {
+            return this.root;
+        }
+        AbstractFileStorage view = this.bucketViews.get(bucketName);
+        if (null == view) {
+            view = this.bucketViews.computeIfAbsent(bucketName, this.root::newBucketView);
+        }
+        return view;
+    }
+
+    @Override
+    public IFileStorage progress(ProgressListener listener) {
+        try {
+            AbstractFileStorage view = (AbstractFileStorage) super.clone();
+            view.progressListener = listener;
+            return view;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public IFileStorage tenant(String tenant) {
+        try {
+            AbstractFileStorage view = (AbstractFileStorage) super.clone();
+            view.tenant = tenant;
+            return view;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 创建指定桶的存储视图，视图与默认桶实例共享客户端、线程池等资源，仅桶名称不同
+     * <p>
+     * 子类存在与桶相关的状态时需重写并在视图上重新设置
+     *
+     * @param bucketName 桶名称
+     * @return 存储视图
+     */
+    protected AbstractFileStorage newBucketView(String bucketName) {
+        try {
+            AbstractFileStorage view = (AbstractFileStorage) super.clone();
+            view.bucketName = bucketName;
+            return view;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
         }
-        return this;
     }
 
     /**
@@ -85,6 +238,907 @@ public abstract class AbstractFileStorage implements IFileStorage {
         return DateUtils.nowFormat("yyyy/MM/dd") + "/" + UUID.randomUUID() + "." + suffix;
     }
 
+    @Override
+    public OssResult uploadFile(InputStream is, String filename, String objectName) throws Exception {
+        return this.uploadFile(is, -1, filename, objectName);
+    }
+
+    @Override
+    public OssResult uploadFile(InputStream is, long size, String filename, String objectName) throws Exception {
+        String suffix = this.getFileSuffix(filename);
+        if (null == objectName && null != this.dedupFilter) {
+            return this.dedupUpload(is, size, filename, suffix, this.getTransferExecutor());
+        }
+        return this.doUpload(is, size, filename, suffix, this.getObjectName(suffix, objectName));
+    }
+
+    @Override
+    public OssResult uploadFile(MultipartFile file) throws Exception {
+        String suffix = this.getSuffix(file.getContentType());
+        if (null != this.dedupFilter) {
+            return this.dedupUpload(file, suffix, null, this.getTransferExecutor());
+        }
+        return this.doUpload(file, suffix, this.getObjectName(suffix));
+    }
+
+    @Override
+    public OssResult uploadFile(MultipartFile file, String dir) throws Exception {
+        String suffix = this.getSuffix(file.getContentType());
+        if (null != this.dedupFilter) {
+            return this.dedupUpload(file, suffix, dir, this.getTransferExecutor());
+        }
+        return this.doUpload(file, suffix, dir.concat("/").concat(this.getObjectName(suffix)));
+    }
+
+    /**
+     * 内容寻址上传，文件流边读取边计算 SHA-256 并暂存到临时文件，已存在相同内容时跳过上传
+     * <p>
+     * 暂存时同样按大小上限与媒体类型校验，超过上限立即中止，不会把超大文件完整写入临时文件
+     *
+     * @param is           文件流 {@link InputStream}
+     * @param size         文件大小，未知传 -1
+     * @param filename     文件名
+     * @param suffix       文件后缀
+     * @param partExecutor 分片上传线程池
+     * @return {@link OssResult}
+     * @throws Exception 异常
+     */
+    protected OssResult dedupUpload(InputStream is, long size, String filename, String suffix,
+                                    Executor partExecutor) throws Exception {
+        ValidatingInputStream validating = this.validating(is, size);
+        Path temp = Files.createTempFile("forboot-oss-", ".dedup");
+        try {
+            ChecksumInputStream checksum = new ChecksumInputStream(null == validating ? is : validating,
+                    ChecksumAlgorithm.SHA256);
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                size = checksum.transferTo(out);
+            } catch (IOException e) {
+                if (null != validating && null != validating.getRejection()) {
+                    throw validating.getRejection();
+                }
+                throw e;
+            }
+            String hash = checksum.getChecksum();
+            String objectName = this.getContentObjectName(hash, suffix, null);
+            OssResult existing = this.findContent(objectName, hash, filename, suffix);
+            if (null != existing) {
+                return existing;
+            }
+            try (InputStream in = Files.newInputStream(temp)) {
+                return this.contentUploaded(this.doUpload(this.getBucketName(), in, () -> Files.newInputStream(temp),
+                        size, filename, suffix, objectName, partExecutor), hash);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 内容寻址上传，上传文件已在本地，先读取一遍计算 SHA-256，已存在相同内容时跳过上传
+     * <p>
+     * 计算哈希前按文件大小校验上限，读取时同样校验媒体类型，被拒绝的文件不会查询或上传
+     *
+     * @param file         上传文件 {@link MultipartFile}
+     * @param suffix       文件后缀
+     * @param dir          目录，为空时不加目录
+     * @param partExecutor 分片上传线程池
+     * @return {@link OssResult}
+     * @throws Exception 异常
+     */
+    protected OssResult dedupUpload(MultipartFile file, String suffix, String dir, Executor partExecutor)
+            throws Exception {
+        String hash;
+        try (InputStream is = file.getInputStream()) {
+            ValidatingInputStream validating = this.validating(is, file.getSize());
+            ChecksumInputStream checksum = new ChecksumInputStream(null == validating ? is : validating,
+                    ChecksumAlgorithm.SHA256);
+            try {
+                checksum.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                if (null != validating && null != validating.getRejection()) {
+                    throw validating.getRejection();
+                }
+                throw e;
+            }
+            hash = checksum.getChecksum();
+        }
+        String objectName = this.getContentObjectName(hash, suffix, dir);
+        OssResult existing = this.findContent(objectName, hash, file.getOriginalFilename(), suffix);
+        if (null != existing) {
+            return existing;
+        }
+        try (InputStream is = file.getInputStream()) {
+            return this.contentUploaded(this.doUpload(this.getBucketName(), is, file::getInputStream,
+                    file.getSize(), file.getOriginalFilename(), suffix, objectName, partExecutor), hash);
+        }
+    }
+
+    /**
+     * 内容寻址对象名，{前缀}{目录/}{哈希前两位}/{哈希}.{后缀}
+     *
+     * @param hash   SHA-256
+     * @param suffix 文件后缀
+     * @param dir    目录，为空时不加目录
+     * @return 文件对象名
+     */
+    protected String getContentObjectName(String hash, String suffix, String dir) {
+        StringBuilder objectName = new StringBuilder(this.ossProperty.getDedup().getPrefix());
+        if (StringUtils.hasLength(dir)) {
+            objectName.append(dir).append('/');
+        }
+        objectName.append(hash, 0, 2).append('/').append(hash);
+        if (StringUtils.hasLength(suffix)) {
+            objectName.append('.').append(suffix);
+        }
+        return objectName.toString();
+    }
+
+    /**
+     * 查找相同内容的文件，布隆过滤器命中时查询确认，未命中时按配置决定是否查询
+     */
+    private OssResult findContent(String objectName, String hash, String filename, String suffix) throws Exception {
+        String bucketName = this.getBucketName();
+        String key = bucketName + "/" + objectName;
+        if (!this.dedupFilter.mightContain(key) && !this.ossProperty.getDedup().isHeadOnMiss()) {
+            return null;
+        }
+        if (!this.retry(() -> this.exists(bucketName, objectName), true)) {
+            return null;
+        }
+        this.dedupFilter.put(key);
+        return OssResult.builder().bucketName(bucketName)
+                .objectName(objectName)
+                .filename(filename)
+                .suffix(suffix)
+                .checksumAlgorithm(ChecksumAlgorithm.SHA256)
+                .checksum(hash)
+                .deduplicated(true)
+                .build();
+    }
+
+    private OssResult contentUploaded(OssResult ossResult, String hash) {
+        if (null != ossResult) {
+            this.dedupFilter.put(this.getBucketName() + "/" + ossResult.getObjectName());
+            if (null == ossResult.getChecksum()) {
+                ossResult.setChecksumAlgorithm(ChecksumAlgorithm.SHA256);
+                ossResult.setChecksum(hash);
+            }
+            ossResult.setDeduplicated(false);
+        }
+        return ossResult;
+    }
+
+    @Override
+    public OssResult uploadFile(MultipartFile file, String dir, String fileName) throws Exception {
+        String suffix = this.getSuffix(file.getContentType());
+        return this.doUpload(file, suffix, dir.concat("/").concat(fileName));
+    }
+
+    protected OssResult doUpload(MultipartFile file, String suffix, String objectName) throws Exception {
+        try (InputStream is = file.getInputStream()) {
+            return this.doUpload(this.getBucketName(), is, file::getInputStream, file.getSize(),
+                    file.getOriginalFilename(), suffix, objectName, this.getTransferExecutor());
+        }
+    }
+
+    protected OssResult doUpload(InputStream is, long size, String filename, String suffix, String objectName) throws Exception {
+        return this.doUpload(this.getBucketName(), is, size, filename, suffix, objectName, this.getTransferExecutor());
+    }
+
+    protected OssResult doUpload(String bucketName, InputStream is, long size, String filename, String suffix,
+                                 String objectName, Executor partExecutor) throws Exception {
+        return this.doUpload(bucketName, is, null, size, filename, suffix, objectName, partExecutor);
+    }
+
+    /**
+     * 上传，文件大小未知或超过分片阈值时，支持分片上传的平台使用分片上传
+     *
+     * @param bucketName   桶名称
+     * @param is           文件流 {@link InputStream}
+     * @param reopen       重新打开文件流，单次上传重试时使用，为空时无法重新打开
+     * @param size         文件大小，未知传 -1
+     * @param filename     文件名
+     * @param suffix       文件后缀
+     * @param objectName   文件对象名
+     * @param partExecutor 分片上传线程池
+     * @return {@link OssResult}
+     * @throws Exception 异常
+     */
+    protected OssResult doUpload(String bucketName, InputStream is, Callable<InputStream> reopen, long size,
+                                 String filename, String suffix, String objectName, Executor partExecutor)
+            throws Exception {
+        MultipartProperty multipart = this.ossProperty.getMultipart();
+        MultipartUploadHandler handler = this instanceof MultipartUploadHandler h
+                && (size < 0 || size >= multipart.getThreshold().toBytes()) ? h : null;
+        ProgressTracker progress = this.progressTracker(TransferType.UPLOAD, bucketName, objectName, size);
+        OssResult ossResult;
+        if (null != handler || !this.retryPolicy.isEnabled()) {
+            // 分片上传按分片重试
+            ossResult = this.transfer(bucketName, is, size, objectName, handler, partExecutor, progress);
+        } else {
+            ossResult = this.transferWithRetry(bucketName, is, reopen, size, objectName, progress);
+        }
+        if (null != ossResult) {
+            ossResult.setFilename(filename);
+            ossResult.setSuffix(suffix);
+        }
+        if (null != progress) {
+            progress.complete();
+        }
+        return ossResult;
+    }
+
+    /**
+     * 一次上传，限速、校验并计算摘要
+     *
+     * @param bucketName   桶名称
+     * @param is           文件流 {@link InputStream}
+     * @param size         文件大小，未知传 -1
+     * @param objectName   文件对象名
+     * @param handler      分片上传处理，为空时单次上传
+     * @param partExecutor 分片上传线程池
+     * @param progress     进度统计，为空不统计
+     * @return {@link OssResult}
+     * @throws Exception 异常
+     */
+    private OssResult transfer(String bucketName, InputStream is, long size, String objectName,
+                               MultipartUploadHandler handler, Executor partExecutor, ProgressTracker progress)
+            throws Exception {
+        is = this.throttling(is, TransferType.UPLOAD);
+        ValidatingInputStream validating = this.validating(is, size);
+        if (null != validating) {
+            is = validating;
+        }
+        ChecksumAlgorithm algorithm = this.ossProperty.getChecksum();
+        ChecksumInputStream checksum = null == algorithm ? null : new ChecksumInputStream(is, algorithm);
+        if (null != checksum) {
+            is = checksum;
+        }
+        OssResult ossResult;
+        try {
+            if (null != handler) {
+                // 分片按读取进度统计，包含读取后尚未发送完成的分片
+                ossResult = this.multipartUploader(handler, partExecutor)
+                        .upload(bucketName, objectName, this.tracking(is, progress));
+            } else if (null != progress) {
+                ossResult = this.putObject(bucketName, objectName, is, size, progress);
+            } else {
+                ossResult = this.putObject(bucketName, objectName, is, size);
+            }
+        } catch (Exception e) {
+            // 平台 SDK 可能包装读取异常，还原校验拒绝的原因
+            if (null != validating && null != validating.getRejection()) {
+                throw validating.getRejection();
+            }
+            throw e;
+        }
+        if (null != ossResult) {
+            ossResult.setETag(this.unquote(ossResult.getETag()));
+            if (null != checksum) {
+                ossResult.setChecksumAlgorithm(algorithm);
+                ossResult.setChecksum(checksum.getChecksum());
+                if (algorithm == ChecksumAlgorithm.MD5 && Boolean.TRUE.equals(ossResult.getMd5ETag())
+                        && this.isMd5(ossResult.getETag())
+                        && !ossResult.getChecksum().equalsIgnoreCase(ossResult.getETag())) {
+                    ChecksumException mismatch = new ChecksumException("MD5 mismatch, expected "
+                            + ossResult.getChecksum() + " but ETag was " + ossResult.getETag());
+                    // 内容已损坏，删除已写入的文件，避免留下与校验值不符的对象
+                    try {
+                        this.deleteChunk(bucketName, List.of(objectName));
+                    } catch (Exception e) {
+                        mismatch.addSuppressed(e);
+                    }
+                    throw mismatch;
+                }
+            }
+        }
+        return ossResult;
+    }
+
+    /**
+     * 单次上传，失败时从头重新上传，每次重新限速、校验并计算摘要，重试前进度回退到 0
+     * <p>
+     * 按代价从低到高选择重新读取的方式：可重新打开的文件流重新打开；内存中的文件流回到开头；
+     * 其它文件流边上传边记录到重放缓冲，超过 {@code retry.spill-threshold} 后转存到临时文件。
+     *
+     * @param bucketName 桶名称
+     * @param is         文件流 {@link InputStream}
+     * @param reopen     重新打开文件流，可为空
+     * @param size       文件大小，未知传 -1
+     * @param objectName 文件对象名
+     * @param progress   进度统计，为空不统计
+     * @return {@link OssResult}
+     * @throws Exception 异常
+     */
+    private OssResult transferWithRetry(String bucketName, InputStream is, Callable<InputStream> reopen, long size,
+                                        String objectName, ProgressTracker progress) throws Exception {
+        Runnable rewindProgress = () -> {
+            if (null != progress) {
+                progress.rewind(progress.getTransferred());
+            }
+        };
+        if (null != reopen) {
+            AtomicBoolean first = new AtomicBoolean(true);
+            return this.retryPolicy.execute(() -> {
+                if (first.getAndSet(false)) {
+                    return this.transfer(bucketName, is, size, objectName, null, null, progress);
+                }
+                try (InputStream in = reopen.call()) {
+                    return this.transfer(bucketName, in, size, objectName, null, null, progress);
+                }
+            }, true, this::classify, rewindProgress);
+        }
+        if (is instanceof ByteArrayInputStream bytes) {
+            bytes.mark(0);
+            return this.retryPolicy.execute(() -> this.transfer(bucketName, bytes, size, objectName, null, null,
+                    progress), true, this::classify, () -> {
+                bytes.reset();
+                rewindProgress.run();
+            });
+        }
+        ReplayableInputStream replay = new ReplayableInputStream(is,
+                this.ossProperty.getRetry().getSpillThreshold().toBytes());
+        try {
+            return this.retryPolicy.execute(() -> this.transfer(bucketName, replay, size, objectName, null, null,
+                    progress), true, this::classify, () -> {
+                replay.rewind();
+                rewindProgress.run();
+            });
+        } finally {
+            replay.release();
+        }
+    }
+
+    /**
+     * 按重试策略执行
+     *
+     * @param action     操作
+     * @param idempotent 是否幂等，非幂等操作只在确定未被处理时重试
+     * @return 操作结果
+     * @throws Exception 不可重试或重试次数用尽时最后一次的异常
+     */
+    protected <T> T retry(Callable<T> action, boolean idempotent) throws Exception {
+        return this.retryPolicy.execute(action, idempotent, this::classify);
+    }
+
+    /**
+     * 失败分类，默认按网络异常分类，平台按 SDK 异常重写
+     * <p>
+     * 连接失败时请求未发出，为 {@link RetryCategory#REJECTED}；超时等其它网络异常请求可能已被处理，
+     * 为 {@link RetryCategory#TRANSIENT}；上传校验拒绝、本地文件异常及中断不重试。
+     *
+     * @param e 异常
+     * @return {@link RetryCategory}
+     */
+    protected RetryCategory classify(Exception e) {
+        for (Throwable t = e; null != t; t = t.getCause()) {
+            if (t instanceof FileSizeException || t instanceof MediaTypeException || t instanceof ChecksumException
+                    || t instanceof InterruptedException) {
+                return RetryCategory.NONE;
+            }
+        }
+        for (Throwable t = e; null != t; t = t.getCause()) {
+            if (t instanceof ConnectException || t instanceof UnknownHostException) {
+                return RetryCategory.REJECTED;
+            }
+            if (t instanceof SocketTimeoutException) {
+                return RetryCategory.TRANSIENT;
+            }
+            if (t instanceof InterruptedIOException || t instanceof FileNotFoundException
+                    || t instanceof FileSystemException) {
+                return RetryCategory.NONE;
+            }
+            if (t instanceof IOException) {
+                return RetryCategory.TRANSIENT;
+            }
+        }
+        return RetryCategory.NONE;
+    }
+
+    /**
+     * 按平台返回的状态码及错误码分类，限流及服务不可用为 {@link RetryCategory#REJECTED}，
+     * 其它服务端错误及请求超时为 {@link RetryCategory#TRANSIENT}
+     *
+     * @param statusCode HTTP 状态码，未知传 -1
+     * @param errorCode  平台错误码，可为空
+     * @return {@link RetryCategory}
+     */
+    protected RetryCategory classify(int statusCode, String errorCode) {
+        if (statusCode == 429 || statusCode == 503
+                || (null != errorCode && REJECTED_ERROR_CODES.contains(errorCode))) {
+            return RetryCategory.REJECTED;
+        }
+        if ((statusCode >= 500 && statusCode != 501)
+                || (null != errorCode && TRANSIENT_ERROR_CODES.contains(errorCode))) {
+            return RetryCategory.TRANSIENT;
+        }
+        return RetryCategory.NONE;
+    }
+
+    /**
+     * 创建传输进度统计，未设置进度监听时返回 null
+     *
+     * @param type       传输类型
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @param totalBytes 总字节数，未知传 -1
+     * @return {@link ProgressTracker}
+     */
+    protected ProgressTracker progressTracker(TransferType type, String bucketName, String objectName,
+                                              long totalBytes) {
+        if (null == this.progressListener) {
+            return null;
+        }
+        ProgressProperty property = this.ossProperty.getProgress();
+        DataSize byteInterval = property.getByteInterval();
+        Duration timeInterval = property.getTimeInterval();
+        return new ProgressTracker(this.progressListener, type, bucketName, objectName, totalBytes,
+                null == byteInterval ? -1 : byteInterval.toBytes(), null == timeInterval ? -1 : timeInterval.toNanos());
+    }
+
+    /**
+     * 按平台及当前租户的速率限速
+     *
+     * @param is   文件流
+     * @param type 传输类型
+     * @return 文件流，未配置限速时原样返回
+     */
+    protected InputStream throttling(InputStream is, TransferType type) {
+        return null == this.throttle ? is : this.throttle.throttle(is, type, this.tenant);
+    }
+
+    /**
+     * 平台及当前租户适用的令牌桶，不经过文件流的传输自行获取令牌
+     *
+     * @param type 传输类型
+     * @return 令牌桶列表，未配置限速时为空
+     */
+    protected List<TokenBucket> throttleBuckets(TransferType type) {
+        return null == this.throttle ? List.of() : this.throttle.buckets(type, this.tenant);
+    }
+
+    /**
+     * 按读取的字节数统计传输进度
+     *
+     * @param is       文件流
+     * @param progress 进度统计，为空不统计
+     * @return 文件流
+     */
+    protected InputStream tracking(InputStream is, ProgressTracker progress) {
+        return null == is || null == progress ? is : new ProgressInputStream(is, progress);
+    }
+
+    /**
+     * 上传校验，未配置媒体类型校验及大小上限时返回 null
+     *
+     * @param is   文件流 {@link InputStream}
+     * @param size 文件大小，未知传 -1
+     * @return {@link ValidatingInputStream}
+     * @throws FileSizeException 已知文件大小超过上限
+     */
+    protected ValidatingInputStream validating(InputStream is, long size) throws FileSizeException {
+        DataSize maxFileSize = this.ossProperty.getMaxFileSize();
+        long maxSize = null == maxFileSize ? -1 : maxFileSize.toBytes();
+        if (maxSize >= 0 && size > maxSize) {
+            // 大小已知时不读取直接拒绝
+            throw new FileSizeException("File size exceeds " + maxSize + " bytes");
+        }
+        boolean validateMediaType = this.ossProperty.isValidateMediaType()
+                && null != this.ossProperty.getAllowMediaType();
+        if (maxSize < 0 && !validateMediaType) {
+            return null;
+        }
+        return new ValidatingInputStream(is, maxSize, validateMediaType ? this::isAllowMediaType : null);
+    }
+
+    /**
+     * 下载校验，校验算法为 MD5 且 ETag 为内容 MD5 时读取到末尾后比对
+     *
+     * @param is      下载文件流
+     * @param eTag    平台返回的 ETag
+     * @param md5ETag ETag 是否为内容 MD5，由平台按服务端加密方式判断，参见 {@link #isMd5ETag(String, String)}
+     * @return 文件流
+     */
+    protected InputStream verifying(InputStream is, String eTag, boolean md5ETag) {
+        eTag = this.unquote(eTag);
+        if (null == is || this.ossProperty.getChecksum() != ChecksumAlgorithm.MD5 || !md5ETag || !this.isMd5(eTag)) {
+            return is;
+        }
+        return new ChecksumInputStream(is, ChecksumAlgorithm.MD5, eTag);
+    }
+
+    /**
+     * 按服务端加密方式判断单次上传的 ETag 是否为内容 MD5
+     * <p>
+     * 未加密或平台托管密钥的 AES256 加密时为 MD5，KMS 托管密钥、客户提供密钥（SSE-C）加密时不是
+     *
+     * @param algorithm         服务端加密算法，未加密为空
+     * @param customerAlgorithm 客户提供密钥的加密算法，未使用为空
+     * @return 是否为内容 MD5
+     */
+    protected boolean isMd5ETag(String algorithm, String customerAlgorithm) {
+        return null == customerAlgorithm && (null == algorithm || "AES256".equalsIgnoreCase(algorithm));
+    }
+
+    /**
+     * ETag 是否为 MD5 格式，分片上传时包含 - 不是
+     */
+    private boolean isMd5(String eTag) {
+        if (null == eTag || eTag.length() != 32) {
+            return false;
+        }
+        for (int i = 0; i < eTag.length(); i++) {
+            if (Character.digit(eTag.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String unquote(String eTag) {
+        return null != eTag && eTag.length() >= 2 && eTag.startsWith("\"") && eTag.endsWith("\"")
+                ? eTag.substring(1, eTag.length() - 1) : eTag;
+    }
+
+    /**
+     * 是否配置允许的媒体类型
+     *
+     * @param mediaType 媒体类型
+     * @return 是否允许
+     */
+    protected boolean isAllowMediaType(String mediaType) {
+        List<String> allowMediaType = this.ossProperty.getAllowMediaType();
+        return null != allowMediaType && allowMediaType.stream().anyMatch(mediaType::startsWith);
+    }
+
+    protected MultipartUploader multipartUploader(MultipartUploadHandler handler, Executor partExecutor) {
+        MultipartProperty multipart = this.ossProperty.getMultipart();
+        if (this.retryPolicy.isEnabled()) {
+            handler = new RetryingMultipartUploadHandler(handler, this.retryPolicy, this::classify);
+        }
+        return new MultipartUploader(handler, partExecutor,
+                Math.toIntExact(multipart.getPartSize().toBytes()), multipart.getMaxInFlight(),
+                multipart.isResumable() ? this.checkpointStore : null, multipart.getCheckpointTtl(),
+                this::classify);
+    }
+
+    /**
+     * 传输线程池，未设置时在当前线程执行
+     */
+    public Executor getTransferExecutor() {
+        return null == this.transferExecutor ? Runnable::run : this.transferExecutor;
+    }
+
+    public void setTransferExecutor(Executor transferExecutor) {
+        this.transferExecutor = transferExecutor;
+    }
+
+    public SignedUrlCache getUrlCache() {
+        return urlCache;
+    }
+
+    public void setUrlCache(SignedUrlCache urlCache) {
+        this.urlCache = urlCache;
+    }
+
+    public BloomFilter getDedupFilter() {
+        return dedupFilter;
+    }
+
+    public void setDedupFilter(BloomFilter dedupFilter) {
+        this.dedupFilter = dedupFilter;
+    }
+
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public TransferThrottle getThrottle() {
+        return throttle;
+    }
+
+    public void setThrottle(TransferThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = null == retryPolicy ? RetryPolicy.NONE : retryPolicy;
+    }
+
+    public CheckpointStore getCheckpointStore() {
+        return checkpointStore;
+    }
+
+    public void setCheckpointStore(CheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+    }
+
+    @Override
+    public List<BatchResult<OssResult>> uploadBatch(List<UploadEntry> entries) throws Exception {
+        String bucketName = this.getBucketName();
+        return this.executeBatch(entries, e -> {
+            try {
+                return BatchResult.success(this.getEntryKey(e), this.uploadEntry(bucketName, e));
+            } catch (Exception ex) {
+                return BatchResult.failure(this.getEntryKey(e), ex);
+            }
+        }, (e, ex) -> BatchResult.failure(this.getEntryKey(e), ex));
+    }
+
+    protected String getEntryKey(UploadEntry entry) {
+        return null == entry.getObjectName() ? this.getEntryFilename(entry) : entry.getObjectName();
+    }
+
+    protected String getEntryFilename(UploadEntry entry) {
+        return null == entry.getFile() ? entry.getFilename() : entry.getFile().getOriginalFilename();
+    }
+
+    /**
+     * 批量上传单个条目，条目已在传输线程池中并发执行，分片在当前线程上传避免线程池相互等待
+     */
+    protected OssResult uploadEntry(String bucketName, UploadEntry entry) throws Exception {
+        MultipartFile file = entry.getFile();
+        if (null != file) {
+            String suffix = this.getSuffix(file.getContentType());
+            if (null == entry.getObjectName() && null != this.dedupFilter) {
+                return this.dedupUpload(file, suffix, null, Runnable::run);
+            }
+            String objectName = this.getObjectName(suffix, entry.getObjectName());
+            try (InputStream is = file.getInputStream()) {
+                return this.doUpload(bucketName, is, file::getInputStream, file.getSize(),
+                        file.getOriginalFilename(), suffix, objectName, Runnable::run);
+            }
+        }
+        String suffix = this.getFileSuffix(entry.getFilename());
+        if (null == entry.getObjectName() && null != this.dedupFilter) {
+            return this.dedupUpload(entry.getInputStream(), entry.getSize(), entry.getFilename(), suffix,
+                    Runnable::run);
+        }
+        return this.doUpload(bucketName, entry.getInputStream(), entry.getSize(), entry.getFilename(), suffix,
+                this.getObjectName(suffix, entry.getObjectName()), Runnable::run);
+    }
+
+    @Override
+    public boolean delete(List<String> objectNameList) throws Exception {
+        if (null == objectNameList || objectNameList.isEmpty()) {
+            return false;
+        }
+        return this.deleteBatch(objectNameList).stream().allMatch(BatchResult::isSuccess);
+    }
+
+    @Override
+    public List<BatchResult<Void>> deleteBatch(List<String> objectNameList) throws Exception {
+        if (null == objectNameList || objectNameList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String bucketName = this.getBucketName();
+        int chunkSize = this.getDeleteChunkSize();
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < objectNameList.size(); i += chunkSize) {
+            chunks.add(objectNameList.subList(i, Math.min(i + chunkSize, objectNameList.size())));
+        }
+        // 整批请求失败或未能提交时，批内全部标记失败
+        List<List<BatchResult<Void>>> chunkResults = this.executeBatch(chunks, e -> {
+            try {
+                return this.retry(() -> this.deleteChunk(bucketName, e), true);
+            } catch (Exception ex) {
+                return e.stream().map(k -> BatchResult.<Void>failure(k, ex)).toList();
+            }
+        }, (e, ex) -> e.stream().map(k -> BatchResult.<Void>failure(k, ex)).toList());
+        List<BatchResult<Void>> results = new ArrayList<>(objectNameList.size());
+        chunkResults.forEach(results::addAll);
+        return results;
+    }
+
+    /**
+     * 单次批量删除请求允许的最大文件数
+     */
+    protected int getDeleteChunkSize() {
+        return 1000;
+    }
+
+    /**
+     * 批量删除一批文件，文件数不超过 {@link #getDeleteChunkSize()}
+     *
+     * @param bucketName     桶名称
+     * @param objectNameList 文件对象名列表
+     * @return 与文件顺序一致的删除结果
+     * @throws Exception 整批请求失败
+     */
+    protected abstract List<BatchResult<Void>> deleteChunk(String bucketName, List<String> objectNameList) throws Exception;
+
+    /**
+     * 根据失败文件生成删除结果
+     *
+     * @param objectNameList 文件对象名列表
+     * @param errors         失败文件及原因
+     * @return 与文件顺序一致的删除结果
+     */
+    protected List<BatchResult<Void>> deleteResults(List<String> objectNameList, Map<String, String> errors) {
+        List<BatchResult<Void>> results = new ArrayList<>(objectNameList.size());
+        for (String objectName : objectNameList) {
+            String error = errors.get(objectName);
+            results.add(null == error ? BatchResult.success(objectName, null) : BatchResult.failure(objectName, error));
+        }
+        return results;
+    }
+
+    /**
+     * 在传输线程池中并发执行批量任务，在途任务数达到 batchParallelism 时阻塞提交线程
+     * <p>
+     * 线程池拒绝提交时不再提交剩余条目，等待已提交的任务完成后，剩余条目按提交异常生成失败结果
+     *
+     * @param items    批量条目
+     * @param task     单项任务，需自行处理异常
+     * @param rejected 未能提交的条目及提交异常生成的结果
+     * @return 与条目顺序一致的结果列表
+     * @throws InterruptedException 中断异常
+     */
+    protected <T, R> List<R> executeBatch(List<T> items, Function<T, R> task, BiFunction<T, Exception, R> rejected)
+            throws InterruptedException {
+        if (null == items || items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Semaphore permits = new Semaphore(Math.max(1, this.ossProperty.getBatchParallelism()));
+        List<CompletableFuture<R>> futures = new ArrayList<>(items.size());
+        RuntimeException rejection = null;
+        for (T item : items) {
+            permits.acquire();
+            try {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return task.apply(item);
+                    } finally {
+                        permits.release();
+                    }
+                }, this.getTransferExecutor()));
+            } catch (RuntimeException e) {
+                permits.release();
+                rejection = e;
+                break;
+            }
+        }
+        List<R> results = new ArrayList<>(items.size());
+        for (CompletableFuture<R> future : futures) {
+            results.add(future.join());
+        }
+        for (int i = results.size(); i < items.size(); i++) {
+            results.add(rejected.apply(items.get(i), rejection));
+        }
+        return results;
+    }
+
+    /**
+     * 简单上传
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @param is         文件流 {@link InputStream}
+     * @param size       文件大小，未知为 -1
+     * @return {@link OssResult}
+     * @throws Exception 异常
+     */
+    protected abstract OssResult putObject(String bucketName, String objectName, InputStream is, long size) throws Exception;
+
+    /**
+     * 单次上传并统计传输进度，默认按读取的字节数统计，平台 SDK 支持进度回调时重写
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @param is         文件流 {@link InputStream}
+     * @param size       文件大小，未知传 -1
+     * @param progress   进度统计
+     * @return {@link OssResult}
+     * @throws Exception 异常
+     */
+    protected OssResult putObject(String bucketName, String objectName, InputStream is, long size,
+                                  ProgressTracker progress) throws Exception {
+        return this.putObject(bucketName, objectName, this.tracking(is, progress), size);
+    }
+
+    /**
+     * 文件是否存在
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @return 是否存在
+     * @throws Exception 异常
+     */
+    protected abstract boolean exists(String bucketName, String objectName) throws Exception;
+
+    @Override
+    public void download(HttpServletResponse response, List<String> objectNameList, boolean compress) throws Exception {
+        if (null == objectNameList || objectNameList.size() < 2) {
+            IFileStorage.super.download(response, objectNameList, compress);
+            return;
+        }
+        new ZipStreamWriter(this.getTransferExecutor(), this.ossProperty.getZipPrefetch(), compress)
+                .write(response.getOutputStream(), objectNameList, this::download);
+    }
+
+    @Override
+    public String getUrl(String objectName, int duration, TimeUnit unit) throws Exception {
+        return this.getUrl(objectName, unit.toSeconds(duration), this.getExpiration(unit.toSeconds(duration)));
+    }
+
+    @Override
+    public List<String> getUrls(List<String> objectNameList, int duration, TimeUnit unit) throws Exception {
+        if (null == objectNameList || objectNameList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 同一批地址共用过期时间
+        long seconds = unit.toSeconds(duration);
+        Date expiration = this.getExpiration(seconds);
+        if (objectNameList.size() <= URL_CHUNK_SIZE) {
+            return this.getUrls(objectNameList, seconds, expiration);
+        }
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < objectNameList.size(); i += URL_CHUNK_SIZE) {
+            chunks.add(objectNameList.subList(i, Math.min(i + URL_CHUNK_SIZE, objectNameList.size())));
+        }
+        List<List<String>> chunkResults;
+        try {
+            chunkResults = this.executeBatch(chunks, e -> {
+                try {
+                    return this.getUrls(e, seconds, expiration);
+                } catch (Exception ex) {
+                    throw new CompletionException(ex);
+                }
+            }, (e, ex) -> {
+                throw new CompletionException(ex);
+            });
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ex ? ex : e;
+        }
+        List<String> urls = new ArrayList<>(objectNameList.size());
+        chunkResults.forEach(urls::addAll);
+        return urls;
+    }
+
+    protected List<String> getUrls(List<String> objectNameList, long seconds, Date expiration) throws Exception {
+        List<String> urls = new ArrayList<>(objectNameList.size());
+        for (String objectName : objectNameList) {
+            urls.add(this.getUrl(objectName, seconds, expiration));
+        }
+        return urls;
+    }
+
+    protected String getUrl(String objectName, long seconds, Date expiration) throws Exception {
+        if (null == this.urlCache) {
+            return this.generateUrl(objectName, expiration);
+        }
+        return this.urlCache.get(this.getBucketName(), objectName, seconds,
+                () -> this.generateUrl(objectName, expiration));
+    }
+
+    /**
+     * 生成文件地址，私有空间生成签名地址
+     *
+     * @param objectName 文件对象名
+     * @param expiration 过期时间
+     * @return 文件地址
+     * @throws Exception 异常
+     */
+    protected abstract String generateUrl(String objectName, Date expiration) throws Exception;
+
+    /**
+     * 过期时间
+     *
+     * @param seconds 有效期秒数
+     * @return 过期时间
+     */
+    protected Date getExpiration(long seconds) {
+        return new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds));
+    }
+
     protected String getEndpoint() {
         return ossProperty.getEndpoint();
     }
@@ -95,14 +1149,14 @@ public abstract class AbstractFileStorage implements IFileStorage {
 
     @Override
     public IFileStorage allowMediaType(InputStream is, Function<String, Boolean> function) throws Exception {
+        if (!is.markSupported()) {
+            throw new IOException("mark/reset not supported");
+        }
         boolean legal = false;
-        is.mark(is.available() + 1);
+        // 只读取开头部分，读取后恢复到原位置
         String mediaType = MediaType.detect(is);
         if (null == function) {
-            List<String> allowMediaType = this.ossProperty.getAllowMediaType();
-            if (null != allowMediaType) {
-                legal = allowMediaType.stream().anyMatch(mediaType::startsWith);
-            }
+            legal = this.isAllowMediaType(mediaType);
         } else {
             legal = function.apply(mediaType);
         }
@@ -110,7 +1164,6 @@ public abstract class AbstractFileStorage implements IFileStorage {
         if (!legal) {
             throw new MediaTypeException("Illegal file type");
         }
-        is.reset();
         return this;
     }
 }
@@ -0,0 +1,217 @@
+package com.forboot.oss;
+
+import com.forboot.oss.model.request.UploadEntry;
+import com.forboot.oss.model.response.BatchResult;
+import com.forboot.oss.model.response.OssResult;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步文件存储
+ * <p>
+ * 将 {@link IFileStorage} 的阻塞操作提交到独立线程池执行，调用线程不等待对象存储 I/O，
+ * 异常通过 {@link CompletableFuture} 异常完成返回。线程池饱和时同样以 {@link RejectedExecutionException}
+ * 异常完成，不会退化为在调用线程执行。{@link MultipartFile} 的临时文件在请求结束后可能被清理，
+ * 请求线程不等待结果时建议先转存或使用文件流上传。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class AsyncFileStorage {
+
+    private final IFileStorage fileStorage;
+
+    private final Executor executor;
+
+    public AsyncFileStorage(IFileStorage fileStorage, Executor executor) {
+        this.fileStorage = fileStorage;
+        this.executor = executor;
+    }
+
+    /**
+     * 指定文件桶名称，为空使用默认桶
+     *
+     * @param bucketName 桶名称
+     * @return {@link AsyncFileStorage}
+     */
+    public AsyncFileStorage bucket(String bucketName) {
+        return new AsyncFileStorage(fileStorage.bucket(bucketName), executor);
+    }
+
+    /**
+     * 同步文件存储
+     *
+     * @return {@link IFileStorage}
+     */
+    public IFileStorage getFileStorage() {
+        return fileStorage;
+    }
+
+    /**
+     * 上传
+     *
+     * @param file {@link MultipartFile}
+     * @return {@link OssResult}
+     */
+    public CompletableFuture<OssResult> upload(MultipartFile file) {
+        return this.supply(() -> fileStorage.upload(file));
+    }
+
+    /**
+     * 上传
+     *
+     * @param file {@link MultipartFile}
+     * @param dir  目录
+     * @return {@link OssResult}
+     */
+    public CompletableFuture<OssResult> upload(MultipartFile file, String dir) {
+        return this.supply(() -> fileStorage.upload(file, dir));
+    }
+
+    /**
+     * 上传
+     *
+     * @param file     {@link MultipartFile}
+     * @param dir      目录
+     * @param fileName 文件名
+     * @return {@link OssResult}
+     */
+    public CompletableFuture<OssResult> upload(MultipartFile file, String dir, String fileName) {
+        return this.supply(() -> fileStorage.upload(file, dir, fileName));
+    }
+
+    /**
+     * 上传，文件流在上传完成后由调用方关闭
+     *
+     * @param is       文件流 {@link InputStream}
+     * @param filename 文件名
+     * @return {@link OssResult}
+     */
+    public CompletableFuture<OssResult> upload(InputStream is, String filename) {
+        return this.supply(() -> fileStorage.upload(is, filename));
+    }
+
+    /**
+     * 上传，文件流在上传完成后由调用方关闭
+     *
+     * @param is         文件流 {@link InputStream}
+     * @param filename   文件名
+     * @param objectName 文件对象名
+     * @return {@link OssResult}
+     */
+    public CompletableFuture<OssResult> uploadFile(InputStream is, String filename, String objectName) {
+        return this.supply(() -> fileStorage.uploadFile(is, filename, objectName));
+    }
+
+    /**
+     * 上传，文件流在上传完成后由调用方关闭
+     *
+     * @param is         文件流 {@link InputStream}
+     * @param size       文件大小，未知传 -1
+     * @param filename   文件名
+     * @param objectName 文件对象名
+     * @return {@link OssResult}
+     */
+    public CompletableFuture<OssResult> uploadFile(InputStream is, long size, String filename, String objectName) {
+        return this.supply(() -> fileStorage.uploadFile(is, size, filename, objectName));
+    }
+
+    /**
+     * 批量上传
+     *
+     * @param entries 上传条目列表 {@link UploadEntry}
+     * @return 与条目顺序一致的上传结果列表 {@link BatchResult}
+     */
+    public CompletableFuture<List<BatchResult<OssResult>>> uploadBatch(List<UploadEntry> entries) {
+        return this.supply(() -> fileStorage.uploadBatch(entries));
+    }
+
+    /**
+     * 下载，返回的文件流由调用方关闭
+     *
+     * @param objectName 文件对象名
+     * @return {@link InputStream}
+     */
+    public CompletableFuture<InputStream> download(String objectName) {
+        return this.supply(() -> fileStorage.download(objectName));
+    }
+
+    /**
+     * 删除文件
+     *
+     * @param objectName 文件对象名
+     * @return 删除结果
+     */
+    public CompletableFuture<Boolean> delete(String objectName) {
+        return this.supply(() -> fileStorage.delete(objectName));
+    }
+
+    /**
+     * 删除文件
+     *
+     * @param objectNameList 文件对象名列表
+     * @return 全部删除成功返回 true
+     */
+    public CompletableFuture<Boolean> delete(List<String> objectNameList) {
+        return this.supply(() -> fileStorage.delete(objectNameList));
+    }
+
+    /**
+     * 批量删除文件
+     *
+     * @param objectNameList 文件对象名列表
+     * @return 与文件顺序一致的删除结果 {@link BatchResult}
+     */
+    public CompletableFuture<List<BatchResult<Void>>> deleteBatch(List<String> objectNameList) {
+        return this.supply(() -> fileStorage.deleteBatch(objectNameList));
+    }
+
+    /**
+     * 获取文件地址
+     *
+     * @param objectName 文件对象名
+     * @param duration   期间
+     * @param unit       时间单位 {@link TimeUnit}
+     * @return 文件地址
+     */
+    public CompletableFuture<String> getUrl(String objectName, int duration, TimeUnit unit) {
+        return this.supply(() -> fileStorage.getUrl(objectName, duration, unit));
+    }
+
+    /**
+     * 获取文件地址，默认 3 小时有效期
+     *
+     * @param objectName 文件对象名
+     * @return 文件地址
+     */
+    public CompletableFuture<String> getUrl(String objectName) {
+        return this.supply(() -> fileStorage.getUrl(objectName));
+    }
+
+    private <T> CompletableFuture<T> supply(Callable<T> callable) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return callable.call();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            // 线程池饱和时不在调用线程执行，也不阻塞等待，直接以异常完成
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.forboot.oss;
+
+import com.forboot.oss.io.SharedDownload;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 合并并发下载的文件存储
+ * <p>
+ * 同一桶内同一文件的并发下载共享一次远程下载，内容分发给每个读取方，避免热点文件冷启动时大量重复回源。
+ * 下载结束后到达的请求重新下载，不会读到更新前的内容。范围下载转发到被装饰的存储，不参与合并。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class CoalescingFileStorage extends DelegatingFileStorage {
+
+    /**
+     * 进行中的下载，所有桶视图共享
+     */
+    private final ConcurrentMap<Key, SharedDownload> inFlight = new ConcurrentHashMap<>();
+
+    private final long memoryThreshold;
+
+    public CoalescingFileStorage(IFileStorage delegate, long memoryThreshold) {
+        super(delegate);
+        this.memoryThreshold = memoryThreshold;
+    }
+
+    @Override
+    public InputStream download(String objectName) throws Exception {
+        Key key = new Key(this.getBucketName(), objectName);
+        while (true) {
+            SharedDownload shared = inFlight.get(key);
+            if (null != shared) {
+                InputStream is = shared.join();
+                if (null != is) {
+                    return is;
+                }
+                // 已结束，重新下载
+                inFlight.remove(key, shared);
+                continue;
+            }
+            SharedDownload[] holder = new SharedDownload[1];
+            holder[0] = new SharedDownload(() -> delegate.download(objectName), memoryThreshold,
+                    () -> inFlight.remove(key, holder[0]));
+            if (null == inFlight.putIfAbsent(key, holder[0])) {
+                return holder[0].start();
+            }
+        }
+    }
+
+    @Override
+    public void download(HttpServletResponse response, String objectName) throws Exception {
+        this.defaultDownload(response, objectName);
+    }
+
+    @Override
+    public void download(HttpServletRequest request, HttpServletResponse response, String objectName) throws Exception {
+        if (null != request.getHeader(HttpHeaders.RANGE)) {
+            delegate.download(request, response, objectName);
+        } else {
+            this.download(response, objectName);
+        }
+    }
+
+    @Override
+    public void download(HttpServletResponse response, List<String> objectNameList, boolean compress) throws Exception {
+        this.defaultDownload(response, objectNameList, compress);
+    }
+
+    /**
+     * 进行中的下载数
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private record Key(String bucketName, String objectName) {
+    }
+}
@@ -0,0 +1,236 @@
+package com.forboot.oss;
+
+import com.forboot.oss.model.request.UploadEntry;
+import com.forboot.oss.model.response.BatchResult;
+import com.forboot.oss.model.response.OssResult;
+import com.forboot.oss.progress.ProgressListener;
+import com.forboot.oss.zip.ZipStreamWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 委托文件存储，缓存、监控等装饰器的基类
+ * <p>
+ * 默认将全部操作委托给被装饰的存储，仅转发到其它接口方法的默认方法不委托，保证经过子类重写的方法。
+ * 与 {@link AbstractFileStorage} 相同，{@link #bucket(String)} 返回按桶缓存的不可变视图，
+ * 视图包装被装饰存储的对应桶视图，并与默认实例共享子类的状态。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public abstract class DelegatingFileStorage implements IFileStorage, Cloneable {
+
+    /**
+     * 被装饰的存储
+     */
+    protected IFileStorage delegate;
+
+    /**
+     * 默认桶实例
+     */
+    private final DelegatingFileStorage root = this;
+
+    /**
+     * 按桶名称缓存的存储视图，所有视图共享
+     */
+    private final ConcurrentMap<String, DelegatingFileStorage> bucketViews = new ConcurrentHashMap<>();
+
+    protected DelegatingFileStorage(IFileStorage delegate) {
+        this.delegate = delegate;
+    }
+
+    public IFileStorage getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public IFileStorage bucket() {
+        return this.root;
+    }
+
+    @Override
+    public IFileStorage bucket(String bucketName) {
+        if (!StringUtils.hasLength(bucketName)) {
+            return this.root;
+        }
+        DelegatingFileStorage view = this.bucketViews.get(bucketName);
+        if (null == view) {
+            view = this.bucketViews.computeIfAbsent(bucketName, this.root::newBucketView);
+        }
+        return view;
+    }
+
+    /**
+     * 创建指定桶的存储视图
+     *
+     * @param bucketName 桶名称
+     * @return 存储视图
+     */
+    protected DelegatingFileStorage newBucketView(String bucketName) {
+        try {
+            DelegatingFileStorage view = (DelegatingFileStorage) super.clone();
+            view.delegate = this.delegate.bucket(bucketName);
+            return view;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public IFileStorage progress(ProgressListener listener) {
+        try {
+            DelegatingFileStorage view = (DelegatingFileStorage) super.clone();
+            view.delegate = this.delegate.progress(listener);
+            return view;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public IFileStorage tenant(String tenant) {
+        try {
+            DelegatingFileStorage view = (DelegatingFileStorage) super.clone();
+            view.delegate = this.delegate.tenant(tenant);
+            return view;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String getBucketName() {
+        return delegate.getBucketName();
+    }
+
+    @Override
+    public IFileStorage allowMediaType(InputStream is, Function<String, Boolean> function) throws Exception {
+        delegate.allowMediaType(is, function);
+        return this;
+    }
+
+    @Override
+    public OssResult uploadFile(InputStream is, String filename, String objectName) throws Exception {
+        return delegate.uploadFile(is, filename, objectName);
+    }
+
+    @Override
+    public OssResult uploadFile(InputStream is, long size, String filename, String objectName) throws Exception {
+        return delegate.uploadFile(is, size, filename, objectName);
+    }
+
+    @Override
+    public OssResult uploadFile(MultipartFile file) throws Exception {
+        return delegate.uploadFile(file);
+    }
+
+    @Override
+    public OssResult uploadFile(MultipartFile file, String dir) throws Exception {
+        return delegate.uploadFile(file, dir);
+    }
+
+    @Override
+    public OssResult uploadFile(MultipartFile file, String dir, String fileName) throws Exception {
+        return delegate.uploadFile(file, dir, fileName);
+    }
+
+    @Override
+    public List<BatchResult<OssResult>> uploadBatch(List<UploadEntry> entries) throws Exception {
+        return delegate.uploadBatch(entries);
+    }
+
+    @Override
+    public InputStream download(String objectName) throws Exception {
+        return delegate.download(objectName);
+    }
+
+    @Override
+    public void download(HttpServletResponse response, String objectName) throws Exception {
+        delegate.download(response, objectName);
+    }
+
+    @Override
+    public void download(HttpServletRequest request, HttpServletResponse response, String objectName) throws Exception {
+        delegate.download(request, response, objectName);
+    }
+
+    @Override
+    public void download(HttpServletResponse response, List<String> objectNameList, boolean compress) throws Exception {
+        delegate.download(response, objectNameList, compress);
+    }
+
+    /**
+     * 使用接口默认实现下载，文件流经过当前存储的 {@link #download(String)}
+     *
+     * @param response   {@link HttpServletResponse}
+     * @param objectName 文件对象名
+     */
+    protected void defaultDownload(HttpServletResponse response, String objectName) throws Exception {
+        IFileStorage.super.download(response, objectName);
+    }
+
+    /**
+     * 打包下载，文件流经过当前存储的 {@link #download(String)}
+     * <p>
+     * 沿用被装饰存储平台的传输线程池与预先打开的文件数，找不到存储平台时使用接口默认实现逐个打开
+     *
+     * @param response       {@link HttpServletResponse}
+     * @param objectNameList 文件对象名列表
+     * @param compress       是否压缩
+     */
+    protected void defaultDownload(HttpServletResponse response, List<String> objectNameList, boolean compress)
+            throws Exception {
+        IFileStorage target = this.delegate;
+        while (target instanceof DelegatingFileStorage delegating) {
+            target = delegating.delegate;
+        }
+        if (null == objectNameList || objectNameList.size() < 2
+                || !(target instanceof AbstractFileStorage fileStorage)) {
+            IFileStorage.super.download(response, objectNameList, compress);
+            return;
+        }
+        new ZipStreamWriter(fileStorage.getTransferExecutor(), fileStorage.ossProperty.getZipPrefetch(), compress)
+                .write(response.getOutputStream(), objectNameList, this::download);
+    }
+
+    @Override
+    public boolean delete(List<String> objectNameList) throws Exception {
+        return delegate.delete(objectNameList);
+    }
+
+    @Override
+    public List<BatchResult<Void>> deleteBatch(List<String> objectNameList) throws Exception {
+        return delegate.deleteBatch(objectNameList);
+    }
+
+    @Override
+    public boolean delete(String objectName) throws Exception {
+        return delegate.delete(objectName);
+    }
+
+    @Override
+    public String getUrl(String objectName, int duration, TimeUnit unit) throws Exception {
+        return delegate.getUrl(objectName, duration, unit);
+    }
+
+    @Override
+    public List<String> getUrls(List<String> objectNameList, int duration, TimeUnit unit) throws Exception {
+        return delegate.getUrls(objectNameList, duration, unit);
+    }
+
+    @Override
+    public MultipartUploadResponse getUploadSignedUrl(String filename) {
+        return delegate.getUploadSignedUrl(filename);
+    }
+}
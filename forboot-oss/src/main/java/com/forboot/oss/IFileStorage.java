@@ -1,23 +1,25 @@
 package com.forboot.oss;
 
+import com.forboot.oss.model.request.UploadEntry;
+import com.forboot.oss.model.response.BatchResult;
 import com.forboot.oss.model.response.OssResult;
+import com.forboot.oss.progress.ProgressListener;
 import com.forboot.toolkit.FileUtils;
 import com.forboot.toolkit.IoUtils;
+import com.forboot.oss.zip.ZipStreamWriter;
 import com.forboot.toolkit.ObjectUtils;
-import com.forboot.toolkit.ZipUtils;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.MediaType;
 import org.springframework.http.MediaTypeFactory;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
-import java.util.zip.ZipEntry;
 
 /**
  * 文件存储接口
@@ -37,12 +39,43 @@ public interface IFileStorage {
 
     /**
      * 指定文件桶名称，为空使用默认桶
+     * <p>
+     * 返回绑定该桶的存储视图，视图不可变且按桶缓存，可以保存复用或跨线程使用
      *
      * @param bucketName 桶名称
      * @return {@link IFileStorage}
      */
     IFileStorage bucket(String bucketName);
 
+    /**
+     * 监听传输进度
+     * <p>
+     * 返回绑定当前桶与监听的存储视图，视图上的上传、下载回调监听，其它操作与当前存储相同，
+     * 视图不缓存，在视图上调用 {@link #bucket(String)} 返回的存储不再绑定监听
+     *
+     * @param listener 进度监听
+     * @return {@link IFileStorage}
+     */
+    IFileStorage progress(ProgressListener listener);
+
+    /**
+     * 指定租户，按租户限速
+     * <p>
+     * 返回绑定租户的存储视图，视图上的上传、下载同时受平台速率与租户速率限制，未配置租户速率时只按平台限速，
+     * 视图不缓存，在视图上调用 {@link #bucket(String)} 返回的存储不再绑定租户
+     *
+     * @param tenant 租户
+     * @return {@link IFileStorage}
+     */
+    IFileStorage tenant(String tenant);
+
+    /**
+     * 当前存储使用的桶名称
+     *
+     * @return 桶名称
+     */
+    String getBucketName();
+
     /**
      * 允许媒体类型判断，该方法使用配置 allowMediaType 媒体类型
      *
@@ -117,6 +150,17 @@ public interface IFileStorage {
      */
     OssResult uploadFile(InputStream is, String filename, String objectName) throws Exception;
 
+    /**
+     * 上传，文件大小未知或超过分片阈值时使用分片上传，内存占用与文件大小无关
+     *
+     * @param is         文件流 {@link InputStream}
+     * @param size       文件大小，未知传 -1
+     * @param filename   文件名
+     * @param objectName 文件对象名
+     * @return {@link OssResult}
+     */
+    OssResult uploadFile(InputStream is, long size, String filename, String objectName) throws Exception;
+
     /**
      * 上传
      * @param file 文件
@@ -144,6 +188,15 @@ public interface IFileStorage {
      */
     OssResult uploadFile(MultipartFile file, String dir, String fileName) throws Exception;
 
+    /**
+     * 批量上传，按配置的并发度上传，单个文件失败不影响其它文件
+     *
+     * @param entries 上传条目列表 {@link UploadEntry}
+     * @return 与条目顺序一致的上传结果列表 {@link BatchResult}
+     * @throws Exception 异常
+     */
+    List<BatchResult<OssResult>> uploadBatch(List<UploadEntry> entries) throws Exception;
+
     /**
      * 文件后缀，从文件名中获取后缀
      *
@@ -180,6 +233,17 @@ public interface IFileStorage {
         }
     }
 
+    /**
+     * 下载，支持 Range 请求的平台按请求区间返回
+     *
+     * @param request    {@link HttpServletRequest}
+     * @param response   {@link HttpServletResponse}
+     * @param objectName 文件对象名
+     */
+    default void download(HttpServletRequest request, HttpServletResponse response, String objectName) throws Exception {
+        this.download(response, objectName);
+    }
+
     /**
      * 下载、多个打包 zip 下载
      *
@@ -187,22 +251,25 @@ public interface IFileStorage {
      * @param objectNameList 文件对象名列表
      */
     default void download(HttpServletResponse response, List<String> objectNameList) throws Exception {
+        this.download(response, objectNameList, true);
+    }
+
+    /**
+     * 下载、多个打包 zip 下载，边读取边输出，不预先打开全部文件
+     *
+     * @param response       {@link HttpServletResponse}
+     * @param objectNameList 文件对象名列表
+     * @param compress       是否压缩，已压缩的媒体文件建议不压缩
+     */
+    default void download(HttpServletResponse response, List<String> objectNameList, boolean compress) throws Exception {
         if (ObjectUtils.isNotEmpty(objectNameList)) {
             if (objectNameList.size() == 1) {
                 // 单个文件下载
                 this.download(response, objectNameList.get(0));
             } else {
-                List<ZipUtils.FileEntry> fileEntries = new ArrayList<>();
-                for (String objectName : objectNameList) {
-                    InputStream is = this.download(objectName);
-                    if (null == is) {
-                        throw new FileNotFoundException(objectName);
-                    }
-                    fileEntries.add(ZipUtils.FileEntry.builder().inputStream(is)
-                            .zipEntry(new ZipEntry(objectName)).build());
-                }
                 // 批量下载
-                ZipUtils.zipFile(response.getOutputStream(), fileEntries);
+                new ZipStreamWriter(Runnable::run, 1, compress).write(response.getOutputStream(), objectNameList,
+                        this::download);
             }
         }
     }
@@ -211,10 +278,20 @@ public interface IFileStorage {
      * 删除文件
      *
      * @param objectNameList 文件对象名列表
+     * @return 全部删除成功返回 true
      * @throws Exception 异常
      */
     boolean delete(List<String> objectNameList) throws Exception;
 
+    /**
+     * 批量删除文件，按平台单次请求上限分批并发删除
+     *
+     * @param objectNameList 文件对象名列表
+     * @return 与文件顺序一致的删除结果 {@link BatchResult}
+     * @throws Exception 异常
+     */
+    List<BatchResult<Void>> deleteBatch(List<String> objectNameList) throws Exception;
+
     /**
      * 删除文件
      *
@@ -243,6 +320,32 @@ public interface IFileStorage {
         return this.getUrl(objectName, 3, TimeUnit.HOURS);
     }
 
+    /**
+     * 批量获取文件地址，同一批地址使用相同的过期时间
+     *
+     * @param objectNameList 文件对象名列表
+     * @param duration       期间
+     * @param unit           时间单位 {@link TimeUnit}
+     * @return 与文件顺序一致的文件地址列表
+     */
+    default List<String> getUrls(List<String> objectNameList, int duration, TimeUnit unit) throws Exception {
+        List<String> urls = new ArrayList<>(objectNameList.size());
+        for (String objectName : objectNameList) {
+            urls.add(this.getUrl(objectName, duration, unit));
+        }
+        return urls;
+    }
+
+    /**
+     * 批量获取文件地址，默认 3 小时有效期
+     *
+     * @param objectNameList 文件对象名列表
+     * @return 与文件顺序一致的文件地址列表
+     */
+    default List<String> getUrls(List<String> objectNameList) throws Exception {
+        return this.getUrls(objectNameList, 3, TimeUnit.HOURS);
+    }
+
     /**
      * 根据文件名获取 ContentType
      *
@@ -2,37 +2,159 @@ package com.forboot.oss;
 
 import org.apache.tika.Tika;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
 /**
  * oss 媒体类型辅助类
  * <p>
+ * 只读取文件开头 {@link #PREFIX_SIZE} 字节到线程复用的缓冲区，常见类型直接匹配魔数，其它类型再交给 Tika 识别，
+ * 识别结果与 Tika 一致。
+ * <p>
  * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
  *
  * @author ye21st
  * @since 2023/6/15
  */
 public class MediaType {
-    private static Tika TIKA;
+
+    /**
+     * 识别媒体类型读取的最大字节数，与 Tika 魔数检测的默认读取长度一致
+     */
+    public static final int PREFIX_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[PREFIX_SIZE]);
+
+    /**
+     * 常见类型魔数，按顺序匹配
+     */
+    private static final Magic[] MAGICS = {
+            Magic.bytes("image/png", 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A),
+            Magic.bytes("image/jpeg", 0xFF, 0xD8, 0xFF),
+            Magic.ascii("image/gif", 0, "GIF87a"),
+            Magic.ascii("image/gif", 0, "GIF89a"),
+            Magic.ascii("image/webp", 0, "RIFF", 8, "WEBP"),
+            Magic.ascii("application/pdf", 0, "%PDF-"),
+            Magic.bytes("image/tiff", 'I', 'I', 0x2A, 0x00),
+            Magic.bytes("image/tiff", 'M', 'M', 0x00, 0x2A),
+            Magic.bytes("application/gzip", 0x1F, 0x8B, 0x08),
+            Magic.ascii("audio/mpeg", 0, "ID3"),
+    };
+
+    /**
+     * 首次使用时初始化，类加载保证只创建一次
+     */
+    private static final class TikaHolder {
+        private static final Tika TIKA = new Tika();
+    }
 
     public static Tika getTika() {
-        return TIKA;
+        return TikaHolder.TIKA;
     }
 
     /**
-     * 提取媒体类型
+     * 提取媒体类型，支持 mark 的文件流读取后恢复到原位置，否则读取的开头部分被消费
      *
      * @param is 文件流 {@link InputStream}
      * @return 媒体类型
      * @throws IOException IO 异常
      */
     public static String detect(InputStream is) throws IOException {
-        if (null == TIKA) {
-            synchronized (MediaType.class) {
-                TIKA = new Tika();
+        byte[] buffer = BUFFER.get();
+        boolean markSupported = is.markSupported();
+        if (markSupported) {
+            is.mark(PREFIX_SIZE);
+        }
+        int length;
+        try {
+            length = is.readNBytes(buffer, 0, PREFIX_SIZE);
+        } finally {
+            if (markSupported) {
+                is.reset();
+            }
+        }
+        return detect(buffer, length);
+    }
+
+    /**
+     * 按文件开头部分提取媒体类型
+     *
+     * @param prefix 文件开头部分
+     * @param length 有效长度
+     * @return 媒体类型
+     * @throws IOException IO 异常
+     */
+    public static String detect(byte[] prefix, int length) throws IOException {
+        for (Magic magic : MAGICS) {
+            if (magic.matches(prefix, length)) {
+                return magic.mediaType;
+            }
+        }
+        return getTika().detect(new ByteArrayInputStream(prefix, 0, length));
+    }
+
+    /**
+     * 魔数，一个或多个偏移位置的字节序列
+     */
+    private static final class Magic {
+
+        private final String mediaType;
+
+        private final int[] offsets;
+
+        private final byte[][] patterns;
+
+        private Magic(String mediaType, int[] offsets, byte[][] patterns) {
+            this.mediaType = mediaType;
+            this.offsets = offsets;
+            this.patterns = patterns;
+        }
+
+        /**
+         * 文件开头的字节序列
+         *
+         * @param mediaType 媒体类型
+         * @param bytes     字节序列
+         */
+        private static Magic bytes(String mediaType, int... bytes) {
+            byte[] pattern = new byte[bytes.length];
+            for (int i = 0; i < bytes.length; i++) {
+                pattern[i] = (byte) bytes[i];
+            }
+            return new Magic(mediaType, new int[]{0}, new byte[][]{pattern});
+        }
+
+        /**
+         * 多个偏移位置的 ASCII 字符串
+         *
+         * @param mediaType 媒体类型
+         * @param segments  偏移位置与 ASCII 字符串交替排列
+         */
+        private static Magic ascii(String mediaType, Object... segments) {
+            int[] offsets = new int[segments.length / 2];
+            byte[][] patterns = new byte[segments.length / 2][];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = (Integer) segments[2 * i];
+                patterns[i] = ((String) segments[2 * i + 1]).getBytes(StandardCharsets.ISO_8859_1);
+            }
+            return new Magic(mediaType, offsets, patterns);
+        }
+
+        private boolean matches(byte[] prefix, int length) {
+            for (int i = 0; i < offsets.length; i++) {
+                byte[] pattern = patterns[i];
+                if (offsets[i] + pattern.length > length) {
+                    return false;
+                }
+                for (int j = 0; j < pattern.length; j++) {
+                    if (prefix[offsets[i] + j] != pattern[j]) {
+                        return false;
+                    }
+                }
             }
+            return true;
         }
-        return TIKA.detect(is);
     }
 }
@@ -15,6 +15,16 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class Oss {
 
+    /**
+     * 异步文件存储 bean 名称后缀
+     */
+    public static final String ASYNC_SUFFIX = "AsyncFileStorage";
+
+    /**
+     * 响应式文件存储 bean 名称后缀
+     */
+    public static final String REACTIVE_SUFFIX = "ReactiveFileStorage";
+
     /**
      * 根据平台选择文件存储实现实例
      *
@@ -33,4 +43,42 @@ public class Oss {
     public static IFileStorage fileStorage() {
         return SpringUtils.getBean(OssProperties.getDefaultPlatform(), IFileStorage.class);
     }
+
+    /**
+     * 根据平台选择异步文件存储实例
+     *
+     * @param platform 存储平台，对应 yml 配置 map key
+     * @return 异步文件存储实例 {@link AsyncFileStorage}
+     */
+    public static AsyncFileStorage asyncFileStorage(String platform) {
+        return SpringUtils.getBean(platform + ASYNC_SUFFIX, AsyncFileStorage.class);
+    }
+
+    /**
+     * 默认平台的异步文件存储实例
+     *
+     * @return 异步文件存储实例 {@link AsyncFileStorage}
+     */
+    public static AsyncFileStorage asyncFileStorage() {
+        return asyncFileStorage(OssProperties.getDefaultPlatform());
+    }
+
+    /**
+     * 根据平台选择响应式文件存储实例，需要引入 reactor-core
+     *
+     * @param platform 存储平台，对应 yml 配置 map key
+     * @return 响应式文件存储实例 {@link ReactiveFileStorage}
+     */
+    public static ReactiveFileStorage reactiveFileStorage(String platform) {
+        return SpringUtils.getBean(platform + REACTIVE_SUFFIX, ReactiveFileStorage.class);
+    }
+
+    /**
+     * 默认平台的响应式文件存储实例，需要引入 reactor-core
+     *
+     * @return 响应式文件存储实例 {@link ReactiveFileStorage}
+     */
+    public static ReactiveFileStorage reactiveFileStorage() {
+        return reactiveFileStorage(OssProperties.getDefaultPlatform());
+    }
 }
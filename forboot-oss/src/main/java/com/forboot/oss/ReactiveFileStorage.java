@@ -0,0 +1,192 @@
+package com.forboot.oss;
+
+import com.forboot.oss.io.DataBufferInputStream;
+import com.forboot.oss.model.response.BatchResult;
+import com.forboot.oss.model.response.OssResult;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 响应式文件存储
+ * <p>
+ * 以 {@link Flux}&lt;{@link DataBuffer}&gt; 上传下载，读写均受背压控制，内存占用与文件大小无关。
+ * 各平台 SDK 均为阻塞 I/O，阻塞调用统一调度到 {@link Schedulers#boundedElastic()}，不占用事件循环线程。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class ReactiveFileStorage {
+
+    /**
+     * 下载缓冲区大小
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 上传时预取的缓冲区数量
+     */
+    public static final int PREFETCH = 16;
+
+    private final IFileStorage fileStorage;
+
+    private final Scheduler scheduler;
+
+    public ReactiveFileStorage(IFileStorage fileStorage) {
+        this(fileStorage, Schedulers.boundedElastic());
+    }
+
+    public ReactiveFileStorage(IFileStorage fileStorage, Scheduler scheduler) {
+        this.fileStorage = fileStorage;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 指定文件桶名称，为空使用默认桶
+     *
+     * @param bucketName 桶名称
+     * @return {@link ReactiveFileStorage}
+     */
+    public ReactiveFileStorage bucket(String bucketName) {
+        return new ReactiveFileStorage(fileStorage.bucket(bucketName), scheduler);
+    }
+
+    /**
+     * 上传
+     *
+     * @param filePart {@link FilePart}
+     * @return {@link OssResult}
+     */
+    public Mono<OssResult> upload(FilePart filePart) {
+        return this.uploadFile(filePart.content(), filePart.headers().getContentLength(), filePart.filename(), null);
+    }
+
+    /**
+     * 上传
+     *
+     * @param content  文件内容
+     * @param filename 文件名
+     * @return {@link OssResult}
+     */
+    public Mono<OssResult> upload(Publisher<? extends DataBuffer> content, String filename) {
+        return this.uploadFile(content, -1, filename, null);
+    }
+
+    /**
+     * 上传，文件大小未知或超过分片阈值时使用分片上传
+     *
+     * @param content    文件内容
+     * @param size       文件大小，未知传 -1
+     * @param filename   文件名
+     * @param objectName 文件对象名
+     * @return {@link OssResult}
+     */
+    public Mono<OssResult> uploadFile(Publisher<? extends DataBuffer> content, long size, String filename,
+                                      String objectName) {
+        return this.blocking(() -> {
+            try (InputStream is = new DataBufferInputStream(content, PREFETCH)) {
+                return fileStorage.uploadFile(is, size, filename, objectName);
+            }
+        });
+    }
+
+    /**
+     * 下载
+     *
+     * @param objectName 文件对象名
+     * @return 文件内容
+     */
+    public Flux<DataBuffer> download(String objectName) {
+        return this.download(objectName, DefaultDataBufferFactory.sharedInstance);
+    }
+
+    /**
+     * 下载
+     *
+     * @param objectName        文件对象名
+     * @param dataBufferFactory 缓冲区工厂
+     * @return 文件内容
+     */
+    public Flux<DataBuffer> download(String objectName, DataBufferFactory dataBufferFactory) {
+        // 下游请求时才在调度线程上读取下一块
+        return DataBufferUtils.readInputStream(() -> fileStorage.download(objectName), dataBufferFactory,
+                BUFFER_SIZE).subscribeOn(scheduler);
+    }
+
+    /**
+     * 下载
+     *
+     * @param response   {@link ServerHttpResponse}
+     * @param objectName 文件对象名
+     * @return 写出完成信号
+     */
+    public Mono<Void> download(ServerHttpResponse response, String objectName) {
+        response.getHeaders().set(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(objectName, StandardCharsets.UTF_8).build().toString());
+        return response.writeWith(this.download(objectName, response.bufferFactory()));
+    }
+
+    /**
+     * 删除文件
+     *
+     * @param objectName 文件对象名
+     * @return 删除结果
+     */
+    public Mono<Boolean> delete(String objectName) {
+        return this.blocking(() -> fileStorage.delete(objectName));
+    }
+
+    /**
+     * 批量删除文件
+     *
+     * @param objectNameList 文件对象名列表
+     * @return 与文件顺序一致的删除结果 {@link BatchResult}
+     */
+    public Mono<List<BatchResult<Void>>> deleteBatch(List<String> objectNameList) {
+        return this.blocking(() -> fileStorage.deleteBatch(objectNameList));
+    }
+
+    /**
+     * 获取文件地址
+     *
+     * @param objectName 文件对象名
+     * @param duration   期间
+     * @param unit       时间单位 {@link TimeUnit}
+     * @return 文件地址
+     */
+    public Mono<String> getUrl(String objectName, int duration, TimeUnit unit) {
+        return this.blocking(() -> fileStorage.getUrl(objectName, duration, unit));
+    }
+
+    /**
+     * 获取文件地址，默认 3 小时有效期
+     *
+     * @param objectName 文件对象名
+     * @return 文件地址
+     */
+    public Mono<String> getUrl(String objectName) {
+        return this.blocking(() -> fileStorage.getUrl(objectName));
+    }
+
+    private <T> Mono<T> blocking(Callable<T> callable) {
+        return Mono.fromCallable(callable).subscribeOn(scheduler);
+    }
+}
@@ -1,19 +1,47 @@
 package com.forboot.oss.autoconfigure;
 
+import com.forboot.oss.AbstractFileStorage;
+import com.forboot.oss.AsyncFileStorage;
+import com.forboot.oss.CoalescingFileStorage;
 import com.forboot.oss.IFileStorage;
+import com.forboot.oss.Oss;
+import com.forboot.oss.ReactiveFileStorage;
+import com.forboot.oss.cache.BloomFilter;
+import com.forboot.oss.cache.DiskCache;
+import com.forboot.oss.cache.DiskCacheFileStorage;
+import com.forboot.oss.cache.MemoryCache;
+import com.forboot.oss.cache.MemoryCacheFileStorage;
+import com.forboot.oss.cache.SignedUrlCache;
+import com.forboot.oss.enums.StoragePlatform;
+import com.forboot.oss.executor.OssExecutors;
+import com.forboot.oss.metrics.InstrumentedFileStorage;
+import com.forboot.oss.multipart.CheckpointStore;
+import com.forboot.oss.multipart.LocalCheckpointStore;
+import com.forboot.oss.progress.ProgressListener;
 import com.forboot.oss.properties.OssProperties;
+import com.forboot.oss.property.DedupProperty;
+import com.forboot.oss.property.DiskCacheProperty;
+import com.forboot.oss.property.MemoryCacheProperty;
+import com.forboot.oss.property.MetricsProperty;
+import com.forboot.oss.property.MultipartProperty;
 import com.forboot.oss.property.OssProperty;
+import com.forboot.oss.property.UrlCacheProperty;
+import com.forboot.oss.retry.RetryPolicy;
+import com.forboot.oss.throttle.TransferThrottle;
 import com.forboot.toolkit.ObjectUtils;
 import com.forboot.toolkit.SpringUtils;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.BeanInitializationException;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
 
 import java.lang.reflect.Constructor;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * @ClassName: OssAutoConfiguration
@@ -26,6 +54,12 @@ import java.util.Map;
 @EnableConfigurationProperties(OssProperties.class)
 public class OssAutoConfiguration {
 
+    private static final boolean REACTOR_PRESENT = ClassUtils.isPresent("reactor.core.publisher.Flux",
+            OssAutoConfiguration.class.getClassLoader());
+
+    private static final boolean MICROMETER_PRESENT = ClassUtils.isPresent(
+            "io.micrometer.core.instrument.MeterRegistry", OssAutoConfiguration.class.getClassLoader());
+
     private final OssProperties ossProperties;
 
     @Bean
@@ -43,7 +77,71 @@ public class OssAutoConfiguration {
                 }
                 Class<?> clazz = v.getPlatform().getStrategyClass();
                 Constructor<?> constructor = clazz.getConstructor(OssProperty.class);
-                SpringUtils.registerSingletonBean(k, constructor.newInstance(v));
+                Object fileStorage = constructor.newInstance(v);
+                if (fileStorage instanceof AbstractFileStorage abstractFileStorage) {
+                    // 每个存储平台共享一个有界传输线程池
+                    ExecutorService transferExecutor = OssExecutors.newExecutor(k + "-transfer", v.getTransfer());
+                    SpringUtils.registerSingletonBean(k + "TransferExecutor", transferExecutor);
+                    abstractFileStorage.setTransferExecutor(transferExecutor);
+                    UrlCacheProperty urlCache = v.getUrlCache();
+                    if (urlCache.isEnabled()) {
+                        abstractFileStorage.setUrlCache(new SignedUrlCache(urlCache.getMaxSize(),
+                                urlCache.getMinRemainingRatio()));
+                    }
+                    DedupProperty dedup = v.getDedup();
+                    if (dedup.isEnabled()) {
+                        abstractFileStorage.setDedupFilter(new BloomFilter(dedup.getExpectedInsertions(),
+                                dedup.getFpp()));
+                    }
+                    if (v.getThrottle().isEnabled()) {
+                        abstractFileStorage.setThrottle(new TransferThrottle(v.getThrottle()));
+                    }
+                    if (v.getRetry().isEnabled() && v.getPlatform() != StoragePlatform.LOCAL) {
+                        // 本地存储的失败不是临时故障，不重试
+                        abstractFileStorage.setRetryPolicy(new RetryPolicy(v.getRetry()));
+                    }
+                    // 全局传输进度监听
+                    abstractFileStorage.setProgressListener(applicationContext.getBeanProvider(ProgressListener.class)
+                            .getIfAvailable());
+                    if (v.getMultipart().isResumable()) {
+                        // 优先使用自定义断点存储
+                        abstractFileStorage.setCheckpointStore(applicationContext.getBeanProvider(CheckpointStore.class)
+                                .getIfAvailable(() -> new LocalCheckpointStore(this.getCheckpointPath(v))));
+                    }
+                }
+                if (MICROMETER_PRESENT && v.getMetrics().isEnabled()) {
+                    // 监控指标，直接包装存储平台，记录实际回源的操作，缓存命中不计入
+                    fileStorage = MetricsRegistrar.instrument(k, v.getMetrics(), (IFileStorage) fileStorage,
+                            applicationContext);
+                }
+                if (v.getCoalescing().isEnabled()) {
+                    // 合并并发下载，位于缓存之后，合并缓存未命中的回源
+                    fileStorage = new CoalescingFileStorage((IFileStorage) fileStorage,
+                            v.getCoalescing().getMemoryThreshold().toBytes());
+                }
+                if (v.getDiskCache().isEnabled()) {
+                    // 下载磁盘缓存
+                    DiskCacheProperty diskCache = v.getDiskCache();
+                    fileStorage = new DiskCacheFileStorage((IFileStorage) fileStorage, new DiskCache(
+                            this.getDiskCachePath(k, v), diskCache.getMaxSize().toBytes(),
+                            diskCache.getMaxObjectSize().toBytes(), diskCache.getAdmitSize().toBytes()));
+                }
+                if (v.getMemoryCache().isEnabled()) {
+                    // 小文件内存缓存，位于磁盘缓存之前
+                    MemoryCacheProperty memoryCache = v.getMemoryCache();
+                    fileStorage = new MemoryCacheFileStorage((IFileStorage) fileStorage, new MemoryCache(
+                            memoryCache.getMaxSize().toBytes(), memoryCache.getMaxObjectSize().toBytes()));
+                }
+                SpringUtils.registerSingletonBean(k, fileStorage);
+                // 异步文件存储
+                ExecutorService asyncExecutor = OssExecutors.newRejectingExecutor(k + "-async", v.getAsync());
+                SpringUtils.registerSingletonBean(k + "AsyncExecutor", asyncExecutor);
+                SpringUtils.registerSingletonBean(k + Oss.ASYNC_SUFFIX,
+                        new AsyncFileStorage((IFileStorage) fileStorage, asyncExecutor));
+                if (REACTOR_PRESENT) {
+                    // 响应式文件存储，仅在引入 reactor 时注册
+                    ReactiveRegistrar.register(k, (IFileStorage) fileStorage);
+                }
             } catch (Exception e) {
                 throw new BeanInitializationException("register bean error", e);
             }
@@ -51,4 +149,45 @@ public class OssAutoConfiguration {
         return SpringUtils.getBean(OssProperties.DEFAULT_PLATFORM, IFileStorage.class);
     }
 
+    protected String getDiskCachePath(String platform, OssProperty ossProperty) {
+        String path = ossProperty.getDiskCache().getPath();
+        return null == path ? System.getProperty("java.io.tmpdir") + "/forboot-oss/cache/" + platform : path;
+    }
+
+    protected String getCheckpointPath(OssProperty ossProperty) {
+        MultipartProperty multipart = ossProperty.getMultipart();
+        if (null != multipart.getCheckpointPath()) {
+            return multipart.getCheckpointPath();
+        }
+        if (null != ossProperty.getLocalFilePath()) {
+            return ossProperty.getLocalFilePath() + "/.checkpoint";
+        }
+        return System.getProperty("java.io.tmpdir") + "/forboot-oss/checkpoint";
+    }
+
+    /**
+     * 隔离 reactor 相关类型，未引入 reactor 时不加载
+     */
+    private static class ReactiveRegistrar {
+
+        static void register(String platform, IFileStorage fileStorage) {
+            SpringUtils.registerSingletonBean(platform + Oss.REACTIVE_SUFFIX, new ReactiveFileStorage(fileStorage));
+        }
+    }
+
+    /**
+     * 隔离 micrometer 相关类型，未引入 micrometer 时不加载
+     */
+    private static class MetricsRegistrar {
+
+        static IFileStorage instrument(String platform, MetricsProperty metrics, IFileStorage fileStorage,
+                                       ApplicationContext applicationContext) {
+            MeterRegistry registry = applicationContext.getBeanProvider(MeterRegistry.class).getIfAvailable();
+            if (null == registry) {
+                return fileStorage;
+            }
+            return new InstrumentedFileStorage(fileStorage, registry, platform, metrics.isPercentileHistogram());
+        }
+    }
+
 }
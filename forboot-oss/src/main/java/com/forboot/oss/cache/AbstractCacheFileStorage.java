@@ -0,0 +1,140 @@
+package com.forboot.oss.cache;
+
+import com.forboot.oss.DelegatingFileStorage;
+import com.forboot.oss.IFileStorage;
+import com.forboot.oss.model.request.UploadEntry;
+import com.forboot.oss.model.response.BatchResult;
+import com.forboot.oss.model.response.OssResult;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * 下载缓存文件存储的基类，下载优先读取缓存，上传、删除时移除对应缓存
+ * <p>
+ * 范围下载转发到被装饰的存储，不经过缓存；打包下载经过缓存读取每个文件。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public abstract class AbstractCacheFileStorage extends DelegatingFileStorage {
+
+    protected AbstractCacheFileStorage(IFileStorage delegate) {
+        super(delegate);
+    }
+
+    /**
+     * 读取缓存，未命中时下载
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @param loader     下载文件流
+     * @return {@link InputStream}
+     * @throws Exception 下载异常
+     */
+    protected abstract InputStream get(String bucketName, String objectName, Callable<InputStream> loader)
+            throws Exception;
+
+    /**
+     * 移除缓存
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     */
+    protected abstract void invalidate(String bucketName, String objectName);
+
+    @Override
+    public InputStream download(String objectName) throws Exception {
+        return this.get(this.getBucketName(), objectName, () -> delegate.download(objectName));
+    }
+
+    @Override
+    public void download(HttpServletResponse response, String objectName) throws Exception {
+        this.defaultDownload(response, objectName);
+    }
+
+    @Override
+    public void download(HttpServletRequest request, HttpServletResponse response, String objectName) throws Exception {
+        if (null != request.getHeader(HttpHeaders.RANGE)) {
+            delegate.download(request, response, objectName);
+        } else {
+            this.download(response, objectName);
+        }
+    }
+
+    @Override
+    public void download(HttpServletResponse response, List<String> objectNameList, boolean compress) throws Exception {
+        this.defaultDownload(response, objectNameList, compress);
+    }
+
+    @Override
+    public OssResult uploadFile(InputStream is, String filename, String objectName) throws Exception {
+        return this.invalidate(delegate.uploadFile(is, filename, objectName));
+    }
+
+    @Override
+    public OssResult uploadFile(InputStream is, long size, String filename, String objectName) throws Exception {
+        return this.invalidate(delegate.uploadFile(is, size, filename, objectName));
+    }
+
+    @Override
+    public OssResult uploadFile(MultipartFile file) throws Exception {
+        return this.invalidate(delegate.uploadFile(file));
+    }
+
+    @Override
+    public OssResult uploadFile(MultipartFile file, String dir) throws Exception {
+        return this.invalidate(delegate.uploadFile(file, dir));
+    }
+
+    @Override
+    public OssResult uploadFile(MultipartFile file, String dir, String fileName) throws Exception {
+        return this.invalidate(delegate.uploadFile(file, dir, fileName));
+    }
+
+    @Override
+    public List<BatchResult<OssResult>> uploadBatch(List<UploadEntry> entries) throws Exception {
+        List<BatchResult<OssResult>> results = delegate.uploadBatch(entries);
+        results.stream().filter(BatchResult::isSuccess).forEach(e -> this.invalidate(e.getResult()));
+        return results;
+    }
+
+    @Override
+    public boolean delete(String objectName) throws Exception {
+        this.invalidate(this.getBucketName(), objectName);
+        return delegate.delete(objectName);
+    }
+
+    @Override
+    public boolean delete(List<String> objectNameList) throws Exception {
+        this.invalidate(objectNameList);
+        return delegate.delete(objectNameList);
+    }
+
+    @Override
+    public List<BatchResult<Void>> deleteBatch(List<String> objectNameList) throws Exception {
+        this.invalidate(objectNameList);
+        return delegate.deleteBatch(objectNameList);
+    }
+
+    private OssResult invalidate(OssResult ossResult) {
+        if (null != ossResult) {
+            this.invalidate(this.getBucketName(), ossResult.getObjectName());
+        }
+        return ossResult;
+    }
+
+    private void invalidate(List<String> objectNameList) {
+        if (null != objectNameList) {
+            String bucketName = this.getBucketName();
+            objectNameList.forEach(e -> this.invalidate(bucketName, e));
+        }
+    }
+}
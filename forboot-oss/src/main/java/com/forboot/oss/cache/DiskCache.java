@@ -0,0 +1,490 @@
+package com.forboot.oss.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 本地磁盘文件缓存
+ * <p>
+ * 缓存文件按桶名称与对象名的 SHA-256 命名，位于 {path}/{前两位}/{哈希}，不受对象名中的目录层级影响，
+ * 总大小超出上限时淘汰最久未使用的文件。不超过 admitSize 的文件首次下载即缓存，更大的文件再次下载时才缓存，
+ * 超过 maxObjectSize 的文件不缓存。
+ * <p>
+ * 未命中时调用方边读取远程文件流边写入临时文件，读到末尾后才加入缓存，调用方不必等待整个文件落盘。
+ * 同一文件同时只有一个读取方写入缓存，其它并发未命中的读取方直接回源（开启并发下载合并时由下层合并）。
+ * 写入期间文件被移除缓存时，本次写入的内容作废，避免把更新前的内容重新加入缓存。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Slf4j
+public class DiskCache {
+
+    private static final String TEMP_SUFFIX = ".cache-tmp";
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private static final Pattern PREFIX = Pattern.compile("[0-9a-f]{2}");
+
+    /**
+     * 记录最近未命中文件的数量上限
+     */
+    private static final int DOORKEEPER_SIZE = 10000;
+
+    private final Path path;
+
+    private final long maxSize;
+
+    private final long maxObjectSize;
+
+    private final long admitSize;
+
+    /**
+     * 缓存文件及大小，按访问顺序排列
+     */
+    private final LinkedHashMap<Path, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 最近未命中但未缓存的文件
+     */
+    private final Set<Path> doorkeeper = Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Boolean> eldest) {
+            return size() > DOORKEEPER_SIZE;
+        }
+    });
+
+    /**
+     * 正在写入缓存的文件
+     */
+    private final ConcurrentMap<Path, Fill> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private long size;
+
+    public DiskCache(String path, long maxSize, long maxObjectSize, long admitSize) throws IOException {
+        this.path = Path.of(path).toAbsolutePath().normalize();
+        this.maxSize = maxSize;
+        this.maxObjectSize = Math.min(maxObjectSize, maxSize);
+        this.admitSize = admitSize;
+        Files.createDirectories(this.path);
+        this.load();
+    }
+
+    /**
+     * 重启后恢复已有的缓存文件，按修改时间作为访问顺序
+     */
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.walk(this.path, 2)) {
+            // 只处理本类创建的文件，缓存目录中的其它文件不索引也不删除
+            stream.filter(e -> null != e.getParent() && this.path.equals(e.getParent().getParent())
+                            && PREFIX.matcher(e.getParent().getFileName().toString()).matches())
+                    .filter(Files::isRegularFile).forEach(files::add);
+        }
+        List<Path> cached = new ArrayList<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (this.isCacheFile(file)) {
+                cached.add(file);
+            } else if (name.endsWith(TEMP_SUFFIX) && HASH.matcher(name.substring(0, Math.min(64, name.length())))
+                    .matches()) {
+                // 中断时残留的临时文件
+                Files.deleteIfExists(file);
+            }
+        }
+        cached.sort(Comparator.comparingLong(this::lastModified));
+        for (Path file : cached) {
+            this.add(file, Files.size(file));
+        }
+    }
+
+    private long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 读取文件，未命中时下载并按准入策略缓存
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @param loader     下载文件流
+     * @return {@link InputStream}
+     * @throws Exception 下载异常
+     */
+    public InputStream get(String bucketName, String objectName, Callable<InputStream> loader) throws Exception {
+        Path file = this.resolve(bucketName, objectName);
+        if (null == file) {
+            return loader.call();
+        }
+        InputStream is = this.open(file);
+        if (null != is) {
+            hits.increment();
+            return is;
+        }
+        misses.increment();
+        Fill fill = new Fill(file);
+        if (null != inFlight.putIfAbsent(file, fill)) {
+            // 其它读取方正在写入缓存，直接回源
+            return loader.call();
+        }
+        InputStream remote;
+        try {
+            remote = loader.call();
+        } catch (Exception e) {
+            inFlight.remove(file, fill);
+            throw e;
+        }
+        if (null == remote) {
+            inFlight.remove(file, fill);
+            return null;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            fill.temp = file.resolveSibling(file.getFileName() + "." + UUID.randomUUID() + TEMP_SUFFIX);
+            fill.out = Files.newOutputStream(fill.temp);
+        } catch (IOException e) {
+            log.warn("create cache file error: {}", file, e);
+            fill.abandon();
+            return remote;
+        }
+        return new FillingInputStream(remote, fill);
+    }
+
+    /**
+     * 准入策略，小文件直接缓存，大文件在最近未命中过时才缓存
+     */
+    private boolean admit(Path file, long fileSize) {
+        if (fileSize <= admitSize) {
+            return true;
+        }
+        synchronized (doorkeeper) {
+            if (doorkeeper.remove(file)) {
+                return true;
+            }
+            doorkeeper.add(file);
+            return false;
+        }
+    }
+
+    private InputStream open(Path file) {
+        synchronized (index) {
+            if (null == index.get(file)) {
+                return null;
+            }
+        }
+        try {
+            return Files.newInputStream(file);
+        } catch (NoSuchFileException e) {
+            this.remove(file);
+            return null;
+        } catch (IOException e) {
+            log.warn("open cache file error: {}", file, e);
+            return null;
+        }
+    }
+
+    private void add(Path file, long fileSize) {
+        List<Path> evicted = new ArrayList<>();
+        synchronized (index) {
+            Long old = index.put(file, fileSize);
+            size += fileSize - (null == old ? 0 : old);
+            Iterator<Map.Entry<Path, Long>> iterator = index.entrySet().iterator();
+            while (size > maxSize && iterator.hasNext()) {
+                Map.Entry<Path, Long> eldest = iterator.next();
+                iterator.remove();
+                size -= eldest.getValue();
+                evicted.add(eldest.getKey());
+            }
+        }
+        evictions.add(evicted.size());
+        evicted.forEach(this::delete);
+    }
+
+    private void remove(Path file) {
+        synchronized (index) {
+            Long old = index.remove(file);
+            if (null != old) {
+                size -= old;
+            }
+        }
+    }
+
+    private void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("delete cache file error: {}", file, e);
+        }
+    }
+
+    /**
+     * 移除缓存文件，文件更新或删除时调用，正在写入的缓存同时作废
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     */
+    public void invalidate(String bucketName, String objectName) {
+        Path file = this.resolve(bucketName, objectName);
+        if (null != file) {
+            synchronized (index) {
+                Long old = index.remove(file);
+                if (null != old) {
+                    size -= old;
+                }
+                Fill fill = inFlight.get(file);
+                if (null != fill) {
+                    fill.stale = true;
+                }
+            }
+            this.delete(file);
+        }
+    }
+
+    /**
+     * 缓存文件路径，按桶名称与对象名的哈希命名，桶名称或对象名为空时返回 null
+     */
+    private Path resolve(String bucketName, String objectName) {
+        if (null == bucketName || null == objectName) {
+            return null;
+        }
+        // 与存储平台一致，忽略对象名开头的 /
+        String name = objectName.startsWith("/") ? objectName.substring(1) : objectName;
+        String hash = HexFormat.of().formatHex(sha256().digest((bucketName + "\n" + name).getBytes(StandardCharsets.UTF_8)));
+        return this.path.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private boolean isCacheFile(Path file) {
+        String name = file.getFileName().toString();
+        Path parent = file.getParent();
+        return HASH.matcher(name).matches() && this.path.equals(parent.getParent())
+                && name.startsWith(parent.getFileName().toString());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 命中次数
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * 未命中次数
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 淘汰次数
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 缓存文件总大小
+     */
+    public long getSize() {
+        synchronized (index) {
+            return size;
+        }
+    }
+
+    /**
+     * 一次缓存写入，stale 在文件被移除缓存时置位，此时写入的内容不再加入缓存
+     */
+    private final class Fill {
+
+        private final Path file;
+
+        private Path temp;
+
+        private OutputStream out;
+
+        private long copied;
+
+        private boolean admitted;
+
+        private volatile boolean stale;
+
+        private Fill(Path file) {
+            this.file = file;
+        }
+
+        private void write(byte[] b, int off, int n) {
+            try {
+                out.write(b, off, n);
+            } catch (IOException e) {
+                log.warn("write cache file error: {}", file, e);
+                this.abandon();
+                return;
+            }
+            copied += n;
+            if (copied > maxObjectSize) {
+                this.abandon();
+            } else if (!admitted && copied > admitSize) {
+                // 超过直接缓存的大小，按准入策略决定是否继续写入
+                if (admit(file, copied)) {
+                    admitted = true;
+                } else {
+                    this.abandon();
+                }
+            }
+        }
+
+        /**
+         * 远程文件流读到末尾，加入缓存
+         */
+        private void commit() {
+            try {
+                out.close();
+                out = null;
+                synchronized (index) {
+                    if (stale) {
+                        Files.deleteIfExists(temp);
+                        return;
+                    }
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                add(file, copied);
+            } catch (IOException e) {
+                log.warn("commit cache file error: {}", file, e);
+                delete(temp);
+            } finally {
+                inFlight.remove(file, this);
+            }
+        }
+
+        /**
+         * 放弃写入缓存，调用方仍可继续读取远程文件流
+         */
+        private void abandon() {
+            if (null != out) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+                out = null;
+            }
+            if (null != temp) {
+                delete(temp);
+            }
+            inFlight.remove(file, this);
+        }
+    }
+
+    /**
+     * 边读取远程文件流边写入缓存的输入流
+     */
+    private static final class FillingInputStream extends InputStream {
+
+        private final InputStream remote;
+
+        private final Fill fill;
+
+        private boolean filling = true;
+
+        private FillingInputStream(InputStream remote, Fill fill) {
+            this.remote = remote;
+            this.fill = fill;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = this.read(b, 0, 1);
+            return n == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (0 == len) {
+                return 0;
+            }
+            int n;
+            try {
+                n = remote.read(b, off, len);
+            } catch (IOException | RuntimeException e) {
+                this.stop();
+                throw e;
+            }
+            if (filling) {
+                if (n > 0) {
+                    fill.write(b, off, n);
+                    filling = null != fill.out;
+                } else if (n == -1) {
+                    filling = false;
+                    fill.commit();
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return remote.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // 未读到末尾就关闭时内容不完整，不加入缓存
+            this.stop();
+            remote.close();
+        }
+
+        private void stop() {
+            if (filling) {
+                filling = false;
+                fill.abandon();
+            }
+        }
+    }
+}
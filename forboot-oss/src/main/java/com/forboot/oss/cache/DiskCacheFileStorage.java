@@ -0,0 +1,38 @@
+package com.forboot.oss.cache;
+
+import com.forboot.oss.IFileStorage;
+
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+
+/**
+ * 本地磁盘缓存文件存储，下载优先读取 {@link DiskCache}，上传、删除时移除对应缓存
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class DiskCacheFileStorage extends AbstractCacheFileStorage {
+
+    private final DiskCache diskCache;
+
+    public DiskCacheFileStorage(IFileStorage delegate, DiskCache diskCache) {
+        super(delegate);
+        this.diskCache = diskCache;
+    }
+
+    public DiskCache getDiskCache() {
+        return diskCache;
+    }
+
+    @Override
+    protected InputStream get(String bucketName, String objectName, Callable<InputStream> loader) throws Exception {
+        return diskCache.get(bucketName, objectName, loader);
+    }
+
+    @Override
+    protected void invalidate(String bucketName, String objectName) {
+        diskCache.invalidate(bucketName, objectName);
+    }
+}
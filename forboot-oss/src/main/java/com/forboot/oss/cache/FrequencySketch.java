@@ -0,0 +1,94 @@
+package com.forboot.oss.cache;
+
+/**
+ * 访问频率估计，TinyLFU 的 4 位 Count-Min Sketch
+ * <p>
+ * 每个 long 保存 16 个 4 位计数器，计数上限 15，累计记录次数达到 10 倍容量时所有计数减半，使频率随时间衰减。
+ * 非线程安全，由调用方加锁。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+
+    private final int sampleSize;
+
+    private int additions;
+
+    FrequencySketch(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        this.table = new long[Math.min(size, 1 << 24)];
+        this.sampleSize = 10 * Math.max(capacity, 16);
+    }
+
+    /**
+     * 估计访问频率
+     */
+    int frequency(Object key) {
+        int hash = this.spread(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            frequency = Math.min(frequency, this.counter(hash, i));
+        }
+        return frequency;
+    }
+
+    /**
+     * 记录一次访问
+     */
+    void increment(Object key) {
+        int hash = this.spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int index = this.indexOf(hash, i);
+            int offset = this.offsetOf(hash, i);
+            if (((table[index] >>> offset) & 0xfL) != 0xfL) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            this.reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int counter(int hash, int i) {
+        return (int) ((table[this.indexOf(hash, i)] >>> this.offsetOf(hash, i)) & 0xfL);
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & (table.length - 1);
+    }
+
+    /**
+     * 计数器在 long 中的位移，每个哈希函数使用不同的 4 个计数器之一
+     */
+    private int offsetOf(int hash, int i) {
+        return (((hash >>> (i << 3)) & 3) + (i << 2)) << 2;
+    }
+
+    private int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,578 @@
+package com.forboot.oss.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 小文件堆外内存缓存
+ * <p>
+ * 文件内容保存在 1MB 的直接内存 slab 中，slab 按 2 的幂切分为 1KB ~ 1MB 的固定块，每个文件占用不小于自身大小的最小块，
+ * 堆上只保留索引，避免大量缓存字节数组带来的 GC 压力。slab 在首次需要时分配，总量不超过内存上限；slab 中的块全部空闲后
+ * 归还共享池，可重新切分给其它大小，某个大小长期占用过多 slab 时，也会回收其最冷的 slab 给新文件所在的大小使用。
+ * 没有空闲块时按 TinyLFU 准入：新文件的访问频率高于同大小块中最久未使用的文件时才替换，防止一次性访问冲掉热点文件。
+ * <p>
+ * 命中时直接返回块的只读视图，不复制内容。块按引用计数回收，读取流关闭或读到末尾前即使文件被淘汰，块也不会分配给其它文件，
+ * 调用方应及时关闭下载流。索引为并发哈希表，各大小的空闲块与访问顺序分别加锁，不同大小的读写互不阻塞。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class MemoryCache {
+
+    private static final int SLAB_SIZE = 1 << 20;
+
+    private static final int MIN_CHUNK_SIZE = 1 << 10;
+
+    private final int maxObjectSize;
+
+    private final int maxSlabs;
+
+    private final SizeClass[] sizeClasses;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 正在下载的文件，下载期间失效的文件不写入缓存
+     */
+    private final Map<Key, Load> loading = new ConcurrentHashMap<>();
+
+    /**
+     * 全部块空闲、尚未归属任何大小的 slab
+     */
+    private final ArrayDeque<Slab> emptySlabs = new ArrayDeque<>();
+
+    private final FrequencySketch sketch;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder rejections = new LongAdder();
+
+    private int slabs;
+
+    public MemoryCache(long maxSize, long maxObjectSize) {
+        this.maxSlabs = (int) Math.max(1, Math.min(maxSize / SLAB_SIZE, Integer.MAX_VALUE));
+        this.maxObjectSize = (int) Math.max(0, Math.min(maxObjectSize, SLAB_SIZE));
+        int count = Integer.numberOfTrailingZeros(SLAB_SIZE) - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE) + 1;
+        this.sizeClasses = new SizeClass[count];
+        for (int i = 0; i < count; i++) {
+            this.sizeClasses[i] = new SizeClass(MIN_CHUNK_SIZE << i);
+        }
+        // 按平均 4KB 估计缓存文件数
+        this.sketch = new FrequencySketch((int) Math.min((long) this.maxSlabs * SLAB_SIZE / 4096, 1 << 22));
+    }
+
+    /**
+     * 读取文件，未命中时下载并按准入策略缓存
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @param loader     下载文件流
+     * @return {@link InputStream}
+     * @throws Exception 下载异常
+     */
+    public InputStream get(String bucketName, String objectName, Callable<InputStream> loader) throws Exception {
+        if (null == bucketName || null == objectName) {
+            return loader.call();
+        }
+        Key key = new Key(bucketName, objectName);
+        synchronized (sketch) {
+            sketch.increment(key);
+        }
+        InputStream cached = this.read(key);
+        if (null != cached) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        Load load = new Load();
+        if (null != loading.putIfAbsent(key, load)) {
+            // 同一文件正在由其它线程下载并写入缓存，直接下载
+            return loader.call();
+        }
+        try {
+            InputStream remote = loader.call();
+            if (null == remote) {
+                return null;
+            }
+            byte[] prefix;
+            try {
+                prefix = remote.readNBytes(maxObjectSize + 1);
+            } catch (Exception e) {
+                remote.close();
+                throw e;
+            }
+            if (prefix.length > maxObjectSize) {
+                // 超过缓存上限，已读取部分与剩余远程流拼接返回
+                return new SequenceInputStream(new ByteArrayInputStream(prefix), remote);
+            }
+            remote.close();
+            this.put(key, prefix, load);
+            return new ByteArrayInputStream(prefix);
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    /**
+     * 持有块的引用并返回只读视图，引用在流关闭或读到末尾时释放
+     */
+    private InputStream read(Key key) {
+        Entry entry = entries.get(key);
+        if (null == entry || !entry.retain()) {
+            return null;
+        }
+        entry.sizeClass.touch(entry);
+        return new ChunkInputStream(entry);
+    }
+
+    private void put(Key key, byte[] bytes, Load load) {
+        if (load.stale) {
+            // 下载期间文件已更新或删除，内容可能是旧版本
+            return;
+        }
+        SizeClass sizeClass = this.sizeClassOf(bytes.length);
+        int frequency = this.frequency(key);
+        // 依次尝试空闲块、从其它大小回收 slab、淘汰本大小最久未使用的文件
+        Entry entry = sizeClass.store(key, bytes, -1);
+        if (null == entry && this.rebalance(sizeClass, frequency)) {
+            entry = sizeClass.store(key, bytes, -1);
+        }
+        if (null == entry) {
+            entry = sizeClass.store(key, bytes, frequency);
+        }
+        if (null == entry) {
+            rejections.increment();
+            return;
+        }
+        Entry old = entries.put(key, entry);
+        if (null != old) {
+            this.evict(old);
+        }
+        if (entry.evicted) {
+            // 写入索引前已被其它线程淘汰，移除失效的索引
+            entries.remove(key, entry);
+        } else if (load.stale && entries.remove(key, entry)) {
+            // 写入索引时并发失效，失效方先标记再移除索引，此处移除其未能看到的缓存
+            this.evict(entry);
+        }
+    }
+
+    /**
+     * 从持有 slab 最多的其它大小回收一个 slab，仅当该 slab 所在大小最久未使用的文件比新文件和本大小的淘汰候选都冷时进行
+     */
+    private boolean rebalance(SizeClass sizeClass, int frequency) {
+        SizeClass donor = null;
+        for (SizeClass candidate : sizeClasses) {
+            if (candidate != sizeClass && candidate.slabCount > (null == donor ? 0 : donor.slabCount)) {
+                donor = candidate;
+            }
+        }
+        if (null == donor) {
+            return false;
+        }
+        return donor.reclaim(Math.min(frequency, sizeClass.eldestFrequency()));
+    }
+
+    private void evict(Entry entry) {
+        entry.sizeClass.unlink(entry);
+        entry.release();
+    }
+
+    private int frequency(Key key) {
+        synchronized (sketch) {
+            return sketch.frequency(key);
+        }
+    }
+
+    /**
+     * 取出空 slab，没有时分配新的 slab，达到内存上限时返回 null
+     */
+    private Slab obtainSlab() {
+        synchronized (emptySlabs) {
+            Slab slab = emptySlabs.poll();
+            if (null == slab && slabs < maxSlabs) {
+                slabs++;
+                slab = new Slab(ByteBuffer.allocateDirect(SLAB_SIZE));
+            }
+            return slab;
+        }
+    }
+
+    private void returnSlab(Slab slab) {
+        synchronized (emptySlabs) {
+            emptySlabs.push(slab);
+        }
+    }
+
+    private SizeClass sizeClassOf(int length) {
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, length <= 1 ? 1 : Integer.highestOneBit(length - 1) << 1);
+        return sizeClasses[Integer.numberOfTrailingZeros(chunkSize) - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE)];
+    }
+
+    /**
+     * 移除缓存，文件更新或删除时调用
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     */
+    public void invalidate(String bucketName, String objectName) {
+        if (null == bucketName || null == objectName) {
+            return;
+        }
+        Key key = new Key(bucketName, objectName);
+        Load load = loading.get(key);
+        if (null != load) {
+            load.stale = true;
+        }
+        Entry entry = entries.remove(key);
+        if (null != entry) {
+            this.evict(entry);
+        }
+    }
+
+    /**
+     * 命中次数
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * 未命中次数
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 淘汰次数
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 准入策略拒绝缓存的次数
+     */
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * 缓存文件数
+     */
+    public int getCount() {
+        return entries.size();
+    }
+
+    /**
+     * 已分配的堆外内存大小
+     */
+    public long getAllocatedSize() {
+        synchronized (emptySlabs) {
+            return (long) slabs * SLAB_SIZE;
+        }
+    }
+
+    private record Key(String bucketName, String objectName) {
+    }
+
+    /**
+     * 下载中的文件，失效时标记，下载完成后不再写入缓存
+     */
+    private static final class Load {
+
+        private volatile boolean stale;
+    }
+
+    /**
+     * 缓存文件，缓存本身持有一个引用，每个读取流各持有一个引用，引用归零时块归还所在 slab
+     */
+    private static final class Entry {
+
+        private final Key key;
+
+        private final SizeClass sizeClass;
+
+        private final Slab slab;
+
+        private final ByteBuffer chunk;
+
+        private final int length;
+
+        private final AtomicInteger refs = new AtomicInteger(1);
+
+        private volatile boolean evicted;
+
+        private Entry(Key key, SizeClass sizeClass, Slab slab, ByteBuffer chunk, int length) {
+            this.key = key;
+            this.sizeClass = sizeClass;
+            this.slab = slab;
+            this.chunk = chunk;
+            this.length = length;
+        }
+
+        private boolean retain() {
+            for (; ; ) {
+                int count = refs.get();
+                if (count <= 0) {
+                    return false;
+                }
+                if (refs.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release() {
+            if (refs.decrementAndGet() == 0) {
+                sizeClass.recycle(this);
+            }
+        }
+    }
+
+    /**
+     * 1MB 直接内存，切分为同一大小的块
+     */
+    private static final class Slab {
+
+        private final ByteBuffer buffer;
+
+        private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+
+        private int used;
+
+        private Slab(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private void carve(int chunkSize) {
+            free.clear();
+            for (int offset = 0; offset < SLAB_SIZE; offset += chunkSize) {
+                free.add(buffer.slice(offset, chunkSize));
+            }
+        }
+    }
+
+    /**
+     * 同一大小的块，有空闲块的 slab 及已用块的访问顺序，由自身加锁
+     */
+    private final class SizeClass {
+
+        private final int chunkSize;
+
+        private final ArrayDeque<Slab> partial = new ArrayDeque<>();
+
+        private final LinkedHashMap<Key, Entry> lru = new LinkedHashMap<>(16, 0.75f, true);
+
+        private volatile int slabCount;
+
+        private SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * 写入空闲块，frequency 不小于 0 时允许按准入策略淘汰最久未使用的文件，没有可用块时返回 null
+         */
+        private synchronized Entry store(Key key, byte[] bytes, int frequency) {
+            Slab slab = this.available();
+            if (null == slab && frequency >= 0) {
+                Iterator<Entry> iterator = lru.values().iterator();
+                if (iterator.hasNext()) {
+                    Entry victim = iterator.next();
+                    if (frequency > MemoryCache.this.frequency(victim.key)) {
+                        iterator.remove();
+                        this.discard(victim);
+                        slab = this.available();
+                    }
+                }
+            }
+            if (null == slab) {
+                return null;
+            }
+            ByteBuffer chunk = slab.free.pop();
+            slab.used++;
+            if (slab.free.isEmpty()) {
+                partial.remove(slab);
+            }
+            chunk.put(0, bytes);
+            Entry entry = new Entry(key, this, slab, chunk, bytes.length);
+            lru.put(key, entry);
+            return entry;
+        }
+
+        private Slab available() {
+            Slab slab = partial.peek();
+            if (null == slab) {
+                slab = obtainSlab();
+                if (null != slab) {
+                    slab.carve(chunkSize);
+                    partial.add(slab);
+                    slabCount++;
+                }
+            }
+            return slab;
+        }
+
+        /**
+         * 淘汰最久未使用文件所在 slab 中的全部文件，该文件的访问频率不低于 threshold 时不回收
+         */
+        private synchronized boolean reclaim(int threshold) {
+            Iterator<Entry> iterator = lru.values().iterator();
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            Entry eldest = iterator.next();
+            if (MemoryCache.this.frequency(eldest.key) >= threshold) {
+                return false;
+            }
+            Slab slab = eldest.slab;
+            iterator = lru.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.slab == slab) {
+                    iterator.remove();
+                    this.discard(entry);
+                }
+            }
+            return true;
+        }
+
+        private void discard(Entry entry) {
+            entry.evicted = true;
+            entries.remove(entry.key, entry);
+            evictions.increment();
+            entry.release();
+        }
+
+        private synchronized int eldestFrequency() {
+            Iterator<Entry> iterator = lru.values().iterator();
+            return iterator.hasNext() ? MemoryCache.this.frequency(iterator.next().key) : Integer.MAX_VALUE;
+        }
+
+        private synchronized void touch(Entry entry) {
+            lru.get(entry.key);
+        }
+
+        private synchronized void unlink(Entry entry) {
+            lru.remove(entry.key, entry);
+        }
+
+        /**
+         * 块归还所在 slab，slab 全部空闲时归还共享池
+         */
+        private synchronized void recycle(Entry entry) {
+            Slab slab = entry.slab;
+            boolean full = slab.free.isEmpty();
+            slab.free.push(entry.chunk);
+            slab.used--;
+            if (slab.used == 0) {
+                if (!full) {
+                    partial.remove(slab);
+                }
+                slabCount--;
+                returnSlab(slab);
+            } else if (full) {
+                partial.add(slab);
+            }
+        }
+    }
+
+    /**
+     * 缓存块的只读输入流，关闭或读到末尾时释放引用
+     */
+    private static final class ChunkInputStream extends InputStream {
+
+        private final Entry entry;
+
+        private final ByteBuffer buffer;
+
+        private boolean released;
+
+        private ChunkInputStream(Entry entry) {
+            this.entry = entry;
+            this.buffer = entry.chunk.asReadOnlyBuffer().limit(entry.length);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!this.ensureOpen()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (0 == len) {
+                return 0;
+            }
+            if (!this.ensureOpen()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0 || !this.ensureOpen()) {
+                return 0;
+            }
+            int skipped = (int) Math.min(n, buffer.remaining());
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return released ? 0 : buffer.remaining();
+        }
+
+        @Override
+        public void close() {
+            this.release();
+        }
+
+        /**
+         * 读到末尾时释放引用并返回 false，已关闭且未读完时抛出异常，释放后块可能已分配给其它文件
+         */
+        private boolean ensureOpen() throws IOException {
+            if (buffer.hasRemaining()) {
+                if (released) {
+                    throw new IOException("Stream closed");
+                }
+                return true;
+            }
+            this.release();
+            return false;
+        }
+
+        private void release() {
+            if (!released) {
+                released = true;
+                entry.release();
+            }
+        }
+    }
+}
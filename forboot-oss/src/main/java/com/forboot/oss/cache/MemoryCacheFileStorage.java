@@ -0,0 +1,38 @@
+package com.forboot.oss.cache;
+
+import com.forboot.oss.IFileStorage;
+
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+
+/**
+ * 小文件堆外内存缓存文件存储，下载优先读取 {@link MemoryCache}，上传、删除时移除对应缓存
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class MemoryCacheFileStorage extends AbstractCacheFileStorage {
+
+    private final MemoryCache memoryCache;
+
+    public MemoryCacheFileStorage(IFileStorage delegate, MemoryCache memoryCache) {
+        super(delegate);
+        this.memoryCache = memoryCache;
+    }
+
+    public MemoryCache getMemoryCache() {
+        return memoryCache;
+    }
+
+    @Override
+    protected InputStream get(String bucketName, String objectName, Callable<InputStream> loader) throws Exception {
+        return memoryCache.get(bucketName, objectName, loader);
+    }
+
+    @Override
+    protected void invalidate(String bucketName, String objectName) {
+        memoryCache.invalidate(bucketName, objectName);
+    }
+}
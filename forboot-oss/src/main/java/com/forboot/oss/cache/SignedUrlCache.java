@@ -0,0 +1,208 @@
+package com.forboot.oss.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 签名地址缓存
+ * <p>
+ * 按桶名称、文件对象名、有效期缓存签名地址，剩余有效期不低于请求有效期的 minRemainingRatio 时直接返回缓存地址。
+ * 缓存按哈希分段加锁，段内按最久未使用淘汰，并定期清理剩余有效期不足的地址。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class SignedUrlCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    private final double minRemainingRatio;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public SignedUrlCache(int maxSize, double minRemainingRatio) {
+        this.minRemainingRatio = minRemainingRatio;
+        int segmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            this.segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * 获取签名地址，缓存不存在或剩余有效期不足时重新签名
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @param seconds    有效期秒数
+     * @param signer     签名函数
+     * @return 签名地址
+     * @throws Exception 签名异常
+     */
+    public String get(String bucketName, String objectName, long seconds, UrlSigner signer) throws Exception {
+        Key key = new Key(bucketName, objectName, seconds);
+        Segment segment = this.segment(key);
+        long now = System.currentTimeMillis();
+        String url = segment.get(key, now, (long) (seconds * 1000 * minRemainingRatio));
+        if (null != url) {
+            hits.increment();
+            return url;
+        }
+        misses.increment();
+        url = signer.sign();
+        if (null != url) {
+            // 以签名前的时间计算过期时间，不会晚于实际过期时间
+            segment.put(key, new Entry(url, now + seconds * 1000), now);
+        }
+        return url;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 命中次数
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * 未命中次数
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 淘汰次数，包含容量淘汰和有效期不足淘汰
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 当前缓存数量
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment segment(Key key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * 签名函数
+     */
+    @FunctionalInterface
+    public interface UrlSigner {
+
+        /**
+         * 签名
+         *
+         * @return 签名地址
+         * @throws Exception 签名异常
+         */
+        String sign() throws Exception;
+    }
+
+    private record Key(String bucketName, String objectName, long seconds) {
+    }
+
+    private record Entry(String url, long expireAt) {
+    }
+
+    private class Segment {
+
+        private final int maxSize;
+
+        private final LinkedHashMap<Key, Entry> map;
+
+        /**
+         * 距离下次清理剩余的写入次数
+         */
+        private int untilPurge;
+
+        Segment(int maxSize) {
+            this.maxSize = maxSize;
+            this.untilPurge = maxSize;
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                    if (size() > Segment.this.maxSize) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized String get(Key key, long now, long minRemaining) {
+            Entry entry = map.get(key);
+            if (null == entry) {
+                return null;
+            }
+            if (entry.expireAt() - now < minRemaining) {
+                map.remove(key);
+                evictions.increment();
+                return null;
+            }
+            return entry.url();
+        }
+
+        synchronized void put(Key key, Entry entry, long now) {
+            if (--untilPurge <= 0) {
+                // 每写入一轮容量清理一次，清理成本均摊到每次写入
+                untilPurge = maxSize;
+                this.purge(now);
+            }
+            map.put(key, entry);
+        }
+
+        /**
+         * 清理剩余有效期不足的地址
+         */
+        private void purge(long now) {
+            Iterator<Map.Entry<Key, Entry>> iterator = map.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Entry> e = iterator.next();
+                long minRemaining = (long) (e.getKey().seconds() * 1000 * minRemainingRatio);
+                if (e.getValue().expireAt() - now < minRemaining) {
+                    iterator.remove();
+                    evictions.increment();
+                }
+            }
+        }
+
+        synchronized void clear() {
+            map.clear();
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.forboot.oss.enums;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * oss 文件校验算法
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public enum ChecksumAlgorithm {
+
+    /**
+     * CRC32C，计算最快，仅用于记录
+     */
+    CRC32C,
+
+    /**
+     * MD5，可与单次上传返回的 ETag 比对
+     */
+    MD5,
+
+    /**
+     * SHA-256
+     */
+    SHA256;
+
+    /**
+     * 创建校验值计算器
+     *
+     * @return {@link Hasher}
+     */
+    public Hasher newHasher() {
+        if (this == CRC32C) {
+            java.util.zip.CRC32C crc = new java.util.zip.CRC32C();
+            return new Hasher() {
+                @Override
+                public void update(byte[] b, int off, int len) {
+                    crc.update(b, off, len);
+                }
+
+                @Override
+                public byte[] digest() {
+                    long value = crc.getValue();
+                    return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+                }
+            };
+        }
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(this == MD5 ? "MD5" : "SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        return new Hasher() {
+            @Override
+            public void update(byte[] b, int off, int len) {
+                messageDigest.update(b, off, len);
+            }
+
+            @Override
+            public byte[] digest() {
+                return messageDigest.digest();
+            }
+        };
+    }
+
+    /**
+     * 校验值计算器
+     */
+    public interface Hasher {
+
+        void update(byte[] b, int off, int len);
+
+        byte[] digest();
+    }
+}
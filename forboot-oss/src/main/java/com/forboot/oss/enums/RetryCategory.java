@@ -0,0 +1,28 @@
+package com.forboot.oss.enums;
+
+/**
+ * oss 失败重试分类
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public enum RetryCategory {
+
+    /**
+     * 不可重试，如参数错误、权限不足、文件不存在
+     */
+    NONE,
+
+    /**
+     * 临时故障，请求可能已被平台处理，只有幂等操作可以重试，如读取超时、平台内部错误
+     */
+    TRANSIENT,
+
+    /**
+     * 平台拒绝或请求未发出，确定未被处理，任何操作都可以重试，如限流、连接失败
+     */
+    REJECTED
+
+}
@@ -0,0 +1,23 @@
+package com.forboot.oss.enums;
+
+/**
+ * oss 传输类型
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public enum TransferType {
+
+    /**
+     * 上传
+     */
+    UPLOAD,
+
+    /**
+     * 下载
+     */
+    DOWNLOAD
+
+}
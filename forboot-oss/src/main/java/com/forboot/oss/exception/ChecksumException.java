@@ -0,0 +1,16 @@
+package com.forboot.oss.exception;
+
+/**
+ * oss 文件校验值不一致异常
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class ChecksumException extends Exception {
+
+    public ChecksumException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.forboot.oss.exception;
+
+/**
+ * oss 文件大小超出上限异常
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class FileSizeException extends Exception {
+
+    public FileSizeException(String message) {
+        super(message);
+    }
+}
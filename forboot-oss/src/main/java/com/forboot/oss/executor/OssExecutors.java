@@ -0,0 +1,211 @@
+package com.forboot.oss.executor;
+
+import com.forboot.oss.property.ExecutorProperty;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * oss 传输线程池工厂
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Slf4j
+public class OssExecutors {
+
+    /**
+     * 创建有界线程池
+     * <p>
+     * 平台线程池队列满时由提交线程执行任务，虚拟线程按并行度限流，两者都会对提交方形成背压。
+     *
+     * @param name     线程名前缀
+     * @param property {@link ExecutorProperty}
+     * @return {@link ExecutorService}
+     */
+    public static ExecutorService newExecutor(String name, ExecutorProperty property) {
+        return newExecutor(name, property, false);
+    }
+
+    /**
+     * 创建饱和时拒绝任务的有界线程池
+     * <p>
+     * 并行度与等待队列都用尽时直接抛出 {@link RejectedExecutionException}，提交线程既不执行任务也不等待，
+     * 适用于承诺不阻塞调用方的异步门面。
+     *
+     * @param name     线程名前缀
+     * @param property {@link ExecutorProperty}
+     * @return {@link ExecutorService}
+     */
+    public static ExecutorService newRejectingExecutor(String name, ExecutorProperty property) {
+        return newExecutor(name, property, true);
+    }
+
+    private static ExecutorService newExecutor(String name, ExecutorProperty property, boolean rejecting) {
+        int parallelism = Math.max(1, property.getParallelism());
+        int queueCapacity = Math.max(1, property.getQueueCapacity());
+        if (property.isVirtualThreads()) {
+            ExecutorService executor = newVirtualThreadExecutor();
+            if (null != executor) {
+                return rejecting ? new BoundedExecutorService(executor, parallelism, queueCapacity)
+                        : new BoundedExecutorService(executor, parallelism);
+            }
+            log.warn("virtual threads are not supported by this JVM, fall back to platform threads");
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new NamedThreadFactory(name),
+                rejecting ? new ThreadPoolExecutor.AbortPolicy() : new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    static class NamedThreadFactory implements ThreadFactory {
+        private final AtomicInteger index = new AtomicInteger();
+        private final String name;
+
+        NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, name + "-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * 按并行度限流的线程池
+     * <p>
+     * 未设置等待队列时许可用尽即阻塞提交线程；设置等待队列时任务先入队，由执行完的任务依次取出，
+     * 队列也满时抛出 {@link RejectedExecutionException}，提交线程不阻塞。
+     */
+    static class BoundedExecutorService extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+        private final BlockingQueue<Runnable> queue;
+
+        BoundedExecutorService(ExecutorService delegate, int parallelism) {
+            this(delegate, parallelism, null);
+        }
+
+        BoundedExecutorService(ExecutorService delegate, int parallelism, Integer queueCapacity) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(parallelism);
+            this.queue = null == queueCapacity ? null : new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (null == command) {
+                throw new NullPointerException();
+            }
+            if (null == queue) {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException(e);
+                }
+                dispatch(command);
+                return;
+            }
+            if (delegate.isShutdown()) {
+                throw new RejectedExecutionException("executor has been shut down");
+            }
+            if (permits.tryAcquire()) {
+                dispatch(command);
+                return;
+            }
+            if (!queue.offer(command)) {
+                throw new RejectedExecutionException("executor is saturated, parallelism and queue are exhausted");
+            }
+            // 入队期间可能已有任务结束并释放许可，需要主动取一次，避免任务滞留在队列中
+            drain();
+        }
+
+        private void dispatch(Runnable command) {
+            try {
+                delegate.execute(() -> {
+                    try {
+                        command.run();
+                    } finally {
+                        permits.release();
+                        drain();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        private void drain() {
+            while (null != queue && !queue.isEmpty() && permits.tryAcquire()) {
+                Runnable next = queue.poll();
+                if (null == next) {
+                    permits.release();
+                    return;
+                }
+                try {
+                    dispatch(next);
+                } catch (RejectedExecutionException e) {
+                    log.warn("queued task is discarded because the executor has been shut down");
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> pending = new ArrayList<>(delegate.shutdownNow());
+            if (null != queue) {
+                queue.drainTo(pending);
+            }
+            return pending;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.forboot.oss.io;
+
+import com.forboot.oss.enums.ChecksumAlgorithm;
+import com.forboot.oss.exception.ChecksumException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HexFormat;
+
+/**
+ * 边读取边计算校验值的文件流，与上传、下载在同一次读取中完成，不需要再次读取文件
+ * <p>
+ * 设置了期望值时，读取到末尾后比对，不一致时抛出 {@link IOException}，原因为 {@link ChecksumException}。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class ChecksumInputStream extends FilterInputStream {
+
+    private final ChecksumAlgorithm algorithm;
+
+    private final ChecksumAlgorithm.Hasher hasher;
+
+    private final String expected;
+
+    private String checksum;
+
+    /**
+     * @param in        文件流
+     * @param algorithm 校验算法
+     */
+    public ChecksumInputStream(InputStream in, ChecksumAlgorithm algorithm) {
+        this(in, algorithm, null);
+    }
+
+    /**
+     * @param in        文件流
+     * @param algorithm 校验算法
+     * @param expected  期望的十六进制校验值，为空不比对
+     */
+    public ChecksumInputStream(InputStream in, ChecksumAlgorithm algorithm, String expected) {
+        super(in);
+        this.algorithm = algorithm;
+        this.hasher = algorithm.newHasher();
+        this.expected = expected;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = this.read(b, 0, 1);
+        return n == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) {
+            hasher.update(b, off, n);
+        } else if (n == -1 && null == checksum) {
+            this.finish();
+            if (null != expected && !expected.equalsIgnoreCase(checksum)) {
+                ChecksumException e = new ChecksumException(algorithm + " mismatch, expected " + expected
+                        + " but was " + checksum);
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // 经过 read 计算
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = this.read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    public ChecksumAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    private void finish() {
+        checksum = HexFormat.of().formatHex(hasher.digest());
+    }
+
+    /**
+     * 十六进制校验值，未读取到末尾时按已读取的内容计算，此后不再更新
+     * <p>
+     * 存储平台 SDK 按文件大小读取时可能不会读到末尾，上传完成后调用即为已上传内容的校验值
+     */
+    public String getChecksum() {
+        if (null == checksum) {
+            this.finish();
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,179 @@
+package com.forboot.oss.io;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 将 {@link DataBuffer} 流转换为阻塞读取的文件流
+ * <p>
+ * 最多预取 prefetch 个缓冲区，读取消费后再向上游请求，上游速度受读取方背压控制。
+ * 读取方法会阻塞，只能在允许阻塞的线程中调用。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class DataBufferInputStream extends InputStream implements Subscriber<DataBuffer> {
+
+    private static final Object COMPLETE = new Object();
+
+    private final BlockingQueue<Object> queue;
+
+    private final int prefetch;
+
+    /**
+     * 补充请求的阈值，消费达到预取数的 3/4 时批量请求
+     */
+    private final int limit;
+
+    private volatile Subscription subscription;
+
+    private volatile boolean closed;
+
+    private DataBuffer current;
+
+    private int consumed;
+
+    private boolean done;
+
+    public DataBufferInputStream(Publisher<? extends DataBuffer> publisher, int prefetch) {
+        this.prefetch = Math.max(1, prefetch);
+        this.limit = Math.max(1, this.prefetch - (this.prefetch >> 2));
+        // 额外预留一个位置给结束信号
+        this.queue = new ArrayBlockingQueue<>(this.prefetch + 1);
+        publisher.subscribe(this);
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        this.subscription = s;
+        if (closed) {
+            s.cancel();
+        } else {
+            s.request(prefetch);
+        }
+    }
+
+    @Override
+    public void onNext(DataBuffer dataBuffer) {
+        if (closed || !queue.offer(dataBuffer)) {
+            DataBufferUtils.release(dataBuffer);
+        }
+        if (closed) {
+            // 关闭与入队并发时，由这里释放残留的缓冲区
+            this.drain();
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        queue.offer(t);
+    }
+
+    @Override
+    public void onComplete() {
+        queue.offer(COMPLETE);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = this.read(b, 0, 1);
+        return n == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        DataBuffer dataBuffer = this.next();
+        if (null == dataBuffer) {
+            return -1;
+        }
+        int n = Math.min(len, dataBuffer.readableByteCount());
+        dataBuffer.read(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        DataBuffer dataBuffer = current;
+        return null == dataBuffer ? 0 : dataBuffer.readableByteCount();
+    }
+
+    /**
+     * 当前可读的缓冲区，读完后释放并等待下一个
+     */
+    private DataBuffer next() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (null == current || current.readableByteCount() == 0) {
+            if (null != current) {
+                DataBufferUtils.release(current);
+                current = null;
+            }
+            if (done) {
+                return null;
+            }
+            Object signal;
+            try {
+                signal = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (signal == COMPLETE) {
+                done = true;
+                return null;
+            }
+            if (signal instanceof Throwable t) {
+                done = true;
+                throw t instanceof IOException e ? e : new IOException(t);
+            }
+            current = (DataBuffer) signal;
+            if (++consumed == limit) {
+                consumed = 0;
+                subscription.request(limit);
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Subscription s = subscription;
+        if (null != s && !done) {
+            s.cancel();
+        }
+        if (null != current) {
+            DataBufferUtils.release(current);
+            current = null;
+        }
+        this.drain();
+    }
+
+    private void drain() {
+        Object signal;
+        while (null != (signal = queue.poll())) {
+            if (signal instanceof DataBuffer dataBuffer) {
+                DataBufferUtils.release(dataBuffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.forboot.oss.io;
+
+import com.forboot.oss.progress.ProgressTracker;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 统计读取进度的文件流，用于不支持进度回调的平台
+ * <p>
+ * 按读取到的最远位置统计，mark 后 reset 重复读取的部分不重复统计，读取到末尾时通知 {@link ProgressTracker}。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class ProgressInputStream extends FilterInputStream {
+
+    private final ProgressTracker tracker;
+
+    private long position;
+
+    private long reported;
+
+    private long mark = -1;
+
+    /**
+     * @param in      文件流
+     * @param tracker 进度统计
+     */
+    public ProgressInputStream(InputStream in, ProgressTracker tracker) {
+        super(in);
+        this.tracker = tracker;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        this.advance(b == -1 ? -1 : 1);
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        this.advance(n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        this.advance(skipped);
+        return skipped;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        in.mark(readlimit);
+        mark = position;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        in.reset();
+        if (mark != -1) {
+            position = mark;
+        }
+    }
+
+    private void advance(long n) {
+        if (n == -1) {
+            tracker.endOfStream();
+            return;
+        }
+        position += n;
+        if (position > reported) {
+            tracker.transferred(position - reported);
+            reported = position;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.forboot.oss.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 可重放的文件流，用于上传失败后重试
+ * <p>
+ * 边读取边记录已读取的内容，内存中保留不超过 memoryThreshold 字节，超过后转存到临时文件。
+ * {@link #rewind()} 后先重放已记录的内容，再继续读取原文件流，首次上传不需要预先缓冲。
+ * 支持任意长度的 mark/reset。
+ * <p>
+ * 平台 SDK 上传结束会关闭文件流，重试时还需继续读取，因此 {@link #close()} 不做任何处理，
+ * 由创建者调用 {@link #release()} 关闭原文件流并释放缓冲。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class ReplayableInputStream extends InputStream {
+
+    private final InputStream in;
+
+    private final long memoryThreshold;
+
+    /**
+     * 内存中的已读取内容，转存到临时文件后为 null
+     */
+    private byte[] memory = new byte[0];
+
+    private FileChannel file;
+
+    /**
+     * 已从原文件流读取的字节数
+     */
+    private long recorded;
+
+    private long position;
+
+    private long mark;
+
+    private boolean eof;
+
+    private boolean released;
+
+    public ReplayableInputStream(InputStream in, long memoryThreshold) {
+        this.in = in;
+        this.memoryThreshold = Math.max(0, memoryThreshold);
+    }
+
+    /**
+     * 回到开头重新读取
+     */
+    public void rewind() {
+        this.position = 0;
+        this.mark = 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = this.read(b, 0, 1);
+        return n == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (released) {
+            throw new IOException("Stream released");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (position < recorded) {
+            int n = this.copy(position, b, off, (int) Math.min(len, recorded - position));
+            position += n;
+            return n;
+        }
+        if (eof) {
+            return -1;
+        }
+        int n = in.read(b, off, len);
+        if (n < 0) {
+            eof = true;
+            return -1;
+        }
+        this.append(b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (position < recorded) {
+            return (int) Math.min(Integer.MAX_VALUE, recorded - position);
+        }
+        return eof || released ? 0 : in.available();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        this.mark = position;
+    }
+
+    @Override
+    public void reset() {
+        this.position = mark;
+    }
+
+    /**
+     * 不关闭，见 {@link #release()}
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * 关闭原文件流并释放缓冲
+     *
+     * @throws IOException IO 异常
+     */
+    public void release() throws IOException {
+        if (released) {
+            return;
+        }
+        released = true;
+        memory = null;
+        try {
+            in.close();
+        } finally {
+            if (null != file) {
+                file.close();
+            }
+        }
+    }
+
+    private void append(byte[] b, int off, int len) throws IOException {
+        if (null == file && recorded + len > memoryThreshold) {
+            // 转存到临时文件
+            Path temp = Files.createTempFile("forboot-oss-", ".replay");
+            file = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            this.write(ByteBuffer.wrap(memory, 0, (int) recorded), 0);
+            memory = null;
+        }
+        if (null != file) {
+            this.write(ByteBuffer.wrap(b, off, len), recorded);
+        } else {
+            if (recorded + len > memory.length) {
+                int capacity = (int) Math.min(memoryThreshold, Math.max(recorded + len, memory.length * 2L));
+                memory = Arrays.copyOf(memory, Math.max(capacity, 8192));
+            }
+            System.arraycopy(b, off, memory, (int) recorded, len);
+        }
+        recorded += len;
+    }
+
+    private void write(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += file.write(buffer, position);
+        }
+    }
+
+    private int copy(long position, byte[] b, int off, int len) throws IOException {
+        if (null != file) {
+            return file.read(ByteBuffer.wrap(b, off, len), position);
+        }
+        System.arraycopy(memory, (int) position, b, off, len);
+        return len;
+    }
+}
@@ -0,0 +1,319 @@
+package com.forboot.oss.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * 多个读取方共享的一次远程下载
+ * <p>
+ * 远程文件流只打开一次，读取到的内容保留在内存中，超过 memoryThreshold 后转存到临时文件，
+ * 每个读取方从头独立读取。没有线程专门拉取，读取到已下载末尾的读取方负责从远程读取下一段，
+ * 其它读取方等待，下载速度取决于最快的读取方。全部读取方关闭后关闭远程文件流并删除临时文件。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class SharedDownload {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final Callable<InputStream> loader;
+
+    private final long memoryThreshold;
+
+    private final Runnable onComplete;
+
+    private final Object lock = new Object();
+
+    private InputStream remote;
+
+    /**
+     * 内存中的已下载内容，转存到临时文件后为 null
+     */
+    private List<byte[]> chunks = new ArrayList<>();
+
+    private FileChannel file;
+
+    private long written;
+
+    private boolean opening = true;
+
+    private boolean pumping;
+
+    private boolean done;
+
+    private boolean released;
+
+    private Exception error;
+
+    private int refs;
+
+    /**
+     * @param loader          打开远程文件流
+     * @param memoryThreshold 内存中保留的最大字节数，超过后转存到临时文件
+     * @param onComplete      下载结束（完成、失败或全部读取方关闭）时回调，此后不再接受新的读取方，可能多次回调
+     */
+    public SharedDownload(Callable<InputStream> loader, long memoryThreshold, Runnable onComplete) {
+        this.loader = loader;
+        this.memoryThreshold = memoryThreshold;
+        this.onComplete = onComplete;
+    }
+
+    /**
+     * 打开远程文件流，由创建者调用且只调用一次
+     *
+     * @return 创建者的读取流，远程文件不存在时返回 null
+     * @throws Exception 打开远程文件流异常
+     */
+    public InputStream start() throws Exception {
+        InputStream is;
+        try {
+            is = loader.call();
+        } catch (Exception e) {
+            synchronized (lock) {
+                this.error = e;
+                this.opening = false;
+                lock.notifyAll();
+            }
+            onComplete.run();
+            throw e;
+        }
+        synchronized (lock) {
+            this.remote = is;
+            this.opening = false;
+            if (null == is) {
+                this.done = true;
+                this.released = true;
+            } else {
+                refs++;
+            }
+            lock.notifyAll();
+        }
+        if (null == is) {
+            onComplete.run();
+            return null;
+        }
+        return new Reader();
+    }
+
+    /**
+     * 加入下载，等待远程文件流打开
+     *
+     * @return 读取流，下载已结束时返回 null，由调用方重新下载
+     * @throws Exception 打开远程文件流异常
+     */
+    public InputStream join() throws Exception {
+        synchronized (lock) {
+            while (opening) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            if (null != error && null == remote) {
+                throw error;
+            }
+            if (released || done || null != error) {
+                return null;
+            }
+            refs++;
+            return new Reader();
+        }
+    }
+
+    /**
+     * 从 position 读取已下载内容，必要时从远程读取下一段
+     */
+    private int read(long position, byte[] b, int off, int len) throws IOException {
+        synchronized (lock) {
+            while (position >= written && !done) {
+                if (null != error) {
+                    throw error instanceof IOException e ? e : new IOException(error);
+                }
+                if (!pumping) {
+                    pumping = true;
+                    break;
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            if (position < written) {
+                return this.copy(position, b, off, (int) Math.min(len, written - position));
+            }
+            if (done) {
+                return -1;
+            }
+        }
+        this.pump();
+        return this.read(position, b, off, len);
+    }
+
+    /**
+     * 从远程读取下一段，同一时间只有一个读取方执行
+     */
+    private void pump() throws IOException {
+        byte[] buffer = new byte[CHUNK_SIZE];
+        int n;
+        try {
+            n = remote.readNBytes(buffer, 0, buffer.length);
+        } catch (IOException | RuntimeException e) {
+            // 平台 SDK 的文件流可能抛出非受检异常，同样需要唤醒等待的读取方
+            this.finish(e);
+            throw e;
+        } catch (Error e) {
+            this.finish(new IOException(e));
+            throw e;
+        }
+        boolean complete;
+        synchronized (lock) {
+            try {
+                if (n > 0) {
+                    this.append(buffer, n);
+                }
+            } catch (IOException e) {
+                error = e;
+            } finally {
+                pumping = false;
+                done = n < buffer.length && null == error;
+                complete = done || null != error;
+                lock.notifyAll();
+            }
+        }
+        if (complete) {
+            onComplete.run();
+        }
+    }
+
+    private void finish(Exception e) {
+        synchronized (lock) {
+            error = e;
+            pumping = false;
+            lock.notifyAll();
+        }
+        onComplete.run();
+    }
+
+    private void append(byte[] buffer, int n) throws IOException {
+        if (null == file && written + n > memoryThreshold) {
+            // 转存到临时文件
+            Path temp = Files.createTempFile("forboot-oss-", ".download");
+            file = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            long position = 0;
+            for (byte[] chunk : chunks) {
+                int length = (int) Math.min(chunk.length, written - position);
+                this.write(ByteBuffer.wrap(chunk, 0, length), position);
+                position += length;
+            }
+            chunks = null;
+        }
+        if (null != file) {
+            this.write(ByteBuffer.wrap(buffer, 0, n), written);
+        } else {
+            // 每次读取最多一个块，按块存放
+            chunks.add(n == buffer.length ? buffer : Arrays.copyOf(buffer, n));
+        }
+        written += n;
+    }
+
+    private void write(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += file.write(buffer, position);
+        }
+    }
+
+    private int copy(long position, byte[] b, int off, int len) throws IOException {
+        if (null != file) {
+            return file.read(ByteBuffer.wrap(b, off, len), position);
+        }
+        // 除最后一块外每块都是 CHUNK_SIZE
+        byte[] chunk = chunks.get((int) (position / CHUNK_SIZE));
+        int start = (int) (position % CHUNK_SIZE);
+        int length = Math.min(len, chunk.length - start);
+        System.arraycopy(chunk, start, b, off, length);
+        return length;
+    }
+
+    private void release() {
+        boolean last;
+        synchronized (lock) {
+            last = --refs == 0;
+            if (last) {
+                released = true;
+                lock.notifyAll();
+            }
+        }
+        if (!last) {
+            return;
+        }
+        onComplete.run();
+        try {
+            remote.close();
+        } catch (IOException ignored) {
+        }
+        synchronized (lock) {
+            chunks = null;
+            if (null != file) {
+                try {
+                    file.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private class Reader extends InputStream {
+
+        private long position;
+
+        private boolean closed;
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = this.read(b, 0, 1);
+            return n == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            int n = SharedDownload.this.read(position, b, off, len);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                SharedDownload.this.release();
+            }
+        }
+    }
+}
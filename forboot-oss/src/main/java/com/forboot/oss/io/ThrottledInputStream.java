@@ -0,0 +1,59 @@
+package com.forboot.oss.io;
+
+import com.forboot.oss.throttle.TokenBucket;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * 限速文件流，每次最多读取 {@link #CHUNK_SIZE} 字节，读取后从全部令牌桶获取令牌
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class ThrottledInputStream extends FilterInputStream {
+
+    /**
+     * 单次读取上限，避免一次读取大块后长时间等待
+     */
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final List<TokenBucket> buckets;
+
+    /**
+     * @param in      文件流
+     * @param buckets 令牌桶
+     */
+    public ThrottledInputStream(InputStream in, List<TokenBucket> buckets) {
+        super(in);
+        this.buckets = buckets;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            this.acquire(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, Math.min(len, CHUNK_SIZE));
+        if (n > 0) {
+            this.acquire(n);
+        }
+        return n;
+    }
+
+    private void acquire(long bytes) throws IOException {
+        for (TokenBucket bucket : buckets) {
+            bucket.acquire(bytes);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.forboot.oss.io;
+
+import com.forboot.oss.MediaType;
+import com.forboot.oss.exception.FileSizeException;
+import com.forboot.oss.exception.MediaTypeException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Function;
+
+/**
+ * 上传时边读取边校验的文件流，不需要 mark/reset，也不缓存整个文件
+ * <p>
+ * 首次读取时预读文件开头最多 {@link MediaType#PREFIX_SIZE} 字节识别媒体类型，不合法时拒绝，预读内容随后原样输出；
+ * 读取总量超过上限时拒绝。拒绝时读取抛出 {@link IOException}，原因可通过 {@link #getRejection()} 获取，
+ * 存储平台 SDK 包装了读取异常时，调用方据此还原 {@link MediaTypeException}、{@link FileSizeException}。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class ValidatingInputStream extends FilterInputStream {
+
+    private final long maxSize;
+
+    private final Function<String, Boolean> mediaTypeFunction;
+
+    private byte[] prefix;
+
+    private int prefixLength;
+
+    private int prefixPosition;
+
+    private long count;
+
+    private String mediaType;
+
+    private Exception rejection;
+
+    /**
+     * @param in                文件流
+     * @param maxSize           文件大小上限，小于 0 不限制
+     * @param mediaTypeFunction 媒体类型合法判断函数，为空不识别媒体类型
+     */
+    public ValidatingInputStream(InputStream in, long maxSize, Function<String, Boolean> mediaTypeFunction) {
+        super(in);
+        this.maxSize = maxSize;
+        this.mediaTypeFunction = mediaTypeFunction;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = this.read(b, 0, 1);
+        return n == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (null != rejection) {
+            throw new IOException(rejection.getMessage(), rejection);
+        }
+        if (null != mediaTypeFunction && null == mediaType) {
+            this.sniff();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int n;
+        if (prefixPosition < prefixLength) {
+            n = Math.min(len, prefixLength - prefixPosition);
+            System.arraycopy(prefix, prefixPosition, b, off, n);
+            prefixPosition += n;
+            if (prefixPosition == prefixLength) {
+                prefix = null;
+            }
+        } else {
+            n = in.read(b, off, len);
+        }
+        if (n > 0) {
+            count += n;
+            if (maxSize >= 0 && count > maxSize) {
+                throw this.reject(new FileSizeException("File size exceeds " + maxSize + " bytes"));
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 预读文件开头并校验媒体类型
+     */
+    private void sniff() throws IOException {
+        prefix = new byte[MediaType.PREFIX_SIZE];
+        prefixLength = in.readNBytes(prefix, 0, prefix.length);
+        mediaType = MediaType.detect(prefix, prefixLength);
+        if (!Boolean.TRUE.equals(mediaTypeFunction.apply(mediaType))) {
+            throw this.reject(new MediaTypeException("Illegal file type"));
+        }
+    }
+
+    private IOException reject(Exception e) {
+        this.rejection = e;
+        this.prefix = null;
+        return new IOException(e.getMessage(), e);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // 经过 read 计数
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = this.read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return prefixPosition < prefixLength ? prefixLength - prefixPosition : in.available();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * 识别的媒体类型，未识别时为 null
+     */
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * 已读取的字节数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 拒绝原因，{@link MediaTypeException} 或 {@link FileSizeException}，未拒绝时为 null
+     */
+    public Exception getRejection() {
+        return rejection;
+    }
+}
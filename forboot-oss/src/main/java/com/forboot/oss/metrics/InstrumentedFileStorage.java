@@ -0,0 +1,435 @@
+package com.forboot.oss.metrics;
+
+import com.forboot.oss.DelegatingFileStorage;
+import com.forboot.oss.IFileStorage;
+import com.forboot.oss.MultipartUploadResponse;
+import com.forboot.oss.io.CountingInputStream;
+import com.forboot.oss.model.request.UploadEntry;
+import com.forboot.oss.model.response.BatchResult;
+import com.forboot.oss.model.response.OssResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * 记录 Micrometer 监控指标的文件存储
+ * <p>
+ * 每个操作按平台配置名称（platform）、桶名称（bucket）、操作（operation）记录：
+ * <ul>
+ *     <li>{@code forboot.oss.operations}：操作耗时，失败的操作同样记录</li>
+ *     <li>{@code forboot.oss.active}：进行中的操作数</li>
+ *     <li>{@code forboot.oss.errors}：失败次数，附加异常类型（exception）</li>
+ *     <li>{@code forboot.oss.bytes}：上传、下载的字节数</li>
+ * </ul>
+ * 操作取值 upload、upload_batch、download、download_zip、delete、delete_batch、url、urls、upload_url。
+ * 返回文件流的下载从调用开始计时，到文件流关闭结束，字节数在关闭时记录。字节数只记录成功的操作。
+ * 批量上传不统计字节数，各文件的字节数由被装饰存储的单文件上传负责。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class InstrumentedFileStorage extends DelegatingFileStorage {
+
+    public static final String OPERATIONS = "forboot.oss.operations";
+
+    public static final String ACTIVE = "forboot.oss.active";
+
+    public static final String ERRORS = "forboot.oss.errors";
+
+    public static final String BYTES = "forboot.oss.bytes";
+
+    private static final String UPLOAD = "upload";
+
+    private static final String UPLOAD_BATCH = "upload_batch";
+
+    private static final String DOWNLOAD = "download";
+
+    private static final String DOWNLOAD_ZIP = "download_zip";
+
+    private static final String DELETE = "delete";
+
+    private static final String DELETE_BATCH = "delete_batch";
+
+    private static final String URL = "url";
+
+    private static final String URLS = "urls";
+
+    private static final String UPLOAD_URL = "upload_url";
+
+    private final MeterRegistry registry;
+
+    private final String platform;
+
+    private final boolean percentileHistogram;
+
+    /**
+     * 按桶名称与操作缓存的指标，所有桶视图共享
+     */
+    private final ConcurrentMap<String, Meters> meters = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate            被装饰的存储
+     * @param registry            {@link MeterRegistry}
+     * @param platform            平台配置名称
+     * @param percentileHistogram 操作耗时是否发布百分位直方图
+     */
+    public InstrumentedFileStorage(IFileStorage delegate, MeterRegistry registry, String platform,
+                                   boolean percentileHistogram) {
+        super(delegate);
+        this.registry = registry;
+        this.platform = platform;
+        this.percentileHistogram = percentileHistogram;
+    }
+
+    @Override
+    public OssResult uploadFile(InputStream is, String filename, String objectName) throws Exception {
+        CountingInputStream counting = new CountingInputStream(is);
+        return this.record(UPLOAD, counting::getCount, () -> delegate.uploadFile(counting, filename, objectName));
+    }
+
+    @Override
+    public OssResult uploadFile(InputStream is, long size, String filename, String objectName) throws Exception {
+        CountingInputStream counting = new CountingInputStream(is);
+        return this.record(UPLOAD, counting::getCount,
+                () -> delegate.uploadFile(counting, size, filename, objectName));
+    }
+
+    @Override
+    public OssResult uploadFile(MultipartFile file) throws Exception {
+        return this.record(UPLOAD, file::getSize, () -> delegate.uploadFile(file));
+    }
+
+    @Override
+    public OssResult uploadFile(MultipartFile file, String dir) throws Exception {
+        return this.record(UPLOAD, file::getSize, () -> delegate.uploadFile(file, dir));
+    }
+
+    @Override
+    public OssResult uploadFile(MultipartFile file, String dir, String fileName) throws Exception {
+        return this.record(UPLOAD, file::getSize, () -> delegate.uploadFile(file, dir, fileName));
+    }
+
+    @Override
+    public List<BatchResult<OssResult>> uploadBatch(List<UploadEntry> entries) throws Exception {
+        return this.record(UPLOAD_BATCH, () -> delegate.uploadBatch(entries));
+    }
+
+    @Override
+    public InputStream download(String objectName) throws Exception {
+        Recording recording = this.start(DOWNLOAD);
+        InputStream is;
+        try {
+            is = delegate.download(objectName);
+        } catch (Exception e) {
+            recording.error(e);
+            recording.stop(0);
+            throw e;
+        }
+        if (null == is) {
+            recording.stop(0);
+            return null;
+        }
+        return new RecordingInputStream(is, recording);
+    }
+
+    @Override
+    public void download(HttpServletResponse response, String objectName) throws Exception {
+        CountingResponse counting = new CountingResponse(response);
+        this.record(DOWNLOAD, counting::getCount, () -> {
+            delegate.download(counting, objectName);
+            return null;
+        });
+    }
+
+    @Override
+    public void download(HttpServletRequest request, HttpServletResponse response, String objectName) throws Exception {
+        CountingResponse counting = new CountingResponse(response);
+        this.record(DOWNLOAD, counting::getCount, () -> {
+            delegate.download(request, counting, objectName);
+            return null;
+        });
+    }
+
+    @Override
+    public void download(HttpServletResponse response, List<String> objectNameList, boolean compress) throws Exception {
+        CountingResponse counting = new CountingResponse(response);
+        this.record(DOWNLOAD_ZIP, counting::getCount, () -> {
+            delegate.download(counting, objectNameList, compress);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean delete(List<String> objectNameList) throws Exception {
+        return this.record(DELETE_BATCH, () -> delegate.delete(objectNameList));
+    }
+
+    @Override
+    public List<BatchResult<Void>> deleteBatch(List<String> objectNameList) throws Exception {
+        return this.record(DELETE_BATCH, () -> delegate.deleteBatch(objectNameList));
+    }
+
+    @Override
+    public boolean delete(String objectName) throws Exception {
+        return this.record(DELETE, () -> delegate.delete(objectName));
+    }
+
+    @Override
+    public String getUrl(String objectName, int duration, TimeUnit unit) throws Exception {
+        return this.record(URL, () -> delegate.getUrl(objectName, duration, unit));
+    }
+
+    @Override
+    public List<String> getUrls(List<String> objectNameList, int duration, TimeUnit unit) throws Exception {
+        return this.record(URLS, () -> delegate.getUrls(objectNameList, duration, unit));
+    }
+
+    @Override
+    public MultipartUploadResponse getUploadSignedUrl(String filename) {
+        Recording recording = this.start(UPLOAD_URL);
+        try {
+            return delegate.getUploadSignedUrl(filename);
+        } catch (RuntimeException e) {
+            recording.error(e);
+            throw e;
+        } finally {
+            recording.stop(0);
+        }
+    }
+
+    private <T> T record(String operation, Callable<T> action) throws Exception {
+        return this.record(operation, () -> 0, action);
+    }
+
+    private <T> T record(String operation, LongSupplier bytes, Callable<T> action) throws Exception {
+        Recording recording = this.start(operation);
+        try {
+            return action.call();
+        } catch (Exception e) {
+            recording.error(e);
+            throw e;
+        } finally {
+            recording.stop(bytes.getAsLong());
+        }
+    }
+
+    private Recording start(String operation) {
+        Meters meters = this.meters(operation);
+        meters.active.incrementAndGet();
+        return new Recording(operation, meters, Timer.start(registry));
+    }
+
+    private Meters meters(String operation) {
+        String bucket = this.getBucketName();
+        String tagBucket = null == bucket ? "none" : bucket;
+        String key = tagBucket + '/' + operation;
+        Meters cached = this.meters.get(key);
+        if (null != cached) {
+            return cached;
+        }
+        return this.meters.computeIfAbsent(key, k -> new Meters(tagBucket, operation));
+    }
+
+    /**
+     * 同一平台、桶、操作的指标
+     */
+    private final class Meters {
+
+        private final String bucket;
+
+        private final Timer timer;
+
+        private final AtomicInteger active = new AtomicInteger();
+
+        private final Counter bytes;
+
+        private Meters(String bucket, String operation) {
+            this.bucket = bucket;
+            this.timer = Timer.builder(OPERATIONS)
+                    .description("oss storage operation latency")
+                    .tags("platform", platform, "bucket", bucket, "operation", operation)
+                    .publishPercentileHistogram(percentileHistogram)
+                    .register(registry);
+            Gauge.builder(ACTIVE, active, AtomicInteger::get)
+                    .description("oss storage operations in flight")
+                    .tags("platform", platform, "bucket", bucket, "operation", operation)
+                    .strongReference(true)
+                    .register(registry);
+            boolean transfer = UPLOAD.equals(operation) || DOWNLOAD.equals(operation)
+                    || DOWNLOAD_ZIP.equals(operation);
+            this.bytes = !transfer ? null : Counter.builder(BYTES)
+                    .description("oss storage bytes transferred")
+                    .baseUnit(BaseUnits.BYTES)
+                    .tags("platform", platform, "bucket", bucket, "operation", operation)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * 一次操作的记录，结束时只记录一次
+     */
+    private final class Recording {
+
+        private final String operation;
+
+        private final Meters meters;
+
+        private final Timer.Sample sample;
+
+        private boolean failed;
+
+        private boolean stopped;
+
+        private Recording(String operation, Meters meters, Timer.Sample sample) {
+            this.operation = operation;
+            this.meters = meters;
+            this.sample = sample;
+        }
+
+        private void error(Throwable e) {
+            if (failed) {
+                return;
+            }
+            failed = true;
+            Counter.builder(ERRORS)
+                    .description("oss storage operation failures")
+                    .tags("platform", platform, "bucket", meters.bucket, "operation", operation,
+                            "exception", e.getClass().getSimpleName())
+                    .register(registry)
+                    .increment();
+        }
+
+        private void stop(long bytes) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            sample.stop(meters.timer);
+            meters.active.decrementAndGet();
+            if (null != meters.bytes && bytes > 0 && !failed) {
+                meters.bytes.increment(bytes);
+            }
+        }
+    }
+
+    /**
+     * 下载文件流，关闭时结束记录
+     */
+    private static final class RecordingInputStream extends CountingInputStream {
+
+        private final Recording recording;
+
+        private RecordingInputStream(InputStream in, Recording recording) {
+            super(in);
+            this.recording = recording;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (IOException e) {
+                recording.error(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return super.read(b, off, len);
+            } catch (IOException e) {
+                recording.error(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                recording.stop(this.getCount());
+            }
+        }
+    }
+
+    /**
+     * 统计写出字节数的响应
+     */
+    private static final class CountingResponse extends HttpServletResponseWrapper {
+
+        private ServletOutputStream outputStream;
+
+        private long count;
+
+        private CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (null == outputStream) {
+                ServletOutputStream out = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public boolean isReady() {
+                        return out.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        out.setWriteListener(writeListener);
+                    }
+
+                    @Override
+                    public void write(int b) throws IOException {
+                        out.write(b);
+                        count++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                        count += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        out.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        out.close();
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+}
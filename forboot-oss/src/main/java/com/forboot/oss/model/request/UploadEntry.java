@@ -0,0 +1,49 @@
+package com.forboot.oss.model.request;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+
+/**
+ * 批量上传条目，文件流与 {@link MultipartFile} 二选一
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@Setter
+@Builder
+public class UploadEntry {
+
+    /**
+     * 文件流
+     */
+    private InputStream inputStream;
+
+    /**
+     * 文件大小，未知为 -1
+     */
+    @Builder.Default
+    private long size = -1;
+
+    /**
+     * 文件名，使用文件流上传时必填
+     */
+    private String filename;
+
+    /**
+     * 上传文件
+     */
+    private MultipartFile file;
+
+    /**
+     * 文件对象名，为空时自动生成
+     */
+    private String objectName;
+
+}
@@ -0,0 +1,63 @@
+package com.forboot.oss.model.response;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 批量操作单项结果
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@Setter
+@Builder
+public class BatchResult<T> implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 2316489531741938622L;
+
+    /**
+     * 对象名称，上传未指定对象名时为文件名
+     */
+    private String key;
+
+    /**
+     * 是否成功
+     */
+    private boolean success;
+
+    /**
+     * 操作结果
+     */
+    private T result;
+
+    /**
+     * 失败原因
+     */
+    private String message;
+
+    /**
+     * 失败异常
+     */
+    private transient Exception exception;
+
+    public static <T> BatchResult<T> success(String key, T result) {
+        return BatchResult.<T>builder().key(key).success(true).result(result).build();
+    }
+
+    public static <T> BatchResult<T> failure(String key, Exception exception) {
+        return BatchResult.<T>builder().key(key).success(false).message(exception.getMessage())
+                .exception(exception).build();
+    }
+
+    public static <T> BatchResult<T> failure(String key, String message) {
+        return BatchResult.<T>builder().key(key).success(false).message(message).build();
+    }
+}
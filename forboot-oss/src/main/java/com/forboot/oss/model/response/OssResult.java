@@ -1,5 +1,6 @@
 package com.forboot.oss.model.response;
 
+import com.forboot.oss.enums.ChecksumAlgorithm;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -48,4 +49,29 @@ public class OssResult implements Serializable {
      */
     private String versionId;
 
+    /**
+     * ETag，不含引号，单次上传时一般为 MD5，分片上传时包含 -
+     */
+    private String eTag;
+
+    /**
+     * ETag 是否为内容 MD5，服务端使用 KMS、客户提供密钥加密时为 false，平台无法判断时为空
+     */
+    private Boolean md5ETag;
+
+    /**
+     * 校验算法，未开启校验时为空
+     */
+    private ChecksumAlgorithm checksumAlgorithm;
+
+    /**
+     * 上传时计算的十六进制校验值
+     */
+    private String checksum;
+
+    /**
+     * 是否命中已有的相同内容文件而跳过上传，仅开启去重时有值
+     */
+    private Boolean deduplicated;
+
 }
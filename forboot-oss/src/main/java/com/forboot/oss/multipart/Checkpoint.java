@@ -0,0 +1,51 @@
+package com.forboot.oss.multipart;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分片上传断点
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@Setter
+public class Checkpoint {
+
+    /**
+     * 存储桶名
+     */
+    private String bucketName;
+
+    /**
+     * 对象名称
+     */
+    private String objectName;
+
+    /**
+     * 分片上传 ID
+     */
+    private String uploadId;
+
+    /**
+     * 分片大小，续传时分片大小必须一致
+     */
+    private long partSize;
+
+    /**
+     * 创建时间戳，毫秒，超过有效期的断点取消分片上传后丢弃
+     */
+    private long createdAt;
+
+    /**
+     * 已确认上传的分片
+     */
+    private List<UploadPart> parts = new ArrayList<>();
+
+}
@@ -0,0 +1,49 @@
+package com.forboot.oss.multipart;
+
+/**
+ * 分片上传断点存储，注册该类型 Bean 可替换默认的本地文件存储
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public interface CheckpointStore {
+
+    /**
+     * 加载断点
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @return {@link Checkpoint} 不存在返回 null
+     * @throws Exception 异常
+     */
+    Checkpoint load(String bucketName, String objectName) throws Exception;
+
+    /**
+     * 保存断点，分片上传初始化后调用
+     *
+     * @param checkpoint {@link Checkpoint}
+     * @throws Exception 异常
+     */
+    void save(Checkpoint checkpoint) throws Exception;
+
+    /**
+     * 记录已确认上传的分片
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @param part       {@link UploadPart}
+     * @throws Exception 异常
+     */
+    void savePart(String bucketName, String objectName, UploadPart part) throws Exception;
+
+    /**
+     * 删除断点
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @throws Exception 异常
+     */
+    void remove(String bucketName, String objectName) throws Exception;
+}
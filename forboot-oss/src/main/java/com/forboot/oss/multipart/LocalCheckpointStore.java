@@ -0,0 +1,111 @@
+package com.forboot.oss.multipart;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 本地文件断点存储
+ * <p>
+ * 与本地存储相同的目录结构，断点文件位于 {checkpointPath}/{bucketName}/{objectName}.checkpoint，
+ * 首行为分片上传 ID、分片大小与创建时间，之后每确认一个分片追加一行：编号、ETag、大小与内容 MD5。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Slf4j
+public class LocalCheckpointStore implements CheckpointStore {
+
+    private static final String SUFFIX = ".checkpoint";
+
+    private static final String SEPARATOR = "\t";
+
+    private final String checkpointPath;
+
+    public LocalCheckpointStore(String checkpointPath) {
+        this.checkpointPath = checkpointPath;
+    }
+
+    protected Path getCheckpointFile(String bucketName, String objectName) {
+        return Paths.get(this.checkpointPath, bucketName, objectName + SUFFIX);
+    }
+
+    @Override
+    public Checkpoint load(String bucketName, String objectName) throws Exception {
+        Path path = this.getCheckpointFile(bucketName, objectName);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            return null;
+        }
+        String[] header = lines.get(0).split(SEPARATOR);
+        if (header.length != 3) {
+            log.warn("ignore broken checkpoint: {}", path);
+            return null;
+        }
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.setBucketName(bucketName);
+        checkpoint.setObjectName(objectName);
+        checkpoint.setUploadId(header[0]);
+        try {
+            checkpoint.setPartSize(Long.parseLong(header[1]));
+            checkpoint.setCreatedAt(Long.parseLong(header[2]));
+        } catch (NumberFormatException e) {
+            // 首行损坏时无法确认分片上传 ID 及分片大小，按不存在处理
+            log.warn("ignore broken checkpoint: {}", path);
+            return null;
+        }
+        for (int i = 1; i < lines.size(); i++) {
+            String[] fields = lines.get(i).split(SEPARATOR);
+            // 中断时可能写入不完整的行，忽略
+            if (fields.length == 4) {
+                try {
+                    checkpoint.getParts().add(new UploadPart(Integer.parseInt(fields[0]), fields[1],
+                            Long.parseLong(fields[2]), fields[3]));
+                } catch (NumberFormatException e) {
+                    log.warn("ignore broken checkpoint line: {}", path);
+                }
+            }
+        }
+        return checkpoint;
+    }
+
+    @Override
+    public void save(Checkpoint checkpoint) throws Exception {
+        Path path = this.getCheckpointFile(checkpoint.getBucketName(), checkpoint.getObjectName());
+        Files.createDirectories(path.getParent());
+        StringBuilder content = new StringBuilder();
+        content.append(checkpoint.getUploadId()).append(SEPARATOR).append(checkpoint.getPartSize())
+                .append(SEPARATOR).append(checkpoint.getCreatedAt()).append('\n');
+        for (UploadPart part : checkpoint.getParts()) {
+            content.append(this.line(part));
+        }
+        Files.writeString(path, content, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void savePart(String bucketName, String objectName, UploadPart part) throws Exception {
+        Path path = this.getCheckpointFile(bucketName, objectName);
+        Files.writeString(path, this.line(part), StandardCharsets.UTF_8, StandardOpenOption.APPEND,
+                StandardOpenOption.SYNC);
+    }
+
+    @Override
+    public void remove(String bucketName, String objectName) throws Exception {
+        Files.deleteIfExists(this.getCheckpointFile(bucketName, objectName));
+    }
+
+    private String line(UploadPart part) {
+        return part.getPartNumber() + SEPARATOR + part.getETag() + SEPARATOR + part.getSize() + SEPARATOR
+                + part.getChecksum() + '\n';
+    }
+}
@@ -0,0 +1,88 @@
+package com.forboot.oss.multipart;
+
+import com.forboot.oss.model.response.OssResult;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * 分片上传处理接口，由支持原生分片上传的存储平台实现
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public interface MultipartUploadHandler {
+
+    /**
+     * 简单上传，文件不足一个分片时使用
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @param is         文件流 {@link InputStream}
+     * @param size       文件大小
+     * @return {@link OssResult}
+     * @throws Exception 异常
+     */
+    OssResult putObject(String bucketName, String objectName, InputStream is, long size) throws Exception;
+
+    /**
+     * 初始化分片上传
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @return 分片上传 ID
+     * @throws Exception 异常
+     */
+    String initiateMultipartUpload(String bucketName, String objectName) throws Exception;
+
+    /**
+     * 上传分片
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @param uploadId   分片上传 ID
+     * @param partNumber 分片编号，从 1 开始
+     * @param data       分片数据
+     * @param length     分片数据长度
+     * @return {@link UploadPart}
+     * @throws Exception 异常
+     */
+    UploadPart uploadPart(String bucketName, String objectName, String uploadId, int partNumber,
+                          byte[] data, int length) throws Exception;
+
+    /**
+     * 列出已上传分片，续传前确认分片上传 ID 仍然有效
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @param uploadId   分片上传 ID
+     * @return 平台已接收的分片，分片上传 ID 不存在（已完成、取消或过期）时返回 null
+     * @throws Exception 异常
+     */
+    List<UploadPart> listParts(String bucketName, String objectName, String uploadId) throws Exception;
+
+    /**
+     * 完成分片上传
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @param uploadId   分片上传 ID
+     * @param parts      已上传分片，按分片编号升序
+     * @return {@link OssResult}
+     * @throws Exception 异常
+     */
+    OssResult completeMultipartUpload(String bucketName, String objectName, String uploadId,
+                                      List<UploadPart> parts) throws Exception;
+
+    /**
+     * 取消分片上传，释放已上传分片
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @param uploadId   分片上传 ID
+     * @throws Exception 异常
+     */
+    void abortMultipartUpload(String bucketName, String objectName, String uploadId) throws Exception;
+}
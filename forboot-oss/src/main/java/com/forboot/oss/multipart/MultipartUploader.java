@@ -0,0 +1,343 @@
+package com.forboot.oss.multipart;
+
+import com.forboot.oss.enums.ChecksumAlgorithm;
+import com.forboot.oss.enums.RetryCategory;
+import com.forboot.oss.model.response.OssResult;
+import com.forboot.oss.retry.RetryClassifier;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 流式分片上传
+ * <p>
+ * 按分片大小逐段读取文件流，同时在途的分片数受 maxInFlight 限制，分片缓冲区循环复用，
+ * 无论文件多大内存占用都不超过 partSize * maxInFlight。配置断点存储后，失败时保留已上传分片，
+ * 使用相同对象名重新上传同一文件流可跳过已确认的分片。失败不可重试时（如上传校验拒绝、中断）取消分片上传并删除断点。
+ * <p>
+ * 续传前先向平台列出分片，确认分片上传 ID 仍然有效，只跳过平台确认且内容 MD5 与重新读取的分片一致的分片，
+ * 文件内容变化的分片重新上传覆盖。分片上传 ID 已失效、分片大小变化或断点超过有效期时丢弃断点重新上传。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Slf4j
+public class MultipartUploader {
+
+    /**
+     * 分片数量上限
+     */
+    public static final int MAX_PARTS = 10000;
+
+    private final MultipartUploadHandler handler;
+
+    private final Executor executor;
+
+    private final int partSize;
+
+    private final int maxInFlight;
+
+    /**
+     * 断点存储，为空时不支持续传
+     */
+    private final CheckpointStore checkpointStore;
+
+    /**
+     * 断点有效期，为空不过期
+     */
+    private final Duration checkpointTtl;
+
+    /**
+     * 失败分类，为空时按可重试处理
+     */
+    private final RetryClassifier classifier;
+
+    public MultipartUploader(MultipartUploadHandler handler, Executor executor, int partSize, int maxInFlight) {
+        this(handler, executor, partSize, maxInFlight, null, null);
+    }
+
+    public MultipartUploader(MultipartUploadHandler handler, Executor executor, int partSize, int maxInFlight,
+                             CheckpointStore checkpointStore) {
+        this(handler, executor, partSize, maxInFlight, checkpointStore, null);
+    }
+
+    public MultipartUploader(MultipartUploadHandler handler, Executor executor, int partSize, int maxInFlight,
+                             CheckpointStore checkpointStore, Duration checkpointTtl) {
+        this(handler, executor, partSize, maxInFlight, checkpointStore, checkpointTtl, null);
+    }
+
+    public MultipartUploader(MultipartUploadHandler handler, Executor executor, int partSize, int maxInFlight,
+                             CheckpointStore checkpointStore, Duration checkpointTtl, RetryClassifier classifier) {
+        this.handler = handler;
+        this.executor = executor;
+        this.partSize = partSize;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.checkpointStore = checkpointStore;
+        this.checkpointTtl = checkpointTtl;
+        this.classifier = classifier;
+    }
+
+    /**
+     * 上传，存在断点时复用分片上传 ID 并跳过已确认的分片
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @param is         文件流 {@link InputStream}
+     * @return {@link OssResult}
+     * @throws Exception 异常
+     */
+    public OssResult upload(String bucketName, String objectName, InputStream is) throws Exception {
+        byte[] buffer = new byte[partSize];
+        int length = is.readNBytes(buffer, 0, partSize);
+        if (length < partSize) {
+            // 不足一个分片，直接简单上传
+            return handler.putObject(bucketName, objectName, new ByteArrayInputStream(buffer, 0, length), length);
+        }
+        Checkpoint checkpoint = this.loadCheckpoint(bucketName, objectName);
+        String uploadId;
+        if (null == checkpoint) {
+            uploadId = handler.initiateMultipartUpload(bucketName, objectName);
+            checkpoint = this.saveCheckpoint(bucketName, objectName, uploadId);
+        } else {
+            uploadId = checkpoint.getUploadId();
+            log.info("resume multipart upload {}, {} parts acknowledged", objectName, checkpoint.getParts().size());
+        }
+        try {
+            List<UploadPart> parts = this.uploadParts(bucketName, objectName, uploadId, is, buffer, length,
+                    checkpoint);
+            OssResult ossResult = handler.completeMultipartUpload(bucketName, objectName, uploadId, parts);
+            if (null != checkpoint) {
+                checkpointStore.remove(bucketName, objectName);
+            }
+            return ossResult;
+        } catch (Exception e) {
+            if (null != checkpoint && this.isRetryable(e) && this.hasAcknowledgedParts(bucketName, objectName)) {
+                // 保留已上传分片，等待续传
+                throw e;
+            }
+            try {
+                if (null != checkpoint) {
+                    // 没有可续传的分片或失败不可重试
+                    checkpointStore.remove(bucketName, objectName);
+                }
+                handler.abortMultipartUpload(bucketName, objectName, uploadId);
+            } catch (Exception ex) {
+                log.warn("abort multipart upload error, uploadId: {}", uploadId, ex);
+                e.addSuppressed(ex);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 加载断点，校验分片大小、有效期及分片上传 ID，只保留平台确认的分片
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件对象名
+     * @return {@link Checkpoint} 不存在或已丢弃返回 null
+     * @throws Exception 异常
+     */
+    protected Checkpoint loadCheckpoint(String bucketName, String objectName) throws Exception {
+        if (null == checkpointStore) {
+            return null;
+        }
+        Checkpoint checkpoint = checkpointStore.load(bucketName, objectName);
+        if (null == checkpoint) {
+            return null;
+        }
+        if (checkpoint.getPartSize() != partSize) {
+            // 分片大小变化后分片边界不一致，无法续传
+            log.warn("partSize changed, discard checkpoint of {}", objectName);
+            this.discardCheckpoint(checkpoint);
+            return null;
+        }
+        if (null != checkpointTtl
+                && System.currentTimeMillis() - checkpoint.getCreatedAt() > checkpointTtl.toMillis()) {
+            log.warn("checkpoint of {} expired, discard", objectName);
+            this.discardCheckpoint(checkpoint);
+            return null;
+        }
+        List<UploadPart> uploaded = handler.listParts(bucketName, objectName, checkpoint.getUploadId());
+        if (null == uploaded) {
+            // 分片上传已完成、取消或被平台清理
+            log.warn("uploadId {} of {} no longer exists, discard checkpoint", checkpoint.getUploadId(), objectName);
+            checkpointStore.remove(bucketName, objectName);
+            return null;
+        }
+        Map<Integer, UploadPart> confirmed = new HashMap<>();
+        uploaded.forEach(e -> confirmed.put(e.getPartNumber(), e));
+        checkpoint.getParts().removeIf(e -> {
+            UploadPart part = confirmed.get(e.getPartNumber());
+            return null == part || part.getSize() != e.getSize() || !this.sameETag(part.getETag(), e.getETag());
+        });
+        return checkpoint;
+    }
+
+    /**
+     * 取消断点对应的分片上传并删除断点
+     */
+    private void discardCheckpoint(Checkpoint checkpoint) throws Exception {
+        try {
+            handler.abortMultipartUpload(checkpoint.getBucketName(), checkpoint.getObjectName(),
+                    checkpoint.getUploadId());
+        } catch (Exception e) {
+            log.warn("abort multipart upload error, uploadId: {}", checkpoint.getUploadId(), e);
+        }
+        checkpointStore.remove(checkpoint.getBucketName(), checkpoint.getObjectName());
+    }
+
+    /**
+     * 失败是否可重试，不可重试的失败（如上传校验拒绝、中断）续传同样会失败，不保留分片
+     */
+    private boolean isRetryable(Exception e) {
+        if (Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        return null == classifier || classifier.classify(e) != RetryCategory.NONE;
+    }
+
+    /**
+     * 断点中是否记录了已确认的分片，读取失败时按存在处理，保留断点
+     */
+    private boolean hasAcknowledgedParts(String bucketName, String objectName) {
+        try {
+            Checkpoint checkpoint = checkpointStore.load(bucketName, objectName);
+            return null != checkpoint && !checkpoint.getParts().isEmpty();
+        } catch (Exception e) {
+            log.warn("load checkpoint of {} error", objectName, e);
+            return true;
+        }
+    }
+
+    private boolean sameETag(String a, String b) {
+        return null != a && null != b && this.unquote(a).equalsIgnoreCase(this.unquote(b));
+    }
+
+    private String unquote(String eTag) {
+        return eTag.length() >= 2 && eTag.startsWith("\"") && eTag.endsWith("\"")
+                ? eTag.substring(1, eTag.length() - 1) : eTag;
+    }
+
+    /**
+     * 分片内容 MD5
+     */
+    private String checksum(byte[] data, int length) {
+        ChecksumAlgorithm.Hasher hasher = ChecksumAlgorithm.MD5.newHasher();
+        hasher.update(data, 0, length);
+        return HexFormat.of().formatHex(hasher.digest());
+    }
+
+    protected Checkpoint saveCheckpoint(String bucketName, String objectName, String uploadId) throws Exception {
+        if (null == checkpointStore) {
+            return null;
+        }
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.setBucketName(bucketName);
+        checkpoint.setObjectName(objectName);
+        checkpoint.setUploadId(uploadId);
+        checkpoint.setPartSize(partSize);
+        checkpoint.setCreatedAt(System.currentTimeMillis());
+        checkpointStore.save(checkpoint);
+        return checkpoint;
+    }
+
+    protected List<UploadPart> uploadParts(String bucketName, String objectName, String uploadId, InputStream is,
+                                           byte[] buffer, int length, Checkpoint checkpoint) throws Exception {
+        Map<Integer, UploadPart> acknowledged = new HashMap<>();
+        if (null != checkpoint) {
+            checkpoint.getParts().forEach(e -> acknowledged.put(e.getPartNumber(), e));
+        }
+        BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(maxInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<UploadPart>> futures = new ArrayList<>();
+        int allocated = 1;
+        int partNumber = 0;
+        while (length > 0) {
+            if (++partNumber > MAX_PARTS) {
+                failure.compareAndSet(null, new IOException("Too many parts, increase partSize"));
+                break;
+            }
+            final byte[] data = buffer;
+            final int size = length;
+            final int number = partNumber;
+            UploadPart uploaded = acknowledged.get(number);
+            if (null != uploaded && uploaded.getSize() == size && null != uploaded.getChecksum()
+                    && uploaded.getChecksum().equals(this.checksum(data, size))) {
+                // 已确认且内容一致的分片直接跳过，缓冲区立即复用
+                futures.add(CompletableFuture.completedFuture(uploaded));
+                try {
+                    length = is.readNBytes(buffer, 0, partSize);
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                    break;
+                }
+                continue;
+            }
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    if (null != failure.get()) {
+                        // 已有分片失败，剩余分片不再上传
+                        return null;
+                    }
+                    UploadPart part = handler.uploadPart(bucketName, objectName, uploadId, number, data, size);
+                    if (null != checkpoint) {
+                        part = new UploadPart(part.getPartNumber(), part.getETag(), part.getSize(),
+                                this.checksum(data, size));
+                        checkpointStore.savePart(bucketName, objectName, part);
+                    }
+                    return part;
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                    throw new CompletionException(e);
+                } finally {
+                    buffers.offer(data);
+                }
+            }, executor));
+            try {
+                // 在途分片未达上限时分配新缓冲区，否则等待已完成分片归还
+                buffer = allocated < maxInFlight ? buffers.poll() : buffers.take();
+                if (null == buffer) {
+                    buffer = new byte[partSize];
+                    allocated++;
+                }
+                if (null != failure.get()) {
+                    break;
+                }
+                length = is.readNBytes(buffer, 0, partSize);
+            } catch (IOException | InterruptedException e) {
+                failure.compareAndSet(null, e);
+                break;
+            }
+        }
+        // 等待全部在途分片结束
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).exceptionally(t -> null).join();
+        Throwable t = failure.get();
+        if (null != t) {
+            if (t instanceof Exception e) {
+                throw e;
+            }
+            throw (Error) t;
+        }
+        List<UploadPart> parts = new ArrayList<>(futures.size());
+        for (CompletableFuture<UploadPart> future : futures) {
+            parts.add(future.join());
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,87 @@
+package com.forboot.oss.multipart;
+
+import com.forboot.oss.model.response.OssResult;
+import com.forboot.oss.retry.RetryClassifier;
+import com.forboot.oss.retry.RetryPolicy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * 按分片重试的分片上传处理
+ * <p>
+ * 上传分片、列出分片、取消分片上传是幂等的，失败后按分类重试；初始化及完成分片上传重复执行会产生多余的上传或找不到上传 ID，
+ * 只在确定未被处理时重试。分片数据在内存中，重试直接重新发送，单个分片失败不影响其它分片。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class RetryingMultipartUploadHandler implements MultipartUploadHandler {
+
+    private final MultipartUploadHandler handler;
+
+    private final RetryPolicy retryPolicy;
+
+    private final RetryClassifier classifier;
+
+    public RetryingMultipartUploadHandler(MultipartUploadHandler handler, RetryPolicy retryPolicy,
+                                          RetryClassifier classifier) {
+        this.handler = handler;
+        this.retryPolicy = retryPolicy;
+        this.classifier = classifier;
+    }
+
+    /**
+     * 不足一个分片时的简单上传，文件流支持 mark 时重试前重置到开头，否则不重试
+     */
+    @Override
+    public OssResult putObject(String bucketName, String objectName, InputStream is, long size) throws Exception {
+        if (!is.markSupported()) {
+            return handler.putObject(bucketName, objectName, is, size);
+        }
+        is.mark(Integer.MAX_VALUE);
+        return retryPolicy.execute(() -> handler.putObject(bucketName, objectName, is, size), true, classifier, () -> {
+            try {
+                is.reset();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public String initiateMultipartUpload(String bucketName, String objectName) throws Exception {
+        return retryPolicy.execute(() -> handler.initiateMultipartUpload(bucketName, objectName), false, classifier);
+    }
+
+    @Override
+    public UploadPart uploadPart(String bucketName, String objectName, String uploadId, int partNumber,
+                                 byte[] data, int length) throws Exception {
+        return retryPolicy.execute(() -> handler.uploadPart(bucketName, objectName, uploadId, partNumber, data, length),
+                true, classifier);
+    }
+
+    @Override
+    public List<UploadPart> listParts(String bucketName, String objectName, String uploadId) throws Exception {
+        return retryPolicy.execute(() -> handler.listParts(bucketName, objectName, uploadId), true, classifier);
+    }
+
+    @Override
+    public OssResult completeMultipartUpload(String bucketName, String objectName, String uploadId,
+                                             List<UploadPart> parts) throws Exception {
+        return retryPolicy.execute(() -> handler.completeMultipartUpload(bucketName, objectName, uploadId, parts),
+                false, classifier);
+    }
+
+    @Override
+    public void abortMultipartUpload(String bucketName, String objectName, String uploadId) throws Exception {
+        retryPolicy.execute(() -> {
+            handler.abortMultipartUpload(bucketName, objectName, uploadId);
+            return null;
+        }, true, classifier);
+    }
+}
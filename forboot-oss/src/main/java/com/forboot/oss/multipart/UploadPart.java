@@ -0,0 +1,42 @@
+package com.forboot.oss.multipart;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 已上传分片
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@AllArgsConstructor
+public class UploadPart {
+
+    /**
+     * 分片编号，从 1 开始
+     */
+    private int partNumber;
+
+    /**
+     * 分片 ETag
+     */
+    private String eTag;
+
+    /**
+     * 分片大小
+     */
+    private long size;
+
+    /**
+     * 分片内容 MD5，开启断点续传时记录，续传时与重新读取的分片比对，为空时不跳过
+     */
+    private String checksum;
+
+    public UploadPart(int partNumber, String eTag, long size) {
+        this(partNumber, eTag, size, null);
+    }
+
+}
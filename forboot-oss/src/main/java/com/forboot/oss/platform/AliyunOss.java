@@ -1,25 +1,39 @@
 package com.forboot.oss.platform;
 
 import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientErrorCode;
+import com.aliyun.oss.ClientException;
 import com.aliyun.oss.HttpMethod;
 import com.aliyun.oss.OSSClient;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.ServiceException;
 import com.aliyun.oss.common.auth.DefaultCredentialProvider;
-import com.aliyun.oss.model.DeleteObjectsRequest;
-import com.aliyun.oss.model.OSSObject;
-import com.aliyun.oss.model.PutObjectResult;
+import com.aliyun.oss.event.ProgressEventType;
+import com.aliyun.oss.event.ProgressListener;
+import com.aliyun.oss.internal.OSSHeaders;
+import com.aliyun.oss.model.*;
 import com.forboot.oss.AbstractFileStorage;
 import com.forboot.oss.MultipartUploadResponse;
+import com.forboot.oss.enums.RetryCategory;
+import com.forboot.oss.enums.TransferType;
+import com.forboot.oss.model.response.BatchResult;
 import com.forboot.oss.model.response.OssResult;
+import com.forboot.oss.multipart.MultipartUploadHandler;
+import com.forboot.oss.multipart.UploadPart;
+import com.forboot.oss.progress.ProgressTracker;
+import com.forboot.oss.property.HttpProperty;
 import com.forboot.oss.property.OssProperty;
-import org.springframework.util.ObjectUtils;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.net.URL;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -30,7 +44,7 @@ import java.util.concurrent.TimeUnit;
  * @author ye21st
  * @since 2023/6/15
  */
-public class AliyunOss extends AbstractFileStorage {
+public class AliyunOss extends AbstractFileStorage implements MultipartUploadHandler {
 
     private final OSSClient ossClient;
 
@@ -38,6 +52,18 @@ public class AliyunOss extends AbstractFileStorage {
         this.ossProperty = ossProperty;
         ClientConfiguration clientConfiguration = new ClientConfiguration();
         clientConfiguration.setConnectionTimeout(ossProperty.getConnectionTimeout());
+        HttpProperty http = ossProperty.getHttp();
+        clientConfiguration.setMaxConnections(http.getMaxConnections());
+        clientConfiguration.setSocketTimeout(Math.toIntExact(http.getReadTimeout().toMillis()));
+        clientConfiguration.setIdleConnectionTime(http.getIdleTimeout().toMillis());
+        clientConfiguration.setUseReaper(true);
+        if (ossProperty.getRetry().isEnabled()) {
+            // 开启库级重试时关闭 SDK 错误重试，避免重试次数相乘
+            clientConfiguration.setMaxErrorRetry(0);
+        }
+        if (null != http.getConnectionTtl()) {
+            clientConfiguration.setConnectionTTL(http.getConnectionTtl().toMillis());
+        }
         ossClient = new OSSClient(ossProperty.getEndpoint(), new DefaultCredentialProvider(ossProperty.getAccessKey(),
                 ossProperty.getSecretKey()), clientConfiguration);
     }
@@ -47,125 +73,188 @@ public class AliyunOss extends AbstractFileStorage {
     }
 
     @Override
-    public OssResult uploadFile(InputStream is, String filename, String objectName) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getFileSuffix(filename);
-        String fileName = this.getObjectName(suffix, objectName);
-        PutObjectResult por = ossClient.putObject(bucketName, fileName, is);
-        return null == por ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(fileName)
-                .versionId(por.getVersionId())
-                .filename(filename)
-                .suffix(suffix)
-                .build();
+    public OssResult putObject(String bucketName, String objectName, InputStream is, long size) throws Exception {
+        return this.putObject(bucketName, objectName, is, size, null);
     }
 
-    /**
-     * 上传
-     *
-     * @param file 文件
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
     @Override
-    public OssResult uploadFile(MultipartFile file) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        String fileName = this.getObjectName(suffix);
-        PutObjectResult por = ossClient.putObject(bucketName, fileName, is);
+    protected OssResult putObject(String bucketName, String objectName, InputStream is, long size,
+                                  ProgressTracker progress) throws Exception {
+        ObjectMetadata meta = new ObjectMetadata();
+        if (size >= 0) {
+            meta.setContentLength(size);
+        }
+        PutObjectRequest request = new PutObjectRequest(bucketName, objectName, is, meta);
+        request.setProgressListener(this.progressListener(progress));
+        PutObjectResult por = ossClient.putObject(request);
         return null == por ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(fileName)
+                .objectName(objectName)
                 .versionId(por.getVersionId())
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
+                .eTag(por.getETag())
+                .md5ETag(null == por.getResponse() ? null : this.isMd5ETag(
+                        this.header(por.getResponse().getHeaders(), OSSHeaders.OSS_SERVER_SIDE_ENCRYPTION), null))
                 .build();
     }
 
-    /**
-     * 上传
-     *
-     * @param file 文件
-     * @param dir  想要上传到的文件目录
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
     @Override
-    public OssResult uploadFile(MultipartFile file, String dir) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        String fileName = dir.concat("/").concat(this.getObjectName(suffix));
-        PutObjectResult por = ossClient.putObject(bucketName, fileName, is);
-        return null == por ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(fileName)
-                .versionId(por.getVersionId())
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
-                .build();
+    public String initiateMultipartUpload(String bucketName, String objectName) throws Exception {
+        InitiateMultipartUploadRequest request = new InitiateMultipartUploadRequest(bucketName, objectName);
+        return ossClient.initiateMultipartUpload(request).getUploadId();
     }
 
-    /**
-     * 上传
-     *
-     * @param file     文件
-     * @param dir      想要上传到的文件目录
-     * @param fileName 想要上传的文件名
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
     @Override
-    public OssResult uploadFile(MultipartFile file, String dir, String fileName) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        fileName = dir.concat("/").concat(fileName);
-        PutObjectResult por = ossClient.putObject(bucketName, fileName, is);
-        return null == por ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(fileName)
-                .versionId(por.getVersionId())
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
+    public UploadPart uploadPart(String bucketName, String objectName, String uploadId, int partNumber,
+                                 byte[] data, int length) throws Exception {
+        UploadPartRequest request = new UploadPartRequest(bucketName, objectName, uploadId, partNumber,
+                new ByteArrayInputStream(data, 0, length), length);
+        UploadPartResult uploadPartResult = ossClient.uploadPart(request);
+        return new UploadPart(partNumber, uploadPartResult.getETag(), length);
+    }
+
+    @Override
+    public OssResult completeMultipartUpload(String bucketName, String objectName, String uploadId,
+                                             List<UploadPart> parts) throws Exception {
+        List<PartETag> partETags = parts.stream().map(e -> new PartETag(e.getPartNumber(), e.getETag())).toList();
+        CompleteMultipartUploadResult result = ossClient.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(bucketName, objectName, uploadId, partETags));
+        return null == result ? null : OssResult.builder().bucketName(bucketName)
+                .objectName(objectName)
+                .versionId(result.getVersionId())
+                .eTag(result.getETag())
                 .build();
     }
 
+    @Override
+    public List<UploadPart> listParts(String bucketName, String objectName, String uploadId) throws Exception {
+        List<UploadPart> parts = new ArrayList<>();
+        ListPartsRequest request = new ListPartsRequest(bucketName, objectName, uploadId);
+        PartListing listing;
+        do {
+            try {
+                listing = ossClient.listParts(request);
+            } catch (OSSException e) {
+                if ("NoSuchUpload".equals(e.getErrorCode())) {
+                    return null;
+                }
+                throw e;
+            }
+            listing.getParts().forEach(e -> parts.add(new UploadPart(e.getPartNumber(), e.getETag(), e.getSize())));
+            request.setPartNumberMarker(listing.getNextPartNumberMarker());
+        } while (listing.isTruncated());
+        return parts;
+    }
+
+    @Override
+    public void abortMultipartUpload(String bucketName, String objectName, String uploadId) throws Exception {
+        ossClient.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, objectName, uploadId));
+    }
+
+    @Override
+    protected boolean exists(String bucketName, String objectName) throws Exception {
+        return ossClient.doesObjectExist(bucketName, objectName);
+    }
+
     @Override
     public InputStream download(String objectName) throws Exception {
         String bucketName = this.getBucketName();
-        OSSObject ossObject = ossClient.getObject(bucketName, objectName);
-        return null == ossObject ? null : ossObject.getObjectContent();
+        GetObjectRequest request = new GetObjectRequest(bucketName, objectName);
+        ProgressTracker progress = this.progressTracker(TransferType.DOWNLOAD, bucketName, objectName, -1);
+        request.setProgressListener(this.progressListener(progress));
+        OSSObject ossObject = this.retry(() -> ossClient.getObject(request), true);
+        if (null == ossObject) {
+            return null;
+        }
+        if (null != progress) {
+            progress.setTotalBytes(ossObject.getObjectMetadata().getContentLength());
+        }
+        ObjectMetadata meta = ossObject.getObjectMetadata();
+        return this.throttling(this.verifying(ossObject.getObjectContent(), meta.getETag(),
+                this.isMd5ETag(meta.getServerSideEncryption(), null)), TransferType.DOWNLOAD);
     }
 
-    @Override
-    public boolean delete(List<String> objectNameList) throws Exception {
-        if (ObjectUtils.isEmpty(objectNameList)) {
-            return false;
+    /**
+     * 读取响应头，忽略大小写
+     */
+    private String header(Map<String, String> headers, String name) {
+        if (null == headers) {
+            return null;
         }
-        String bucketName = this.getBucketName();
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 将 SDK 进度事件转为进度统计，上传统计请求字节，下载统计响应字节
+     *
+     * @param progress 进度统计，为空不监听
+     * @return {@link ProgressListener}
+     */
+    protected ProgressListener progressListener(ProgressTracker progress) {
+        if (null == progress) {
+            return ProgressListener.NOOP;
+        }
+        ProgressEventType type = progress.getType() == TransferType.UPLOAD
+                ? ProgressEventType.REQUEST_BYTE_TRANSFER_EVENT : ProgressEventType.RESPONSE_BYTE_TRANSFER_EVENT;
+        return event -> {
+            if (event.getEventType() == type) {
+                progress.transferred(event.getBytes());
+            }
+        };
+    }
+
+    @Override
+    protected List<BatchResult<Void>> deleteChunk(String bucketName, List<String> objectNameList) throws Exception {
         DeleteObjectsRequest deleteObjectsRequest = new DeleteObjectsRequest(bucketName);
         deleteObjectsRequest.setKeys(objectNameList);
-        return null != ossClient.deleteObjects(deleteObjectsRequest);
+        // 非静默模式返回已删除的文件
+        deleteObjectsRequest.setQuiet(false);
+        DeleteObjectsResult deleteObjectsResult = ossClient.deleteObjects(deleteObjectsRequest);
+        Set<String> deleted = null == deleteObjectsResult || null == deleteObjectsResult.getDeletedObjects()
+                ? Set.of() : new HashSet<>(deleteObjectsResult.getDeletedObjects());
+        Map<String, String> errors = new HashMap<>();
+        objectNameList.stream().filter(e -> !deleted.contains(e)).forEach(e -> errors.put(e, "not deleted"));
+        return this.deleteResults(objectNameList, errors);
     }
 
     @Override
     public boolean delete(String objectName) throws Exception {
         String bucketName = this.getBucketName();
-        return null != ossClient.deleteObject(bucketName, objectName);
+        return null != this.retry(() -> ossClient.deleteObject(bucketName, objectName), true);
     }
 
     @Override
-    public String getUrl(String objectName, int duration, TimeUnit unit) throws Exception {
+    protected RetryCategory classify(Exception e) {
+        if (e instanceof ServiceException ex) {
+            // 服务端异常不包含状态码，按错误码分类
+            return this.classify(-1, ex.getErrorCode());
+        }
+        if (e instanceof ClientException ex && null != ex.getErrorCode()) {
+            switch (ex.getErrorCode()) {
+                case ClientErrorCode.CONNECTION_TIMEOUT, ClientErrorCode.CONNECTION_REFUSED,
+                        ClientErrorCode.UNKNOWN_HOST -> {
+                    return RetryCategory.REJECTED;
+                }
+                case ClientErrorCode.SOCKET_TIMEOUT, ClientErrorCode.SOCKET_EXCEPTION -> {
+                    return RetryCategory.TRANSIENT;
+                }
+                default -> {
+                }
+            }
+        }
+        return super.classify(e);
+    }
+
+    @Override
+    protected String generateUrl(String objectName, Date expiration) throws Exception {
         String bucketName = this.getBucketName();
-        Date expiration = this.getExpiration(unit.toSeconds(duration));
         URL url = ossClient.generatePresignedUrl(bucketName, objectName, expiration, HttpMethod.GET);
         return null == url ? null : url.toString();
     }
 
-    protected Date getExpiration(long seconds) {
-        LocalDateTime localDateTime = LocalDateTime.now().plusSeconds(seconds);
-        return Date.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant());
-    }
-
     @Override
     public MultipartUploadResponse getUploadSignedUrl(String filename) {
         String bucketName = this.getBucketName();
@@ -1,26 +1,36 @@
 package com.forboot.oss.platform;
 
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.HttpMethod;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.event.ProgressListener;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.*;
 import com.forboot.oss.AbstractFileStorage;
 import com.forboot.oss.MultipartUploadResponse;
+import com.forboot.oss.enums.RetryCategory;
+import com.forboot.oss.enums.TransferType;
+import com.forboot.oss.model.response.BatchResult;
 import com.forboot.oss.model.response.OssResult;
+import com.forboot.oss.multipart.MultipartUploadHandler;
+import com.forboot.oss.multipart.UploadPart;
+import com.forboot.oss.progress.ProgressTracker;
+import com.forboot.oss.property.HttpProperty;
 import com.forboot.oss.property.OssProperty;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.net.URL;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -31,7 +41,7 @@ import java.util.concurrent.TimeUnit;
  * @author ye21st
  * @since 2023/6/15
  */
-public class AwsS3 extends AbstractFileStorage {
+public class AwsS3 extends AbstractFileStorage implements MultipartUploadHandler {
 
     private final AmazonS3 s3Client;
 
@@ -40,7 +50,24 @@ public class AwsS3 extends AbstractFileStorage {
         BasicAWSCredentials credentials = new BasicAWSCredentials(ossProperty.getAccessKey(), ossProperty.getSecretKey());
         AwsClientBuilder.EndpointConfiguration endpointConfiguration = new AwsClientBuilder.EndpointConfiguration(
                 ossProperty.getEndpoint(), Regions.DEFAULT_REGION.getName());
+        HttpProperty http = ossProperty.getHttp();
+        ClientConfiguration clientConfiguration = new ClientConfiguration();
+        clientConfiguration.setConnectionTimeout(ossProperty.getConnectionTimeout());
+        clientConfiguration.setMaxConnections(http.getMaxConnections());
+        clientConfiguration.setSocketTimeout(Math.toIntExact(http.getReadTimeout().toMillis()));
+        clientConfiguration.setConnectionMaxIdleMillis(http.getIdleTimeout().toMillis());
+        clientConfiguration.setUseReaper(true);
+        clientConfiguration.setUseTcpKeepAlive(http.isTcpKeepAlive());
+        if (ossProperty.getRetry().isEnabled()) {
+            // 开启库级重试时关闭 SDK 错误重试，避免重试次数相乘
+            clientConfiguration.setMaxErrorRetry(0);
+        }
+        if (null != http.getConnectionTtl()) {
+            clientConfiguration.setConnectionTTL(http.getConnectionTtl().toMillis());
+        }
         s3Client = AmazonS3ClientBuilder.standard()
+                // 连接池设置
+                .withClientConfiguration(clientConfiguration)
                 // 凭证设置
                 .withCredentials(new AWSStaticCredentialsProvider(credentials))
                 // endpoint设置
@@ -53,144 +80,179 @@ public class AwsS3 extends AbstractFileStorage {
     }
 
     @Override
-    public OssResult uploadFile(InputStream is, String filename, String objectName) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getFileSuffix(filename);
-        objectName = this.getObjectName(suffix, objectName);
+    public OssResult putObject(String bucketName, String objectName, InputStream is, long size) throws Exception {
+        return this.putObject(bucketName, objectName, is, size, null);
+    }
 
+    @Override
+    protected OssResult putObject(String bucketName, String objectName, InputStream is, long size,
+                                  ProgressTracker progress) throws Exception {
         ObjectMetadata meta = new ObjectMetadata();
-        meta.setContentLength(is.available());
-
+        meta.setContentLength(size);
         PutObjectRequest req = new PutObjectRequest(bucketName, objectName, is, meta);
+        req.setGeneralProgressListener(this.progressListener(progress));
         PutObjectResult putObjRet = s3Client.putObject(req);
-
         return null == putObjRet ? null : OssResult.builder().bucketName(bucketName)
                 .objectName(objectName)
                 .versionId(putObjRet.getVersionId())
-                .filename(filename)
-                .suffix(suffix)
+                .eTag(putObjRet.getETag())
+                .md5ETag(this.isMd5ETag(putObjRet.getSSEAlgorithm(), putObjRet.getSSECustomerAlgorithm()))
                 .build();
     }
 
-    /**
-     * 上传
-     *
-     * @param file 文件
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
     @Override
-    public OssResult uploadFile(MultipartFile file) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        String fileName = this.getObjectName(suffix);
-
-        ObjectMetadata meta = new ObjectMetadata();
-        meta.setContentLength(is.available());
-
-        PutObjectRequest req = new PutObjectRequest(bucketName, fileName, is, meta);
-        PutObjectResult putObjRet = s3Client.putObject(req);
-
-        return null == putObjRet ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(fileName)
-                .versionId(putObjRet.getVersionId())
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
-                .build();
+    public String initiateMultipartUpload(String bucketName, String objectName) throws Exception {
+        InitiateMultipartUploadRequest req = new InitiateMultipartUploadRequest(bucketName, objectName);
+        return s3Client.initiateMultipartUpload(req).getUploadId();
     }
 
-    /**
-     * 上传
-     *
-     * @param file 文件
-     * @param dir  想要上传到的文件目录
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
     @Override
-    public OssResult uploadFile(MultipartFile file, String dir) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        String fileName = dir.concat("/").concat(this.getObjectName(suffix));
-
-        ObjectMetadata meta = new ObjectMetadata();
-        meta.setContentLength(is.available());
-
-        PutObjectRequest req = new PutObjectRequest(bucketName, fileName, is, meta);
-        PutObjectResult putObjRet = s3Client.putObject(req);
+    public UploadPart uploadPart(String bucketName, String objectName, String uploadId, int partNumber,
+                                 byte[] data, int length) throws Exception {
+        UploadPartRequest req = new UploadPartRequest().withBucketName(bucketName).withKey(objectName)
+                .withUploadId(uploadId).withPartNumber(partNumber)
+                .withInputStream(new ByteArrayInputStream(data, 0, length)).withPartSize(length);
+        UploadPartResult uploadPartResult = s3Client.uploadPart(req);
+        return new UploadPart(partNumber, uploadPartResult.getETag(), length);
+    }
 
-        return null == putObjRet ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(fileName)
-                .versionId(putObjRet.getVersionId())
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
+    @Override
+    public OssResult completeMultipartUpload(String bucketName, String objectName, String uploadId,
+                                             List<UploadPart> parts) throws Exception {
+        List<PartETag> partETags = parts.stream().map(e -> new PartETag(e.getPartNumber(), e.getETag())).toList();
+        CompleteMultipartUploadResult result = s3Client.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(bucketName, objectName, uploadId, partETags));
+        return null == result ? null : OssResult.builder().bucketName(bucketName)
+                .objectName(objectName)
+                .versionId(result.getVersionId())
+                .eTag(result.getETag())
                 .build();
     }
 
-    /**
-     * 上传
-     *
-     * @param file     文件
-     * @param dir      想要上传到的文件目录
-     * @param fileName 想要上传的文件名
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
     @Override
-    public OssResult uploadFile(MultipartFile file, String dir, String fileName) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        fileName = dir.concat("/").concat(fileName);
-
-        ObjectMetadata meta = new ObjectMetadata();
-        meta.setContentLength(is.available());
+    public List<UploadPart> listParts(String bucketName, String objectName, String uploadId) throws Exception {
+        List<UploadPart> parts = new ArrayList<>();
+        ListPartsRequest request = new ListPartsRequest(bucketName, objectName, uploadId);
+        PartListing listing;
+        do {
+            try {
+                listing = s3Client.listParts(request);
+            } catch (AmazonS3Exception e) {
+                if ("NoSuchUpload".equals(e.getErrorCode())) {
+                    return null;
+                }
+                throw e;
+            }
+            listing.getParts().forEach(e -> parts.add(new UploadPart(e.getPartNumber(), e.getETag(), e.getSize())));
+            request.setPartNumberMarker(listing.getNextPartNumberMarker());
+        } while (listing.isTruncated());
+        return parts;
+    }
 
-        PutObjectRequest req = new PutObjectRequest(bucketName, fileName, is, meta);
-        PutObjectResult putObjRet = s3Client.putObject(req);
+    @Override
+    public void abortMultipartUpload(String bucketName, String objectName, String uploadId) throws Exception {
+        s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, objectName, uploadId));
+    }
 
-        return null == putObjRet ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(fileName)
-                .versionId(putObjRet.getVersionId())
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
-                .build();
+    @Override
+    protected boolean exists(String bucketName, String objectName) throws Exception {
+        return s3Client.doesObjectExist(bucketName, objectName);
     }
 
     @Override
     public InputStream download(String objectName) throws Exception {
         String bucketName = this.getBucketName();
-        S3Object ossObject = s3Client.getObject(bucketName, objectName);
-        return null == ossObject ? null : ossObject.getObjectContent();
+        GetObjectRequest req = new GetObjectRequest(bucketName, objectName);
+        ProgressTracker progress = this.progressTracker(TransferType.DOWNLOAD, bucketName, objectName, -1);
+        req.setGeneralProgressListener(this.progressListener(progress));
+        S3Object ossObject = this.retry(() -> s3Client.getObject(req), true);
+        if (null == ossObject) {
+            return null;
+        }
+        if (null != progress) {
+            progress.setTotalBytes(ossObject.getObjectMetadata().getContentLength());
+        }
+        ObjectMetadata meta = ossObject.getObjectMetadata();
+        return this.throttling(this.verifying(ossObject.getObjectContent(), meta.getETag(),
+                this.isMd5ETag(meta.getSSEAlgorithm(), meta.getSSECustomerAlgorithm())), TransferType.DOWNLOAD);
+    }
+
+    /**
+     * 将 SDK 进度事件转为进度统计，上传统计请求字节，下载统计响应字节，重试时回退已发送的字节数
+     *
+     * @param progress 进度统计，为空不监听
+     * @return {@link ProgressListener}
+     */
+    protected ProgressListener progressListener(ProgressTracker progress) {
+        if (null == progress) {
+            return ProgressListener.NOOP;
+        }
+        boolean upload = progress.getType() == TransferType.UPLOAD;
+        return event -> {
+            switch (event.getEventType()) {
+                case REQUEST_BYTE_TRANSFER_EVENT -> {
+                    if (upload) {
+                        progress.transferred(event.getBytes());
+                    }
+                }
+                case RESPONSE_BYTE_TRANSFER_EVENT -> {
+                    if (!upload) {
+                        progress.transferred(event.getBytes());
+                    }
+                }
+                case HTTP_REQUEST_CONTENT_RESET_EVENT -> {
+                    if (upload) {
+                        progress.rewind(event.getBytes());
+                    }
+                }
+                default -> {
+                }
+            }
+        };
     }
 
     @Override
-    public boolean delete(List<String> objectNameList) throws Exception {
-        String bucketName = this.getBucketName();
-        DeleteObjectsRequest deleteObjectsRequest = new DeleteObjectsRequest(bucketName);
+    protected List<BatchResult<Void>> deleteChunk(String bucketName, List<String> objectNameList) throws Exception {
+        DeleteObjectsRequest deleteObjectsRequest = new DeleteObjectsRequest(bucketName).withQuiet(true);
         List<DeleteObjectsRequest.KeyVersion> keyVersionList = new ArrayList<>();
         for (String objectName : objectNameList) {
             keyVersionList.add(new DeleteObjectsRequest.KeyVersion(objectName));
         }
         deleteObjectsRequest.withKeys(keyVersionList);
-        DeleteObjectsResult deleteObjectsResult = s3Client.deleteObjects(deleteObjectsRequest);
-        return null != deleteObjectsResult;
+        Map<String, String> errors = new HashMap<>();
+        try {
+            s3Client.deleteObjects(deleteObjectsRequest);
+        } catch (MultiObjectDeleteException e) {
+            // 部分删除失败
+            e.getErrors().forEach(error -> errors.put(error.getKey(), error.getCode() + ": " + error.getMessage()));
+        }
+        return this.deleteResults(objectNameList, errors);
     }
 
     @Override
     public boolean delete(String objectName) throws Exception {
         String bucketName = this.getBucketName();
-        s3Client.deleteObject(bucketName, objectName);
+        this.retry(() -> {
+            s3Client.deleteObject(bucketName, objectName);
+            return null;
+        }, true);
         return Boolean.TRUE;
     }
 
     @Override
-    public String getUrl(String objectName, int duration, TimeUnit unit) throws Exception {
+    protected RetryCategory classify(Exception e) {
+        if (e instanceof AmazonServiceException ex) {
+            return this.classify(ex.getStatusCode(), ex.getErrorCode());
+        }
+        // SdkClientException 按网络异常分类
+        return super.classify(e);
+    }
+
+    @Override
+    protected String generateUrl(String objectName, Date expiration) throws Exception {
         String bucketName = this.getBucketName();
         GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(bucketName, objectName);
-        request.setExpiration(getExpiration(unit.toSeconds(duration)));
+        request.setExpiration(expiration);
         URL url = s3Client.generatePresignedUrl(request);
         return url.toString();
     }
@@ -205,9 +267,4 @@ public class AwsS3 extends AbstractFileStorage {
         return null == url ? null : MultipartUploadResponse.builder().bucketName(bucketName).objectName(objectName)
                 .uploadUrl(url.toString()).build();
     }
-
-    protected Date getExpiration(long seconds) {
-        LocalDateTime localDateTime = LocalDateTime.now().plusSeconds(seconds);
-        return Date.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant());
-    }
 }
@@ -8,18 +8,31 @@ package com.forboot.oss.platform;
 
 import com.forboot.oss.AbstractFileStorage;
 import com.forboot.oss.MultipartUploadResponse;
+import com.forboot.oss.enums.TransferType;
+import com.forboot.oss.model.response.BatchResult;
 import com.forboot.oss.model.response.OssResult;
+import com.forboot.oss.progress.ProgressTracker;
+import com.forboot.oss.throttle.TokenBucket;
 import com.forboot.oss.property.OssProperty;
-import com.forboot.toolkit.IoUtils;
-import org.springframework.util.ObjectUtils;
-import org.springframework.web.multipart.MultipartFile;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.util.StringUtils;
 
 import java.io.*;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 本地存储
@@ -31,115 +44,161 @@ import java.util.concurrent.TimeUnit;
  */
 public class Local extends AbstractFileStorage {
 
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * 限速时单次传输的字节数
+     */
+    private static final long THROTTLE_CHUNK = 64 * 1024;
+
     public Local(OssProperty ossProperty) {
         this.ossProperty = ossProperty;
     }
 
     @Override
-    public OssResult uploadFile(InputStream is, String filename, String objectName) throws Exception {
-        String suffix = this.getFileSuffix(filename);
-        String fileName = this.getObjectName(suffix, objectName);
-        Path path = Paths.get(this.getLocalFilePath(fileName));
+    protected OssResult putObject(String bucketName, String objectName, InputStream is, long size) throws Exception {
+        Path path = Paths.get(this.getLocalFilePath(objectName));
         Files.createDirectories(path.getParent());
-        Files.copy(is, path);
+        // 与其它平台一致，已存在时覆盖，内容寻址重复上传相同内容时不报错
+        Files.copy(is, path, StandardCopyOption.REPLACE_EXISTING);
         return OssResult.builder().bucketName(this.ossProperty.getLocalFileUrl())
-                .objectName(fileName)
-                .filename(filename)
-                .suffix(suffix)
+                .objectName(objectName)
                 .build();
     }
 
-    /**
-     * 上传
-     *
-     * @param file 文件
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
+    protected String getLocalFilePath(String objectName) throws FileNotFoundException {
+        return this.ossProperty.getLocalFilePath(objectName);
+    }
+
     @Override
-    public OssResult uploadFile(MultipartFile file) throws Exception {
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        String fileName = this.getObjectName(suffix);
-        Path path = Paths.get(this.getLocalFilePath(fileName));
-        Files.createDirectories(path.getParent());
-        Files.copy(is, path);
-        return OssResult.builder().bucketName(this.ossProperty.getLocalFileUrl())
-                .objectName(fileName)
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
-                .build();
+    protected boolean exists(String bucketName, String objectName) throws Exception {
+        return Files.exists(Paths.get(this.getLocalFilePath(objectName)));
     }
 
-    /**
-     * 上传
-     *
-     * @param file 文件
-     * @param dir  想要上传到的文件目录
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
     @Override
-    public OssResult uploadFile(MultipartFile file, String dir) throws Exception {
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        String fileName = dir.concat("/").concat(this.getObjectName(suffix));
-        Path path = Paths.get(this.getLocalFilePath(fileName));
-        Files.createDirectories(path.getParent());
-        Files.copy(is, path);
-        return OssResult.builder().bucketName(this.ossProperty.getLocalFileUrl())
-                .objectName(fileName)
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
-                .build();
+    public InputStream download(String objectName) throws Exception {
+        File file = this.getObjectFile(objectName);
+        InputStream is = this.throttling(new FileInputStream(file), TransferType.DOWNLOAD);
+        return this.tracking(is, this.progressTracker(TransferType.DOWNLOAD, this.getBucketName(), objectName,
+                file.length()));
+    }
+
+    @Override
+    public void download(HttpServletResponse response, String objectName) throws Exception {
+        this.download(null, response, objectName);
     }
 
     /**
-     * 上传
+     * 下载，文件通道直接传输到响应，支持单区间 Range 请求
+     * <p>
+     * Tomcat 开启 sendfile 时交由容器零拷贝发送，否则使用 {@link FileChannel#transferTo} 分段写出，不在堆上缓存文件。
+     * 配置下载限速时不使用 sendfile
      *
-     * @param file     文件
-     * @param dir      想要上传到的文件目录
-     * @param fileName 想要上传的文件名
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
+     * @param request    {@link HttpServletRequest} 为空时返回完整文件
+     * @param response   {@link HttpServletResponse}
+     * @param objectName 文件对象名
      */
     @Override
-    public OssResult uploadFile(MultipartFile file, String dir, String fileName) throws Exception {
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        fileName = dir.concat("/").concat(fileName);
-        Path path = Paths.get(this.getLocalFilePath(fileName));
-        Files.createDirectories(path.getParent());
-        Files.copy(is, path);
-        return OssResult.builder().bucketName(this.ossProperty.getLocalFileUrl())
-                .objectName(fileName)
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
-                .build();
+    public void download(HttpServletRequest request, HttpServletResponse response, String objectName) throws Exception {
+        Path path = this.getObjectFile(objectName).toPath();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            long start = 0;
+            long end = length - 1;
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setHeader("Content-Disposition", "attachment;filename=" +
+                    URLEncoder.encode(objectName, "UTF-8"));
+            String range = null == request ? null : request.getHeader(HttpHeaders.RANGE);
+            if (StringUtils.hasText(range)) {
+                try {
+                    List<HttpRange> ranges = HttpRange.parseRanges(range);
+                    // 多区间返回完整文件
+                    if (ranges.size() == 1) {
+                        start = ranges.get(0).getRangeStart(length);
+                        end = ranges.get(0).getRangeEnd(length);
+                        // 空文件、起始位置越过文件末尾或 bytes=-0 均无法满足
+                        if (length == 0 || start >= length || start > end) {
+                            throw new IllegalArgumentException("Range not satisfiable: " + range);
+                        }
+                        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                    }
+                } catch (IllegalArgumentException e) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+            }
+            response.setContentLengthLong(end - start + 1);
+            List<TokenBucket> throttle = this.throttleBuckets(TransferType.DOWNLOAD);
+            if (throttle.isEmpty() && this.sendfile(request, path, start, end + 1)) {
+                // 容器发送，不统计传输进度
+                return;
+            }
+            ProgressTracker progress = this.progressTracker(TransferType.DOWNLOAD, this.getBucketName(), objectName,
+                    end + 1 - start);
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                // 限速时分段传输，每段传输后获取令牌
+                long count = throttle.isEmpty() ? end + 1 - position : Math.min(end + 1 - position, THROTTLE_CHUNK);
+                long transferred = channel.transferTo(position, count, target);
+                position += transferred;
+                for (TokenBucket bucket : throttle) {
+                    bucket.acquire(transferred);
+                }
+                if (null != progress) {
+                    progress.transferred(transferred);
+                }
+            }
+            if (null != progress) {
+                progress.complete();
+            }
+        }
     }
 
-    protected String getLocalFilePath(String objectName) throws FileNotFoundException {
-        return this.ossProperty.getLocalFilePath(objectName);
+    /**
+     * Tomcat sendfile 零拷贝发送
+     *
+     * @param request {@link HttpServletRequest}
+     * @param path    文件路径
+     * @param start   起始位置
+     * @param end     结束位置（不包含）
+     * @return 是否交由容器发送
+     */
+    protected boolean sendfile(HttpServletRequest request, Path path, long start, long end) throws IOException {
+        if (null == request || !Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            return false;
+        }
+        request.setAttribute(SENDFILE_FILENAME, path.toFile().getCanonicalPath());
+        request.setAttribute(SENDFILE_START, start);
+        request.setAttribute(SENDFILE_END, end);
+        return true;
     }
 
+    /**
+     * 本地文件没有批量删除接口，每个文件单独成批，按 batchParallelism 并发删除
+     */
     @Override
-    public InputStream download(String objectName) throws Exception {
-        try (FileInputStream fis = new FileInputStream(this.getObjectFile(objectName))) {
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            IoUtils.write(fis, out);
-            return new ByteArrayInputStream(out.toByteArray());
-        }
+    protected int getDeleteChunkSize() {
+        return 1;
     }
 
     @Override
-    public boolean delete(List<String> objectNameList) throws Exception {
-        if (ObjectUtils.isEmpty(objectNameList)) {
-            return false;
-        }
+    protected List<BatchResult<Void>> deleteChunk(String bucketName, List<String> objectNameList) throws Exception {
+        List<BatchResult<Void>> results = new ArrayList<>(objectNameList.size());
         for (String objectName : objectNameList) {
-            this.delete(objectName);
+            try {
+                results.add(this.delete(objectName) ? BatchResult.success(objectName, null)
+                        : BatchResult.failure(objectName, "not deleted"));
+            } catch (Exception e) {
+                results.add(BatchResult.failure(objectName, e));
+            }
         }
-        return true;
+        return results;
     }
 
     @Override
@@ -156,7 +215,7 @@ public class Local extends AbstractFileStorage {
     }
 
     @Override
-    public String getUrl(String objectName, int duration, TimeUnit unit) throws Exception {
+    protected String generateUrl(String objectName, Date expiration) throws Exception {
         return this.getLocalFilePath(objectName);
     }
 
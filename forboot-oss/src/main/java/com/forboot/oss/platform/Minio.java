@@ -7,20 +7,43 @@ package com.forboot.oss.platform;
 
 import com.forboot.oss.AbstractFileStorage;
 import com.forboot.oss.MultipartUploadResponse;
+import com.forboot.oss.enums.RetryCategory;
+import com.forboot.oss.enums.TransferType;
+import com.forboot.oss.model.response.BatchResult;
 import com.forboot.oss.model.response.OssResult;
+import com.forboot.oss.multipart.MultipartUploadHandler;
+import com.forboot.oss.multipart.UploadPart;
+import com.forboot.oss.progress.ProgressTracker;
+import com.forboot.oss.property.HttpProperty;
 import com.forboot.oss.property.OssProperty;
 import io.minio.*;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.ServerException;
+import io.minio.http.HttpUtils;
 import io.minio.http.Method;
+import io.minio.messages.DeleteError;
 import io.minio.messages.DeleteObject;
+import io.minio.messages.ListPartsResult;
+import io.minio.messages.Part;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.util.ObjectUtils;
-import org.springframework.web.multipart.MultipartFile;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Headers;
+import okhttp3.OkHttpClient;
 
-import java.io.File;
+import javax.net.SocketFactory;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -33,14 +56,39 @@ import java.util.stream.Collectors;
  * @since 2023/6/15
  */
 @Slf4j
-public class Minio extends AbstractFileStorage {
+public class Minio extends AbstractFileStorage implements MultipartUploadHandler {
 
     private final MinioClient minioClient;
 
+    private final MultipartClient multipartClient;
+
     public Minio(OssProperty ossProperty) {
         this.ossProperty = ossProperty;
+        // 同步与异步客户端共用连接池
+        OkHttpClient httpClient = this.newHttpClient(ossProperty);
         this.minioClient = MinioClient.builder().endpoint(ossProperty.getEndpoint())
                 .credentials(ossProperty.getAccessKey(), ossProperty.getSecretKey())
+                .httpClient(httpClient)
+                .build();
+        this.multipartClient = new MultipartClient(MinioAsyncClient.builder().endpoint(ossProperty.getEndpoint())
+                .credentials(ossProperty.getAccessKey(), ossProperty.getSecretKey())
+                .httpClient(httpClient)
+                .build());
+    }
+
+    protected OkHttpClient newHttpClient(OssProperty ossProperty) {
+        HttpProperty http = ossProperty.getHttp();
+        // 异步请求受 Dispatcher 限制，默认单个域名只有 5 个并发
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(http.getMaxConnections());
+        dispatcher.setMaxRequestsPerHost(http.getMaxConnections());
+        return HttpUtils.newDefaultHttpClient(ossProperty.getConnectionTimeout(), http.getWriteTimeout().toMillis(),
+                        http.getReadTimeout().toMillis()).newBuilder()
+                .connectionPool(new ConnectionPool(http.getMaxConnections(), http.getIdleTimeout().toMillis(),
+                        TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .socketFactory(new TcpSocketFactory(SocketFactory.getDefault(), http.isTcpNoDelay(),
+                        http.isTcpKeepAlive()))
                 .build();
     }
 
@@ -49,132 +97,142 @@ public class Minio extends AbstractFileStorage {
     }
 
     @Override
-    public OssResult uploadFile(InputStream is, String filename, String objectName) throws Exception {
-        if (null == is || null == filename) {
-            return null;
-        }
-        String bucketName = this.getBucketName();
-        String suffix = this.getFileSuffix(filename);
-        String fileName = this.getObjectName(suffix, objectName);
+    public OssResult putObject(String bucketName, String objectName, InputStream is, long size) throws Exception {
         ObjectWriteResponse response = minioClient.putObject(PutObjectArgs.builder()
-                .bucket(bucketName).object(fileName)
-                .stream(is, is.available(), -1).build());
+                .bucket(bucketName).object(objectName)
+                .stream(is, size, -1).build());
         return null == response ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(fileName)
+                .objectName(objectName)
                 .versionId(response.versionId())
-                .filename(filename)
-                .suffix(suffix)
+                .eTag(response.etag())
+                .md5ETag(this.isMd5ETag(response.headers()))
                 .build();
     }
 
     /**
-     * 上传
-     *
-     * @param file 文件
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
+     * 按响应头中的服务端加密方式判断 ETag 是否为内容 MD5
      */
+    private boolean isMd5ETag(Headers headers) {
+        return this.isMd5ETag(headers.get("x-amz-server-side-encryption"),
+                headers.get("x-amz-server-side-encryption-customer-algorithm"));
+    }
+
     @Override
-    public OssResult uploadFile(MultipartFile file) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        String fileName = this.getObjectName(suffix);
-        ObjectWriteResponse response = minioClient.putObject(PutObjectArgs.builder()
-                .bucket(bucketName).object(fileName)
-                .stream(is, is.available(), -1).build());
-        return null == response ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(fileName)
-                .versionId(response.versionId())
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
-                .build();
+    public String initiateMultipartUpload(String bucketName, String objectName) throws Exception {
+        return multipartClient.createMultipartUpload(bucketName, objectName);
     }
 
-    /**
-     * 上传
-     *
-     * @param file 文件
-     * @param dir  想要上传到的文件目录
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
     @Override
-    public OssResult uploadFile(MultipartFile file, String dir) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        String fileName = dir.concat("/").concat(this.getObjectName(suffix));
-        ObjectWriteResponse response = minioClient.putObject(PutObjectArgs.builder()
-                .bucket(bucketName).object(fileName)
-                .stream(is, is.available(), -1).build());
-        return null == response ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(fileName)
-                .versionId(response.versionId())
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
-                .build();
+    public UploadPart uploadPart(String bucketName, String objectName, String uploadId, int partNumber,
+                                 byte[] data, int length) throws Exception {
+        String etag = multipartClient.uploadPart(bucketName, objectName, uploadId, partNumber, data, length);
+        return new UploadPart(partNumber, etag, length);
     }
 
-    /**
-     * 上传
-     *
-     * @param file     文件
-     * @param dir      想要上传到的文件目录
-     * @param fileName 想要上传的文件名
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
     @Override
-    public OssResult uploadFile(MultipartFile file, String dir, String fileName) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        fileName = dir.concat("/").concat(fileName);
-        ObjectWriteResponse response = minioClient.putObject(PutObjectArgs.builder()
-                .bucket(bucketName).object(fileName)
-                .stream(is, is.available(), -1).build());
+    public OssResult completeMultipartUpload(String bucketName, String objectName, String uploadId,
+                                             List<UploadPart> parts) throws Exception {
+        Part[] minioParts = parts.stream().map(e -> new Part(e.getPartNumber(), e.getETag())).toArray(Part[]::new);
+        ObjectWriteResponse response = multipartClient.completeMultipartUpload(bucketName, objectName, uploadId,
+                minioParts);
         return null == response ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(fileName)
+                .objectName(objectName)
                 .versionId(response.versionId())
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
+                .eTag(response.etag())
                 .build();
     }
 
+    @Override
+    public List<UploadPart> listParts(String bucketName, String objectName, String uploadId) throws Exception {
+        try {
+            return multipartClient.listParts(bucketName, objectName, uploadId);
+        } catch (ErrorResponseException e) {
+            if ("NoSuchUpload".equals(e.errorResponse().code())) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String bucketName, String objectName, String uploadId) throws Exception {
+        multipartClient.abortMultipartUpload(bucketName, objectName, uploadId);
+    }
+
+    @Override
+    protected boolean exists(String bucketName, String objectName) throws Exception {
+        try {
+            minioClient.statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).build());
+            return true;
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
     @Override
     public InputStream download(String objectName) throws Exception {
         String bucketName = this.getBucketName();
-        return minioClient.getObject(GetObjectArgs.builder()
+        GetObjectResponse response = this.retry(() -> minioClient.getObject(GetObjectArgs.builder()
                 .bucket(bucketName).object(objectName)
-                .build());
+                .build()), true);
+        if (null == response) {
+            return null;
+        }
+        String contentLength = response.headers().get("Content-Length");
+        ProgressTracker progress = this.progressTracker(TransferType.DOWNLOAD, bucketName, objectName,
+                null == contentLength ? -1 : Long.parseLong(contentLength));
+        InputStream is = this.verifying(response, response.headers().get("ETag"), this.isMd5ETag(response.headers()));
+        return this.tracking(this.throttling(is, TransferType.DOWNLOAD), progress);
     }
 
     @Override
-    public boolean delete(List<String> objectNameList) throws Exception {
-        if (ObjectUtils.isEmpty(objectNameList)) {
-            return false;
-        }
-        String bucketName = this.getBucketName();
-        minioClient.removeObjects(RemoveObjectsArgs.builder().bucket(bucketName)
+    protected List<BatchResult<Void>> deleteChunk(String bucketName, List<String> objectNameList) throws Exception {
+        Iterable<Result<DeleteError>> results = minioClient.removeObjects(RemoveObjectsArgs.builder().bucket(bucketName)
                 .objects(objectNameList.stream().map(DeleteObject::new).collect(Collectors.toList()))
                 .build());
-        return true;
+        // 删除是惰性执行的，需要遍历结果
+        Map<String, String> errors = new HashMap<>();
+        for (Result<DeleteError> result : results) {
+            DeleteError error = result.get();
+            errors.put(error.objectName(), error.code() + ": " + error.message());
+        }
+        return this.deleteResults(objectNameList, errors);
     }
 
     @Override
     public boolean delete(String objectName) throws Exception {
         String bucketName = this.getBucketName();
-        minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucketName)
-                .object(objectName).build());
+        this.retry(() -> {
+            minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucketName)
+                    .object(objectName).build());
+            return null;
+        }, true);
         return true;
     }
 
     @Override
-    public String getUrl(String objectName, int duration, TimeUnit unit) throws Exception {
+    protected RetryCategory classify(Exception e) {
+        if (e instanceof ErrorResponseException ex) {
+            return this.classify(null == ex.response() ? -1 : ex.response().code(),
+                    null == ex.errorResponse() ? null : ex.errorResponse().code());
+        }
+        if (e instanceof ServerException ex) {
+            return this.classify(ex.statusCode(), null);
+        }
+        // 网络异常直接抛出 IOException
+        return super.classify(e);
+    }
+
+    @Override
+    protected String generateUrl(String objectName, Date expiration) throws Exception {
         String bucketName = this.getBucketName();
+        // minio 只支持相对有效期
+        int expiry = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(expiration.getTime() - System.currentTimeMillis()));
         return minioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
-                .method(Method.GET).expiry(duration, unit)
+                .method(Method.GET).expiry(expiry)
                 .bucket(bucketName)
                 .extraQueryParams(this.queryParams(objectName))
                 .object(objectName).build());
@@ -206,4 +264,109 @@ public class Minio extends AbstractFileStorage {
             return null;
         }
     }
+
+    /**
+     * 分片上传客户端，开放 minio 原生分片上传接口
+     */
+    static class MultipartClient extends MinioAsyncClient {
+
+        MultipartClient(MinioAsyncClient client) {
+            super(client);
+        }
+
+        String createMultipartUpload(String bucketName, String objectName) throws Exception {
+            return join(this.createMultipartUploadAsync(bucketName, null, objectName, null, null))
+                    .result().uploadId();
+        }
+
+        String uploadPart(String bucketName, String objectName, String uploadId, int partNumber,
+                          byte[] data, int length) throws Exception {
+            return join(this.uploadPartAsync(bucketName, null, objectName, data, length, uploadId, partNumber,
+                    null, null)).etag();
+        }
+
+        ObjectWriteResponse completeMultipartUpload(String bucketName, String objectName, String uploadId,
+                                                    Part[] parts) throws Exception {
+            return join(this.completeMultipartUploadAsync(bucketName, null, objectName, uploadId, parts,
+                    null, null));
+        }
+
+        List<UploadPart> listParts(String bucketName, String objectName, String uploadId) throws Exception {
+            List<UploadPart> parts = new ArrayList<>();
+            Integer marker = null;
+            ListPartsResult result;
+            do {
+                result = join(this.listPartsAsync(bucketName, null, objectName, null, marker, uploadId, null, null))
+                        .result();
+                result.partList().forEach(e -> parts.add(new UploadPart(e.partNumber(), e.etag(), e.partSize())));
+                marker = result.nextPartNumberMarker();
+            } while (result.isTruncated());
+            return parts;
+        }
+
+        void abortMultipartUpload(String bucketName, String objectName, String uploadId) throws Exception {
+            join(this.abortMultipartUploadAsync(bucketName, null, objectName, uploadId, null, null));
+        }
+
+        private static <T> T join(CompletableFuture<T> future) throws Exception {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 创建 socket 时设置 TCP 参数，OkHttp 不提供对应配置
+     */
+    static class TcpSocketFactory extends SocketFactory {
+
+        private final SocketFactory delegate;
+
+        private final boolean tcpNoDelay;
+
+        private final boolean keepAlive;
+
+        TcpSocketFactory(SocketFactory delegate, boolean tcpNoDelay, boolean keepAlive) {
+            this.delegate = delegate;
+            this.tcpNoDelay = tcpNoDelay;
+            this.keepAlive = keepAlive;
+        }
+
+        private Socket configure(Socket socket) throws SocketException {
+            socket.setTcpNoDelay(tcpNoDelay);
+            socket.setKeepAlive(keepAlive);
+            return socket;
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return this.configure(delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return this.configure(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return this.configure(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return this.configure(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+                throws IOException {
+            return this.configure(delegate.createSocket(address, port, localAddress, localPort));
+        }
+    }
 }
@@ -3,22 +3,29 @@ package com.forboot.oss.platform;
 import com.forboot.oss.AbstractFileStorage;
 import com.forboot.oss.MultipartUploadResponse;
 import com.forboot.oss.enums.AccessControl;
+import com.forboot.oss.enums.RetryCategory;
+import com.forboot.oss.enums.TransferType;
+import com.forboot.oss.model.response.BatchResult;
 import com.forboot.oss.model.response.OssResult;
+import com.forboot.oss.property.HttpProperty;
 import com.forboot.oss.property.OssProperty;
 import com.forboot.toolkit.StrUtils;
 import com.google.gson.Gson;
+import com.qiniu.common.QiniuException;
 import com.qiniu.http.Response;
 import com.qiniu.storage.*;
 import com.qiniu.storage.model.BatchStatus;
 import com.qiniu.storage.model.DefaultPutRet;
 import com.qiniu.util.Auth;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.util.ObjectUtils;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
 import java.net.URL;
+import java.net.URLConnection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -38,7 +45,15 @@ public class QiniuKodo extends AbstractFileStorage {
 
     private final Auth auth;
 
-    private final String upToken;
+    /**
+     * 访问授权，未配置时无法生成文件地址
+     */
+    private final AccessControl accessControl;
+
+    /**
+     * 存储空间域名是否为 https
+     */
+    private final boolean https;
 
     public QiniuKodo(OssProperty ossProperty) {
         this.ossProperty = ossProperty;
@@ -47,185 +62,115 @@ public class QiniuKodo extends AbstractFileStorage {
         Configuration cfg = new Configuration(Region.region0());
         // 指定分片上传版本
         cfg.resumableUploadAPIVersion = Configuration.ResumableUploadAPIVersion.V2;
+        // 连接池设置，七牛云超时时间单位为秒
+        HttpProperty http = ossProperty.getHttp();
+        cfg.connectTimeout = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(ossProperty.getConnectionTimeout()));
+        cfg.readTimeout = (int) Math.max(1, http.getReadTimeout().toSeconds());
+        cfg.writeTimeout = (int) Math.max(1, http.getWriteTimeout().toSeconds());
+        cfg.dispatcherMaxRequests = http.getMaxConnections();
+        cfg.dispatcherMaxRequestsPerHost = http.getMaxConnections();
+        cfg.connectionPoolMaxIdleCount = http.getMaxConnections();
+        cfg.connectionPoolMaxIdleMinutes = (int) Math.max(1, http.getIdleTimeout().toMinutes());
         uploadManager = new UploadManager(cfg);
         auth = Auth.create(ossProperty.getAccessKey(), ossProperty.getSecretKey());
         bucketManager = new BucketManager(auth, cfg);
-        upToken = auth.uploadToken(ossProperty.getBucketName());
+        // 地址生成时不再重复解析配置
+        if (AccessControl.PUBLIC.equalsCode(ossProperty.getAccessControl())) {
+            accessControl = AccessControl.PUBLIC;
+        } else if (AccessControl.PRIVATE.equalsCode(ossProperty.getAccessControl())) {
+            accessControl = AccessControl.PRIVATE;
+        } else {
+            accessControl = null;
+        }
+        https = null != ossProperty.getBucketDomain() && ossProperty.getBucketDomain().startsWith("https://");
     }
 
     /**
-     * 上传
+     * 上传，文件大小未知或超过分片阈值时使用七牛流式分片上传
      *
-     * @param is         文件流 {@link InputStream}
-     * @param filename   文件名
+     * @param bucketName 桶名称
      * @param objectName 文件对象名
+     * @param is         文件流 {@link InputStream}
+     * @param size       文件大小，未知为 -1
      * @return {@link OssResult}
      */
     @Override
-    public OssResult uploadFile(InputStream is, String filename, String objectName) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getFileSuffix(filename);
-        String fileName = this.getObjectName(suffix, objectName);
-
-        Response response = uploadManager.put(is.readAllBytes(), fileName, upToken);
-        DefaultPutRet putRet = new Gson().fromJson(response.bodyString(), DefaultPutRet.class);
-        return OssResult.builder().bucketName(bucketName)
-                        .objectName(putRet.key)
-                        .filename(filename)
-                        .suffix(suffix)
-                        .build();
-    }
-
-    /**
-     * 上传
-     *
-     * @param file 文件
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
-    @Override
-    public OssResult uploadFile(MultipartFile file) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        String fileName = this.getObjectName(suffix);
-        String oldFileName = fileName;
-        // 如果 fileName 前缀有 / 则去掉
-        if (fileName.startsWith("/")) {
-            fileName = fileName.substring(1);
+    protected OssResult putObject(String bucketName, String objectName, InputStream is, long size) throws Exception {
+        String key = objectName;
+        // 如果 key 前缀有 / 则去掉
+        if (key.startsWith("/")) {
+            key = key.substring(1);
         }
-
-        Response response = uploadManager.put(is.readAllBytes(), fileName, upToken);
-        DefaultPutRet putRet = new Gson().fromJson(response.bodyString(), DefaultPutRet.class);
-        return null == putRet ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(oldFileName)
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
-                .build();
-    }
-
-    /**
-     * 上传
-     *
-     * @param file 文件
-     * @param dir  想要上传到的文件目录
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
-    @Override
-    public OssResult uploadFile(MultipartFile file, String dir) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        String fileName = dir.concat("/").concat(this.getObjectName(suffix));
-        String oldFileName = fileName;
-        // 如果 fileName 前缀有 / 则去掉
-        if (fileName.startsWith("/")) {
-            fileName = fileName.substring(1);
+        // 上传凭证按目标桶签发，凭证有过期时间，每次上传重新签发
+        String upToken = auth.uploadToken(bucketName);
+        Response response;
+        if (size < 0 || size >= this.ossProperty.getMultipart().getThreshold().toBytes()) {
+            response = uploadManager.put(is, key, upToken, null, null);
+        } else {
+            response = uploadManager.put(is, size, key, upToken, null, null, false);
         }
-        Response response = uploadManager.put(is.readAllBytes(), fileName, upToken);
         DefaultPutRet putRet = new Gson().fromJson(response.bodyString(), DefaultPutRet.class);
         return null == putRet ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(oldFileName)
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
+                .objectName(objectName)
+                .eTag(putRet.hash)
                 .build();
     }
 
-    /**
-     * 上传
-     *
-     * @param file     文件
-     * @param dir      想要上传到的文件目录
-     * @param fileName 想要上传的文件名
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
     @Override
-    public OssResult uploadFile(MultipartFile file, String dir, String fileName) throws Exception {
-        String suffix = this.getSuffix(file.getContentType());
-        String bucketName = this.getBucketName();
-        InputStream is = file.getInputStream();
-        fileName = dir.concat("/").concat(fileName);
-        String oldFileName = fileName;
-        // 如果 fileName 前缀有 / 则去掉
-        if (fileName.startsWith("/")) {
-            fileName = fileName.substring(1);
+    protected boolean exists(String bucketName, String objectName) throws Exception {
+        try {
+            bucketManager.stat(bucketName, objectName.startsWith("/") ? objectName.substring(1) : objectName);
+            return true;
+        } catch (QiniuException e) {
+            // 612 文件不存在
+            if (e.code() == 612) {
+                return false;
+            }
+            throw e;
         }
-        Response response = uploadManager.put(is.readAllBytes(), fileName, upToken);
-        DefaultPutRet putRet = new Gson().fromJson(response.bodyString(), DefaultPutRet.class);
-        return null == putRet ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(oldFileName)
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
-                .build();
     }
 
-    /**
-     * 下载
-     *
-     * @param objectName 文件对象名
-     * @return {@link InputStream}
-     */
     @Override
     public InputStream download(String objectName) throws Exception {
-        String bucketDomain = this.getBucketDomain();
-        // 判断是否有为https
-        boolean isHttps = bucketDomain.startsWith("https://");
-        DownloadUrl downloadUrl = new DownloadUrl(bucketDomain, isHttps, objectName);
-        // 设置附件名称 不设置，则该链接不会弹出下载框
-//        downloadUrl.setAttname("rose.jpg");
-        // 设置数据处理操作
-//        downloadUrl.setFop("imageMogr2/thumbnail/!50p");
-        // 设置样式名称
-//        downloadUrl.setStyle("small", "_", "?imageView2/2/w/100/h/100/format/jpg/interlace/1/q/75|imageslim");
-
-        String url = null;
-
-        if (AccessControl.PUBLIC.equalsCode(ossProperty.getAccessControl())) {
-            url = downloadUrl.buildURL();
-        } else if (AccessControl.PRIVATE.equalsCode(ossProperty.getAccessControl())) {
-            // 1小时，可以自定义链接过期时间
-            long expireInSeconds = 3600;
-            long deadline = System.currentTimeMillis() / 1000 + expireInSeconds;
-            url = downloadUrl.buildURL(auth, deadline);
-        }
-        if (StrUtils.isBlank(url)) {
-            throw new Exception("download url is null");
-        }
-        // 将下载链接转为输入流
-        return new URL(url).openStream();
+        // 1小时，可以自定义链接过期时间
+        String url = this.generateUrl(objectName, this.getExpiration(3600));
+        // 将下载链接转为输入流，重试时重新建立连接
+        URLConnection connection = this.retry(() -> {
+            URLConnection c = new URL(url).openConnection();
+            c.getInputStream();
+            return c;
+        }, true);
+        InputStream is = this.throttling(connection.getInputStream(), TransferType.DOWNLOAD);
+        return this.tracking(is, this.progressTracker(TransferType.DOWNLOAD, this.getBucketName(), objectName,
+                connection.getContentLengthLong()));
     }
 
     /**
-     * 删除文件
+     * 批量删除文件，单次最多 1000 个
      *
+     * @param bucketName     桶名称
      * @param objectNameList 文件对象名列表
+     * @return 与文件顺序一致的删除结果
      * @throws Exception 异常
      */
     @Override
-    public boolean delete(List<String> objectNameList) throws Exception {
-        if (ObjectUtils.isEmpty(objectNameList)) {
-            return false;
-        }
+    protected List<BatchResult<Void>> deleteChunk(String bucketName, List<String> objectNameList) throws Exception {
         // 构建批量删除的请求参数
         BucketManager.BatchOperations batchOperations = new BucketManager.BatchOperations();
         // objectNameList 转为 String 数组
         String[] objects = objectNameList.toArray(new String[0]);
-        batchOperations.addDeleteOp(this.getBucketName(), objects);
+        batchOperations.addDeleteOp(bucketName, objects);
         // 调用batch方法批量执行操作
         Response res = bucketManager.batch(batchOperations);
         BatchStatus[] batchStatusList = res.jsonToObject(BatchStatus[].class);
+        Map<String, String> errors = new HashMap<>();
         for (int i = 0; i < objectNameList.size(); i++) {
             BatchStatus status = batchStatusList[i];
-            String objectName = objectNameList.get(i);
-            if (200 == status.code) {
-                log.info("文件删除成功：{}", objectName);
-            } else {
-                log.info("文件删除失败：{}", objectName);
+            if (200 != status.code) {
+                errors.put(objectNameList.get(i), status.code + ": " + (null == status.data ? null : status.data.error));
             }
         }
-        return true;
+        return this.deleteResults(objectNameList, errors);
     }
 
     /**
@@ -239,24 +184,39 @@ public class QiniuKodo extends AbstractFileStorage {
         if (StrUtils.isBlank(objectName)) {
             return false;
         }
-        bucketManager.delete(this.getBucketName(), objectName);
+        String bucketName = this.getBucketName();
+        this.retry(() -> bucketManager.delete(bucketName, objectName), true);
         return true;
     }
 
     /**
-     * 获取文件地址
+     * 七牛异常，573 为请求频率超限
+     */
+    @Override
+    protected RetryCategory classify(Exception e) {
+        if (e instanceof QiniuException ex) {
+            if (ex.isUnrecoverable()) {
+                return RetryCategory.NONE;
+            }
+            if (null != ex.response) {
+                return ex.code() == 573 ? RetryCategory.REJECTED : this.classify(ex.code(), null);
+            }
+            // 无响应为网络异常，按原因分类
+            return ex.getCause() instanceof Exception cause ? super.classify(cause) : RetryCategory.TRANSIENT;
+        }
+        return super.classify(e);
+    }
+
+    /**
+     * 生成文件地址，批量签名时共用同一过期时间
      *
      * @param objectName 文件对象名
-     * @param duration   期间
-     * @param unit       时间单位 {@link TimeUnit}
+     * @param expiration 过期时间
      * @return 文件地址
      */
     @Override
-    public String getUrl(String objectName, int duration, TimeUnit unit) throws Exception {
-        String bucketDomain = this.getBucketDomain();
-        // 判断是否有为https
-        boolean isHttps = bucketDomain.startsWith("https://");
-        DownloadUrl downloadUrl = new DownloadUrl(bucketDomain, isHttps, objectName);
+    protected String generateUrl(String objectName, Date expiration) throws Exception {
+        DownloadUrl downloadUrl = new DownloadUrl(this.getBucketDomain(), https, objectName);
         // 设置附件名称 不设置，则该链接不会弹出下载框
 //        downloadUrl.setAttname("rose.jpg");
         // 设置数据处理操作
@@ -266,13 +226,12 @@ public class QiniuKodo extends AbstractFileStorage {
 
         String url = null;
 
-        if (AccessControl.PUBLIC.equalsCode(ossProperty.getAccessControl())) {
+        if (null == accessControl) {
+            throw new Exception("get file url is error");
+        } else if (AccessControl.PUBLIC == accessControl) {
             url = downloadUrl.buildURL();
-        } else if (AccessControl.PRIVATE.equalsCode(ossProperty.getAccessControl())) {
-            // 1小时，可以自定义链接过期时间
-            long expireInSeconds = 3600;
-            long deadline = System.currentTimeMillis() / 1000 + expireInSeconds;
-            url = downloadUrl.buildURL(auth, deadline);
+        } else {
+            url = downloadUrl.buildURL(auth, TimeUnit.MILLISECONDS.toSeconds(expiration.getTime()));
         }
         if (StrUtils.isBlank(url)) {
             throw new Exception("get file url is error");
@@ -7,22 +7,33 @@ package com.forboot.oss.platform;
 
 import com.forboot.oss.AbstractFileStorage;
 import com.forboot.oss.MultipartUploadResponse;
+import com.forboot.oss.enums.RetryCategory;
+import com.forboot.oss.enums.TransferType;
+import com.forboot.oss.model.response.BatchResult;
 import com.forboot.oss.model.response.OssResult;
+import com.forboot.oss.multipart.MultipartUploadHandler;
+import com.forboot.oss.multipart.UploadPart;
+import com.forboot.oss.progress.ProgressTracker;
+import com.forboot.oss.property.HttpProperty;
 import com.forboot.oss.property.OssProperty;
-import com.forboot.toolkit.ObjectUtils;
 import com.qcloud.cos.COSClient;
 import com.qcloud.cos.ClientConfig;
 import com.qcloud.cos.auth.BasicCOSCredentials;
 import com.qcloud.cos.auth.COSCredentials;
+import com.qcloud.cos.event.ProgressListener;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.exception.MultiObjectDeleteException;
 import com.qcloud.cos.http.HttpProtocol;
 import com.qcloud.cos.model.*;
 import com.qcloud.cos.region.Region;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
 
 /**
  * 腾讯云对象存储（Cloud Object Storage，COS）
@@ -32,7 +43,7 @@ import java.util.concurrent.TimeUnit;
  * @author ye21st
  * @since 2023/6/15
  */
-public class TencentCos extends AbstractFileStorage {
+public class TencentCos extends AbstractFileStorage implements MultipartUploadHandler {
 
     private final COSClient cosClient;
 
@@ -49,6 +60,14 @@ public class TencentCos extends AbstractFileStorage {
         // 从 5.6.54 版本开始，默认使用了 https
         clientConfig.setHttpProtocol(HttpProtocol.https);
         clientConfig.setConnectionTimeout(ossProperty.getConnectionTimeout());
+        HttpProperty http = ossProperty.getHttp();
+        clientConfig.setMaxConnectionsCount(http.getMaxConnections());
+        clientConfig.setSocketTimeout(Math.toIntExact(http.getReadTimeout().toMillis()));
+        clientConfig.setIdleConnectionAlive(Math.toIntExact(http.getIdleTimeout().toMillis()));
+        if (ossProperty.getRetry().isEnabled()) {
+            // 开启库级重试时关闭 SDK 错误重试，避免重试次数相乘
+            clientConfig.setMaxErrorRetry(0);
+        }
         // 3 生成 cos 客户端。
         cosClient = new COSClient(cred, clientConfig);
     }
@@ -58,137 +77,187 @@ public class TencentCos extends AbstractFileStorage {
     }
 
     @Override
-    public OssResult uploadFile(InputStream is, String filename, String objectName) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getFileSuffix(filename);
-        String fileName = this.getObjectName(suffix, objectName);
-
-        PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, fileName, is, null);
-        PutObjectResult por = cosClient.putObject(putObjectRequest);
-
-        return null == por ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(fileName)
-                .versionId(por.getVersionId())
-                .filename(filename)
-                .suffix(suffix)
-                .build();
+    public OssResult putObject(String bucketName, String objectName, InputStream is, long size) throws Exception {
+        return this.putObject(bucketName, objectName, is, size, null);
     }
 
-    /**
-     * 上传
-     *
-     * @param file 文件
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
     @Override
-    public OssResult uploadFile(MultipartFile file) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        String fileName = this.getObjectName(suffix);
-
-        PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, fileName, is, null);
+    protected OssResult putObject(String bucketName, String objectName, InputStream is, long size,
+                                  ProgressTracker progress) throws Exception {
+        ObjectMetadata meta = new ObjectMetadata();
+        if (size >= 0) {
+            meta.setContentLength(size);
+        }
+        PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, objectName, is, meta);
+        putObjectRequest.setGeneralProgressListener(this.progressListener(progress));
         PutObjectResult por = cosClient.putObject(putObjectRequest);
-
         return null == por ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(fileName)
+                .objectName(objectName)
                 .versionId(por.getVersionId())
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
+                .eTag(por.getETag())
+                .md5ETag(this.isMd5ETag(por.getSSEAlgorithm(), por.getSSECustomerAlgorithm()))
                 .build();
     }
 
-    /**
-     * 上传
-     *
-     * @param file 文件
-     * @param dir  想要上传到的文件目录
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
     @Override
-    public OssResult uploadFile(MultipartFile file, String dir) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        String fileName = dir.concat("/").concat(this.getObjectName(suffix));
+    public String initiateMultipartUpload(String bucketName, String objectName) throws Exception {
+        InitiateMultipartUploadRequest request = new InitiateMultipartUploadRequest(bucketName, objectName);
+        return cosClient.initiateMultipartUpload(request).getUploadId();
+    }
 
-        PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, fileName, is, null);
-        PutObjectResult por = cosClient.putObject(putObjectRequest);
+    @Override
+    public UploadPart uploadPart(String bucketName, String objectName, String uploadId, int partNumber,
+                                 byte[] data, int length) throws Exception {
+        UploadPartRequest request = new UploadPartRequest();
+        request.setBucketName(bucketName);
+        request.setKey(objectName);
+        request.setUploadId(uploadId);
+        request.setPartNumber(partNumber);
+        request.setInputStream(new ByteArrayInputStream(data, 0, length));
+        request.setPartSize(length);
+        UploadPartResult uploadPartResult = cosClient.uploadPart(request);
+        return new UploadPart(partNumber, uploadPartResult.getETag(), length);
+    }
 
-        return null == por ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(fileName)
-                .versionId(por.getVersionId())
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
+    @Override
+    public OssResult completeMultipartUpload(String bucketName, String objectName, String uploadId,
+                                             List<UploadPart> parts) throws Exception {
+        List<PartETag> partETags = parts.stream().map(e -> new PartETag(e.getPartNumber(), e.getETag())).toList();
+        CompleteMultipartUploadResult result = cosClient.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(bucketName, objectName, uploadId, partETags));
+        return null == result ? null : OssResult.builder().bucketName(bucketName)
+                .objectName(objectName)
+                .versionId(result.getVersionId())
+                .eTag(result.getETag())
                 .build();
     }
 
-    /**
-     * 上传
-     *
-     * @param file     文件
-     * @param dir      想要上传到的文件目录
-     * @param fileName 想要上传的文件名
-     * @return {@link OssResult} 上传结果
-     * @throws Exception 异常
-     */
     @Override
-    public OssResult uploadFile(MultipartFile file, String dir, String fileName) throws Exception {
-        String bucketName = this.getBucketName();
-        String suffix = this.getSuffix(file.getContentType());
-        InputStream is = file.getInputStream();
-        fileName = dir.concat("/").concat(fileName);
+    public List<UploadPart> listParts(String bucketName, String objectName, String uploadId) throws Exception {
+        List<UploadPart> parts = new ArrayList<>();
+        ListPartsRequest request = new ListPartsRequest(bucketName, objectName, uploadId);
+        PartListing listing;
+        do {
+            try {
+                listing = cosClient.listParts(request);
+            } catch (CosServiceException e) {
+                if ("NoSuchUpload".equals(e.getErrorCode())) {
+                    return null;
+                }
+                throw e;
+            }
+            listing.getParts().forEach(e -> parts.add(new UploadPart(e.getPartNumber(), e.getETag(), e.getSize())));
+            request.setPartNumberMarker(listing.getNextPartNumberMarker());
+        } while (listing.isTruncated());
+        return parts;
+    }
 
-        PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, fileName, is, null);
-        PutObjectResult por = cosClient.putObject(putObjectRequest);
+    @Override
+    public void abortMultipartUpload(String bucketName, String objectName, String uploadId) throws Exception {
+        cosClient.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, objectName, uploadId));
+    }
 
-        return null == por ? null : OssResult.builder().bucketName(bucketName)
-                .objectName(fileName)
-                .versionId(por.getVersionId())
-                .filename(file.getOriginalFilename())
-                .suffix(suffix)
-                .build();
+    @Override
+    protected boolean exists(String bucketName, String objectName) throws Exception {
+        return cosClient.doesObjectExist(bucketName, objectName);
     }
 
     @Override
     public InputStream download(String objectName) throws Exception {
         // 获取下载输入流
         GetObjectRequest getObjectRequest = new GetObjectRequest(this.getBucketName(), objectName);
-        COSObject cosObject = cosClient.getObject(getObjectRequest);
-        return null == cosObject ? null : cosObject.getObjectContent();
+        ProgressTracker progress = this.progressTracker(TransferType.DOWNLOAD, this.getBucketName(), objectName, -1);
+        getObjectRequest.setGeneralProgressListener(this.progressListener(progress));
+        COSObject cosObject = this.retry(() -> cosClient.getObject(getObjectRequest), true);
+        if (null == cosObject) {
+            return null;
+        }
+        if (null != progress) {
+            progress.setTotalBytes(cosObject.getObjectMetadata().getContentLength());
+        }
+        ObjectMetadata meta = cosObject.getObjectMetadata();
+        return this.throttling(this.verifying(cosObject.getObjectContent(), meta.getETag(),
+                this.isMd5ETag(meta.getSSEAlgorithm(), meta.getSSECustomerAlgorithm())), TransferType.DOWNLOAD);
     }
 
-    @Override
-    public boolean delete(List<String> objectNameList) throws Exception {
-        if (ObjectUtils.isEmpty(objectNameList)) {
-            return false;
+    /**
+     * 将 SDK 进度事件转为进度统计，上传统计请求字节，下载统计响应字节，重试时回退已发送的字节数
+     *
+     * @param progress 进度统计，为空不监听
+     * @return {@link ProgressListener}
+     */
+    protected ProgressListener progressListener(ProgressTracker progress) {
+        if (null == progress) {
+            return ProgressListener.NOOP;
         }
-        String bucketName = this.getBucketName();
+        boolean upload = progress.getType() == TransferType.UPLOAD;
+        return event -> {
+            switch (event.getEventType()) {
+                case REQUEST_BYTE_TRANSFER_EVENT -> {
+                    if (upload) {
+                        progress.transferred(event.getBytes());
+                    }
+                }
+                case RESPONSE_BYTE_TRANSFER_EVENT -> {
+                    if (!upload) {
+                        progress.transferred(event.getBytes());
+                    }
+                }
+                case HTTP_REQUEST_CONTENT_RESET_EVENT -> {
+                    if (upload) {
+                        progress.rewind(event.getBytes());
+                    }
+                }
+                default -> {
+                }
+            }
+        };
+    }
+
+    @Override
+    protected List<BatchResult<Void>> deleteChunk(String bucketName, List<String> objectNameList) throws Exception {
         // 设置要删除的key列表, 最多一次删除1000个
         ArrayList<DeleteObjectsRequest.KeyVersion> keyList = new ArrayList<>();
         objectNameList.forEach(e -> keyList.add(new DeleteObjectsRequest.KeyVersion(e)));
         DeleteObjectsRequest deleteObjectsRequest = new DeleteObjectsRequest(bucketName);
         deleteObjectsRequest.setKeys(keyList);
-        // 批量删除文件
-        cosClient.deleteObjects(deleteObjectsRequest);
-        return true;
+        deleteObjectsRequest.setQuiet(true);
+        Map<String, String> errors = new HashMap<>();
+        try {
+            // 批量删除文件
+            cosClient.deleteObjects(deleteObjectsRequest);
+        } catch (MultiObjectDeleteException e) {
+            // 部分删除失败
+            e.getErrors().forEach(error -> errors.put(error.getKey(), error.getCode() + ": " + error.getMessage()));
+        }
+        return this.deleteResults(objectNameList, errors);
     }
 
     @Override
     public boolean delete(String objectName) throws Exception {
-        cosClient.deleteObject(this.getBucketName(), objectName);
+        String bucketName = this.getBucketName();
+        this.retry(() -> {
+            cosClient.deleteObject(bucketName, objectName);
+            return null;
+        }, true);
         return true;
     }
 
     @Override
-    public String getUrl(String objectName, int duration, TimeUnit unit) {
+    protected RetryCategory classify(Exception e) {
+        if (e instanceof CosServiceException ex) {
+            return this.classify(ex.getStatusCode(), ex.getErrorCode());
+        }
+        // CosClientException 按网络异常分类
+        return super.classify(e);
+    }
+
+    @Override
+    protected String generateUrl(String objectName, Date expiration) {
         String bucketName = this.getBucketName();
         return cosClient.getObjectUrl(bucketName, objectName).toString();
     }
 
-
     @Override
     public MultipartUploadResponse getUploadSignedUrl(String filename) {
         return null;
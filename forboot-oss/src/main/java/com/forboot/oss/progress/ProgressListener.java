@@ -0,0 +1,23 @@
+package com.forboot.oss.progress;
+
+/**
+ * 传输进度监听
+ * <p>
+ * 在传输线程中回调，分片上传时可能由多个线程回调，实现需线程安全且尽快返回，抛出的异常被忽略
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * 传输进度变化
+     *
+     * @param progress {@link TransferProgress}
+     */
+    void onProgress(TransferProgress progress);
+
+}
@@ -0,0 +1,157 @@
+package com.forboot.oss.progress;
+
+import com.forboot.oss.enums.TransferType;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 一次传输的进度统计，按字节间隔或时间间隔回调 {@link ProgressListener}
+ * <p>
+ * 字节数由平台 SDK 的进度事件或计数文件流累加。下载在传输字节数达到总字节数或读取到末尾时完成，
+ * 上传在平台返回结果后由调用方完成。传输停滞时没有新的字节不会回调，可根据最近回调的时间判断。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Slf4j
+public class ProgressTracker {
+
+    private final ProgressListener listener;
+
+    private final TransferType type;
+
+    private final String bucketName;
+
+    private final String objectName;
+
+    private final long byteInterval;
+
+    private final long timeIntervalNanos;
+
+    private final long startNanos = System.nanoTime();
+
+    private long totalBytes;
+
+    private long transferred;
+
+    private long lastBytes;
+
+    private long lastNanos = startNanos;
+
+    private boolean completed;
+
+    /**
+     * @param listener          进度监听
+     * @param type              传输类型
+     * @param bucketName        桶名称
+     * @param objectName        文件对象名
+     * @param totalBytes        总字节数，未知传 -1
+     * @param byteInterval      回调的字节间隔，小于等于 0 不按字节回调
+     * @param timeIntervalNanos 回调的时间间隔纳秒数，小于等于 0 不按时间回调
+     */
+    public ProgressTracker(ProgressListener listener, TransferType type, String bucketName, String objectName,
+                           long totalBytes, long byteInterval, long timeIntervalNanos) {
+        this.listener = listener;
+        this.type = type;
+        this.bucketName = bucketName;
+        this.objectName = objectName;
+        this.totalBytes = totalBytes;
+        this.byteInterval = byteInterval;
+        this.timeIntervalNanos = timeIntervalNanos;
+    }
+
+    /**
+     * 设置总字节数，下载时从响应中获取
+     *
+     * @param totalBytes 总字节数，未知传 -1
+     */
+    public synchronized void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+        if (this.isDownloaded()) {
+            this.complete();
+        }
+    }
+
+    /**
+     * 累加已传输的字节数，达到间隔时回调
+     *
+     * @param bytes 本次传输的字节数
+     */
+    public synchronized void transferred(long bytes) {
+        if (completed || bytes <= 0) {
+            return;
+        }
+        transferred += bytes;
+        if (this.isDownloaded()) {
+            this.complete();
+            return;
+        }
+        long now = System.nanoTime();
+        if ((byteInterval > 0 && transferred - lastBytes >= byteInterval)
+                || (timeIntervalNanos > 0 && now - lastNanos >= timeIntervalNanos)) {
+            this.publish(now, false);
+        }
+    }
+
+    /**
+     * 回退已传输的字节数，平台 SDK 重试时重新发送的部分
+     *
+     * @param bytes 回退的字节数
+     */
+    public synchronized void rewind(long bytes) {
+        if (completed || bytes <= 0) {
+            return;
+        }
+        transferred = Math.max(0, transferred - bytes);
+        lastBytes = Math.min(lastBytes, transferred);
+    }
+
+    /**
+     * 读取到文件流末尾，下载完成；上传读取完不代表平台已接收，等待调用方完成
+     */
+    public synchronized void endOfStream() {
+        if (type == TransferType.DOWNLOAD) {
+            this.complete();
+        }
+    }
+
+    /**
+     * 传输完成，只回调一次
+     */
+    public synchronized void complete() {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        if (totalBytes < 0) {
+            totalBytes = transferred;
+        }
+        this.publish(System.nanoTime(), true);
+    }
+
+    public TransferType getType() {
+        return type;
+    }
+
+    public synchronized long getTransferred() {
+        return transferred;
+    }
+
+    private boolean isDownloaded() {
+        return type == TransferType.DOWNLOAD && totalBytes >= 0 && transferred >= totalBytes;
+    }
+
+    private void publish(long now, boolean complete) {
+        long elapsed = now - lastNanos;
+        long bytesPerSecond = elapsed <= 0 ? 0 : (long) ((transferred - lastBytes) * 1_000_000_000.0 / elapsed);
+        lastBytes = transferred;
+        lastNanos = now;
+        try {
+            listener.onProgress(new TransferProgress(type, bucketName, objectName, transferred, totalBytes,
+                    bytesPerSecond, (now - startNanos) / 1_000_000, complete));
+        } catch (RuntimeException e) {
+            log.warn("oss progress listener error.", e);
+        }
+    }
+}
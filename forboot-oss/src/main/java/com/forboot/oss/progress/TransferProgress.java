@@ -0,0 +1,70 @@
+package com.forboot.oss.progress;
+
+import com.forboot.oss.enums.TransferType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 传输进度
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@AllArgsConstructor
+public class TransferProgress {
+
+    /**
+     * 传输类型
+     */
+    private final TransferType type;
+
+    /**
+     * 存储桶名
+     */
+    private final String bucketName;
+
+    /**
+     * 对象名称
+     */
+    private final String objectName;
+
+    /**
+     * 已传输字节数
+     */
+    private final long bytesTransferred;
+
+    /**
+     * 总字节数，未知为 -1
+     */
+    private final long totalBytes;
+
+    /**
+     * 距上次回调的瞬时速率，字节每秒
+     */
+    private final long bytesPerSecond;
+
+    /**
+     * 从开始传输到本次回调的毫秒数
+     */
+    private final long elapsedMillis;
+
+    /**
+     * 是否传输完成，完成时回调且只回调一次
+     */
+    private final boolean completed;
+
+    /**
+     * 完成百分比
+     *
+     * @return 0 - 100，总字节数未知时为 -1
+     */
+    public int getPercent() {
+        if (totalBytes < 0) {
+            return -1;
+        }
+        return totalBytes == 0 ? 100 : (int) Math.min(100, bytesTransferred * 100 / totalBytes);
+    }
+}
@@ -0,0 +1,29 @@
+package com.forboot.oss.property;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * oss 并发下载合并配置属性
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@Setter
+public class CoalescingProperty {
+
+    /**
+     * 是否合并同一文件的并发下载，默认关闭
+     */
+    private boolean enabled = false;
+
+    /**
+     * 共享下载在内存中保留的大小，超过后转存到临时文件，默认 1MB
+     */
+    private DataSize memoryThreshold = DataSize.ofMegabytes(1);
+
+}
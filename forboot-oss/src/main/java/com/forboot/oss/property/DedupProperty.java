@@ -0,0 +1,43 @@
+package com.forboot.oss.property;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * oss 内容寻址去重配置属性
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@Setter
+public class DedupProperty {
+
+    /**
+     * 是否开启去重，开启后未指定对象名的上传按内容 SHA-256 命名，默认关闭
+     */
+    private boolean enabled = false;
+
+    /**
+     * 对象名前缀，例如 cas/
+     */
+    private String prefix = "";
+
+    /**
+     * 布隆过滤器预计文件数，默认 100 万
+     */
+    private long expectedInsertions = 1_000_000;
+
+    /**
+     * 布隆过滤器误判率，默认 0.01
+     */
+    private double fpp = 0.01;
+
+    /**
+     * 布隆过滤器未命中时是否仍查询文件是否存在，多实例部署或重启后需要跨实例去重时开启，默认关闭
+     */
+    private boolean headOnMiss = false;
+
+}
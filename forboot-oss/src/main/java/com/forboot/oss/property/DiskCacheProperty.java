@@ -0,0 +1,44 @@
+package com.forboot.oss.property;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * oss 本地磁盘缓存配置属性
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@Setter
+public class DiskCacheProperty {
+
+    /**
+     * 是否开启下载磁盘缓存，默认关闭
+     */
+    private boolean enabled = false;
+
+    /**
+     * 缓存目录，未设置时使用临时目录下的 forboot-oss/cache/{平台}
+     */
+    private String path;
+
+    /**
+     * 缓存总大小上限，超出后淘汰最久未使用的文件，默认 1GB
+     */
+    private DataSize maxSize = DataSize.ofGigabytes(1);
+
+    /**
+     * 单个文件大小上限，超过的文件不缓存，默认 64MB
+     */
+    private DataSize maxObjectSize = DataSize.ofMegabytes(64);
+
+    /**
+     * 首次下载即缓存的文件大小，更大的文件再次下载时才缓存，默认 1MB
+     */
+    private DataSize admitSize = DataSize.ofMegabytes(1);
+
+}
@@ -0,0 +1,33 @@
+package com.forboot.oss.property;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * oss 传输线程池配置属性
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@Setter
+public class ExecutorProperty {
+
+    /**
+     * 并行度，同时执行的最大任务数，默认 16
+     */
+    private int parallelism = 16;
+
+    /**
+     * 等待队列容量，默认 256；传输线程池队列满时由提交任务的线程执行，异步线程池队列满时拒绝任务
+     */
+    private int queueCapacity = 256;
+
+    /**
+     * 是否使用虚拟线程，需要 JDK 21 及以上，低版本回退为平台线程池
+     */
+    private boolean virtualThreads = false;
+
+}
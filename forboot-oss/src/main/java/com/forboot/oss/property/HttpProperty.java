@@ -0,0 +1,55 @@
+package com.forboot.oss.property;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+/**
+ * oss HTTP 连接池配置属性，连接超时使用 {@link OssProperty#getConnectionTimeout()}
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@Setter
+public class HttpProperty {
+
+    /**
+     * 连接池最大连接数，同时也是异步请求的最大并发数，默认 128
+     */
+    private int maxConnections = 128;
+
+    /**
+     * 读取超时时间，即 socket 超时，默认 60 秒
+     */
+    private Duration readTimeout = Duration.ofSeconds(60);
+
+    /**
+     * 写入超时时间，默认 60 秒（仅 minio、七牛云有效）
+     */
+    private Duration writeTimeout = Duration.ofSeconds(60);
+
+    /**
+     * 空闲连接保留时间，超过后由连接池清理，默认 60 秒
+     */
+    private Duration idleTimeout = Duration.ofSeconds(60);
+
+    /**
+     * 连接最大存活时间，超过后不再复用，为空不限制（仅阿里云、aws 有效）
+     */
+    private Duration connectionTtl;
+
+    /**
+     * 是否开启 TCP keep-alive，默认开启（仅 minio、aws 有效）
+     */
+    private boolean tcpKeepAlive = true;
+
+    /**
+     * 是否开启 TCP_NODELAY，默认开启（阿里云、腾讯云、aws 客户端已默认开启，七牛云不支持）
+     */
+    private boolean tcpNoDelay = true;
+
+}
@@ -0,0 +1,34 @@
+package com.forboot.oss.property;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * oss 小文件堆外内存缓存配置属性
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@Setter
+public class MemoryCacheProperty {
+
+    /**
+     * 是否开启下载内存缓存，默认关闭
+     */
+    private boolean enabled = false;
+
+    /**
+     * 堆外内存上限，默认 64MB
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+
+    /**
+     * 单个文件大小上限，超过的文件不缓存，默认 256KB
+     */
+    private DataSize maxObjectSize = DataSize.ofKilobytes(256);
+
+}
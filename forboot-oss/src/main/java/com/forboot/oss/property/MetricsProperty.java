@@ -0,0 +1,28 @@
+package com.forboot.oss.property;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * oss 监控指标配置属性，引入 Micrometer 且存在 MeterRegistry 时生效
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@Setter
+public class MetricsProperty {
+
+    /**
+     * 是否记录监控指标，默认开启
+     */
+    private boolean enabled = true;
+
+    /**
+     * 操作耗时是否发布百分位直方图，默认开启
+     */
+    private boolean percentileHistogram = true;
+
+}
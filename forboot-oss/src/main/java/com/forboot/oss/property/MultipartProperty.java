@@ -0,0 +1,51 @@
+package com.forboot.oss.property;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * oss 分片上传配置属性
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@Setter
+public class MultipartProperty {
+
+    /**
+     * 分片上传阈值，文件大小未知或不小于该值时使用分片上传，默认 16MB
+     */
+    private DataSize threshold = DataSize.ofMegabytes(16);
+
+    /**
+     * 分片大小，除最后一个分片外不能小于 5MB，默认 8MB
+     */
+    private DataSize partSize = DataSize.ofMegabytes(8);
+
+    /**
+     * 单个上传同时在途的最大分片数，分片缓冲内存上限为 partSize * maxInFlight，默认 4
+     */
+    private int maxInFlight = 4;
+
+    /**
+     * 是否开启断点续传，开启后已有分片确认的失败上传不会取消，使用相同对象名重新上传时跳过平台确认且内容一致的分片
+     */
+    private boolean resumable = false;
+
+    /**
+     * 断点有效期，超过后取消分片上传并丢弃断点，避免未续传的分片一直占用存储，默认 1 天
+     */
+    private Duration checkpointTtl = Duration.ofDays(1);
+
+    /**
+     * 断点文件存储路径，未设置时使用 localFilePath 下的 .checkpoint 目录，均未设置时使用临时目录
+     */
+    private String checkpointPath;
+
+}
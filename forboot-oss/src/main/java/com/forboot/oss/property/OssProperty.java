@@ -1,8 +1,10 @@
 package com.forboot.oss.property;
 
+import com.forboot.oss.enums.ChecksumAlgorithm;
 import com.forboot.oss.enums.StoragePlatform;
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.util.unit.DataSize;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -55,6 +57,11 @@ public class OssProperty {
      */
     private int connectionTimeout = 60000;
 
+    /**
+     * HTTP 连接池配置
+     */
+    private HttpProperty http = new HttpProperty();
+
     /**
      * 文件服务器域名
      */
@@ -75,11 +82,96 @@ public class OssProperty {
      */
     private List<String> allowMediaType;
 
+    /**
+     * 上传时边读取边按 allowMediaType 校验媒体类型，不合法时中止上传，默认关闭
+     */
+    private boolean validateMediaType = false;
+
+    /**
+     * 上传文件大小上限，超过时中止上传，为空不限制
+     */
+    private DataSize maxFileSize;
+
+    /**
+     * 上传、下载时计算的校验算法，为空不计算；MD5 时与平台返回的 ETag 比对
+     */
+    private ChecksumAlgorithm checksum;
+
     /**
      * 访问授权 公用空间/私有空间
      */
     private String accessControl;
 
+    /**
+     * 分片上传配置
+     */
+    private MultipartProperty multipart = new MultipartProperty();
+
+    /**
+     * 传输线程池配置，分片等并发传输共用
+     */
+    private ExecutorProperty transfer = new ExecutorProperty();
+
+    /**
+     * 异步文件存储线程池配置，与传输线程池相互独立，避免异步任务占满分片线程
+     */
+    private ExecutorProperty async = new ExecutorProperty();
+
+    /**
+     * 签名地址缓存配置
+     */
+    private UrlCacheProperty urlCache = new UrlCacheProperty();
+
+    /**
+     * 下载磁盘缓存配置
+     */
+    private DiskCacheProperty diskCache = new DiskCacheProperty();
+
+    /**
+     * 小文件下载内存缓存配置
+     */
+    private MemoryCacheProperty memoryCache = new MemoryCacheProperty();
+
+    /**
+     * 并发下载合并配置
+     */
+    private CoalescingProperty coalescing = new CoalescingProperty();
+
+    /**
+     * 内容寻址去重配置
+     */
+    private DedupProperty dedup = new DedupProperty();
+
+    /**
+     * 监控指标配置
+     */
+    private MetricsProperty metrics = new MetricsProperty();
+
+    /**
+     * 传输进度回调配置
+     */
+    private ProgressProperty progress = new ProgressProperty();
+
+    /**
+     * 传输限速配置
+     */
+    private ThrottleProperty throttle = new ThrottleProperty();
+
+    /**
+     * 失败重试配置
+     */
+    private RetryProperty retry = new RetryProperty();
+
+    /**
+     * 多文件打包下载时预先打开的文件数，默认 4
+     */
+    private int zipPrefetch = 4;
+
+    /**
+     * 批量操作并发度，默认 8
+     */
+    private int batchParallelism = 8;
+
     public String getLocalFilePath(String objectName) throws FileNotFoundException {
         if (null == this.localFilePath) {
             throw new FileNotFoundException("localFilePath is Empty");
@@ -0,0 +1,31 @@
+package com.forboot.oss.property;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * oss 传输进度回调配置属性，两个间隔任一达到即回调
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@Setter
+public class ProgressProperty {
+
+    /**
+     * 回调的字节间隔，默认 1MB，为空不按字节回调
+     */
+    private DataSize byteInterval = DataSize.ofMegabytes(1);
+
+    /**
+     * 回调的时间间隔，默认 1 秒，为空不按时间回调
+     */
+    private Duration timeInterval = Duration.ofSeconds(1);
+
+}
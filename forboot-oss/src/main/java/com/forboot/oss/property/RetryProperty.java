@@ -0,0 +1,65 @@
+package com.forboot.oss.property;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * oss 失败重试配置属性
+ * <p>
+ * 第 n 次重试前等待 min(initialBackoff * multiplier^(n-1), maxBackoff)，再按 jitter 比例随机缩短，
+ * 避免同时失败的请求同时重试。
+ * <p>
+ * 默认不开启。开启后阿里云、腾讯云、AWS 关闭 SDK 自身的错误重试，避免一次失败按两层重试次数相乘放大请求数；
+ * MinIO 只在连接失败时由 OkHttp 重试一次，七牛上传按 SDK 配置切换上传域名重试，两者与此处的重试叠加。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@Setter
+public class RetryProperty {
+
+    /**
+     * 最大尝试次数，包含首次请求，默认 1 不重试
+     */
+    private int maxAttempts = 1;
+
+    /**
+     * 首次重试前的等待时长
+     */
+    private Duration initialBackoff = Duration.ofMillis(200);
+
+    /**
+     * 单次等待时长上限
+     */
+    private Duration maxBackoff = Duration.ofSeconds(5);
+
+    /**
+     * 等待时长增长倍数
+     */
+    private double multiplier = 2.0;
+
+    /**
+     * 随机缩短等待时长的最大比例，0 ~ 1，0 为固定等待
+     */
+    private double jitter = 0.5;
+
+    /**
+     * 单次上传的文件流既不能重新打开也不在内存中时，边上传边记录用于重试，
+     * 内存中保留的最大字节数，超过后转存到临时文件
+     */
+    private DataSize spillThreshold = DataSize.ofMegabytes(1);
+
+    /**
+     * 是否开启重试
+     */
+    public boolean isEnabled() {
+        return maxAttempts > 1;
+    }
+
+}
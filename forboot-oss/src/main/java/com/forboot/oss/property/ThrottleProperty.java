@@ -0,0 +1,56 @@
+package com.forboot.oss.property;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * oss 传输限速配置属性，速率为每秒字节数，为空不限制
+ * <p>
+ * 平台速率由该平台的全部传输共享，租户速率按 {@code IFileStorage#tenant(String)} 指定的租户分别计算，
+ * 同时配置时两者都需满足。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@Setter
+public class ThrottleProperty {
+
+    /**
+     * 平台上传速率
+     */
+    private DataSize uploadRate;
+
+    /**
+     * 平台下载速率
+     */
+    private DataSize downloadRate;
+
+    /**
+     * 单个租户上传速率
+     */
+    private DataSize tenantUploadRate;
+
+    /**
+     * 单个租户下载速率
+     */
+    private DataSize tenantDownloadRate;
+
+    /**
+     * 允许的突发量，按速率计算的时长，默认 1 秒
+     */
+    private Duration burst = Duration.ofSeconds(1);
+
+    /**
+     * 是否配置了任一速率
+     */
+    public boolean isEnabled() {
+        return null != uploadRate || null != downloadRate || null != tenantUploadRate || null != tenantDownloadRate;
+    }
+
+}
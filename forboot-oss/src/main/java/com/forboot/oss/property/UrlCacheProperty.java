@@ -0,0 +1,33 @@
+package com.forboot.oss.property;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * oss 签名地址缓存配置属性
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Getter
+@Setter
+public class UrlCacheProperty {
+
+    /**
+     * 是否开启签名地址缓存，默认关闭
+     */
+    private boolean enabled = false;
+
+    /**
+     * 最大缓存数量，超出后淘汰最久未使用的地址，默认 10000
+     */
+    private int maxSize = 10000;
+
+    /**
+     * 最小剩余有效期比例，缓存地址的剩余有效期低于请求有效期的该比例时重新签名，默认 0.5
+     */
+    private double minRemainingRatio = 0.5;
+
+}
@@ -0,0 +1,24 @@
+package com.forboot.oss.retry;
+
+import com.forboot.oss.enums.RetryCategory;
+
+/**
+ * 失败分类，由各平台按 SDK 异常映射
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@FunctionalInterface
+public interface RetryClassifier {
+
+    /**
+     * 分类
+     *
+     * @param e 异常
+     * @return {@link RetryCategory}
+     */
+    RetryCategory classify(Exception e);
+
+}
@@ -0,0 +1,137 @@
+package com.forboot.oss.retry;
+
+import com.forboot.oss.enums.RetryCategory;
+import com.forboot.oss.property.RetryProperty;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指数退避重试
+ * <p>
+ * 幂等操作在 {@link RetryCategory#TRANSIENT} 及 {@link RetryCategory#REJECTED} 时重试，非幂等操作只在确定未被处理的
+ * {@link RetryCategory#REJECTED} 时重试。放弃重试时抛出最后一次的异常，之前各次的异常作为 suppressed 附加。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Slf4j
+public class RetryPolicy {
+
+    /**
+     * 不重试
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, 1, 0);
+
+    private final int maxAttempts;
+
+    private final long initialBackoffNanos;
+
+    private final long maxBackoffNanos;
+
+    private final double multiplier;
+
+    private final double jitter;
+
+    public RetryPolicy(RetryProperty property) {
+        this(property.getMaxAttempts(), property.getInitialBackoff().toNanos(), property.getMaxBackoff().toNanos(),
+                property.getMultiplier(), property.getJitter());
+    }
+
+    private RetryPolicy(int maxAttempts, long initialBackoffNanos, long maxBackoffNanos, double multiplier,
+                        double jitter) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffNanos = Math.max(0, initialBackoffNanos);
+        this.maxBackoffNanos = Math.max(this.initialBackoffNanos, maxBackoffNanos);
+        this.multiplier = Math.max(1, multiplier);
+        this.jitter = Math.min(1, Math.max(0, jitter));
+    }
+
+    /**
+     * 是否会重试
+     */
+    public boolean isEnabled() {
+        return maxAttempts > 1;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * 执行操作，失败时按分类重试
+     *
+     * @param action     操作
+     * @param idempotent 是否幂等
+     * @param classifier 失败分类
+     * @return 操作结果
+     * @throws Exception 不可重试或重试次数用尽时最后一次的异常
+     */
+    public <T> T execute(Callable<T> action, boolean idempotent, RetryClassifier classifier) throws Exception {
+        return this.execute(action, idempotent, classifier, null);
+    }
+
+    /**
+     * 执行操作，失败时按分类重试
+     *
+     * @param action      操作
+     * @param idempotent  是否幂等
+     * @param classifier  失败分类
+     * @param beforeRetry 每次重试前执行，如重置文件流，可为空
+     * @return 操作结果
+     * @throws Exception 不可重试或重试次数用尽时最后一次的异常
+     */
+    public <T> T execute(Callable<T> action, boolean idempotent, RetryClassifier classifier,
+                         Runnable beforeRetry) throws Exception {
+        List<Exception> failures = null;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.call();
+            } catch (Exception e) {
+                if (attempt >= maxAttempts || !this.isRetryable(classifier.classify(e), idempotent)) {
+                    if (null != failures) {
+                        failures.forEach(e::addSuppressed);
+                    }
+                    throw e;
+                }
+                if (null == failures) {
+                    failures = new ArrayList<>(maxAttempts - 1);
+                }
+                failures.add(e);
+                long backoff = this.backoff(attempt);
+                log.debug("attempt {} failed, retry after {}ms: {}", attempt,
+                        TimeUnit.NANOSECONDS.toMillis(backoff), e.toString());
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoff);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    failures.remove(e);
+                    failures.forEach(e::addSuppressed);
+                    throw e;
+                }
+                if (null != beforeRetry) {
+                    beforeRetry.run();
+                }
+            }
+        }
+    }
+
+    private boolean isRetryable(RetryCategory category, boolean idempotent) {
+        return category == RetryCategory.REJECTED || (idempotent && category == RetryCategory.TRANSIENT);
+    }
+
+    /**
+     * 第 attempt 次失败后的等待时长
+     */
+    private long backoff(int attempt) {
+        double backoff = initialBackoffNanos * Math.pow(multiplier, attempt - 1);
+        backoff = Math.min(backoff, maxBackoffNanos);
+        return (long) (backoff * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+}
@@ -0,0 +1,81 @@
+package com.forboot.oss.throttle;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌桶限速，令牌按字节计算
+ * <p>
+ * 令牌不足时允许透支，透支的调用方等待令牌补足后返回，后续调用方在其后排队，
+ * 多个线程共享时总速率不超过配置速率。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class TokenBucket {
+
+    private final double bytesPerNano;
+
+    private final double capacity;
+
+    private double tokens;
+
+    private long lastNanos = System.nanoTime();
+
+    /**
+     * @param bytesPerSecond 每秒字节数
+     * @param capacity       令牌桶容量，即允许的突发字节数
+     */
+    public TokenBucket(long bytesPerSecond, long capacity) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("bytesPerSecond must be positive");
+        }
+        this.bytesPerNano = bytesPerSecond / 1_000_000_000.0;
+        this.capacity = Math.max(1, capacity);
+        this.tokens = this.capacity;
+    }
+
+    /**
+     * 获取令牌，不足时阻塞等待
+     *
+     * @param bytes 字节数
+     * @throws InterruptedIOException 等待时被中断
+     */
+    public void acquire(long bytes) throws InterruptedIOException {
+        if (bytes <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            this.refill();
+            tokens -= bytes;
+            waitNanos = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / bytesPerNano);
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while throttling");
+            }
+        }
+    }
+
+    /**
+     * 令牌桶是否已满，已满的令牌桶与新建的令牌桶等价，可以回收
+     *
+     * @return 是否已满
+     */
+    public synchronized boolean isFull() {
+        this.refill();
+        return tokens >= capacity;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastNanos) * bytesPerNano);
+        lastNanos = now;
+    }
+}
@@ -0,0 +1,106 @@
+package com.forboot.oss.throttle;
+
+import com.forboot.oss.enums.TransferType;
+import com.forboot.oss.io.ThrottledInputStream;
+import com.forboot.oss.property.ThrottleProperty;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 平台传输限速，平台令牌桶由全部传输共享，租户令牌桶按租户创建
+ * <p>
+ * 租户数超过 {@link #MAX_IDLE_TENANTS} 时回收已满的租户令牌桶，已满的令牌桶与新建的等价，回收不影响限速。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+public class TransferThrottle {
+
+    private static final int MAX_IDLE_TENANTS = 10_000;
+
+    private final TokenBucket upload;
+
+    private final TokenBucket download;
+
+    private final DataSize tenantUploadRate;
+
+    private final DataSize tenantDownloadRate;
+
+    private final Duration burst;
+
+    private final ConcurrentMap<String, TokenBucket> tenantUploads = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, TokenBucket> tenantDownloads = new ConcurrentHashMap<>();
+
+    public TransferThrottle(ThrottleProperty throttle) {
+        this.burst = null == throttle.getBurst() ? Duration.ofSeconds(1) : throttle.getBurst();
+        this.upload = this.newBucket(throttle.getUploadRate());
+        this.download = this.newBucket(throttle.getDownloadRate());
+        this.tenantUploadRate = throttle.getTenantUploadRate();
+        this.tenantDownloadRate = throttle.getTenantDownloadRate();
+    }
+
+    /**
+     * 限速文件流
+     *
+     * @param is     文件流
+     * @param type   传输类型
+     * @param tenant 租户，为空只按平台限速
+     * @return 文件流，没有适用的速率时原样返回
+     */
+    public InputStream throttle(InputStream is, TransferType type, String tenant) {
+        if (null == is) {
+            return null;
+        }
+        List<TokenBucket> buckets = this.buckets(type, tenant);
+        return buckets.isEmpty() ? is : new ThrottledInputStream(is, buckets);
+    }
+
+    /**
+     * 适用的令牌桶
+     *
+     * @param type   传输类型
+     * @param tenant 租户，为空只按平台限速
+     * @return 令牌桶列表，没有适用的速率时为空
+     */
+    public List<TokenBucket> buckets(TransferType type, String tenant) {
+        boolean upload = type == TransferType.UPLOAD;
+        List<TokenBucket> buckets = new ArrayList<>(2);
+        TokenBucket platform = upload ? this.upload : this.download;
+        if (null != platform) {
+            buckets.add(platform);
+        }
+        DataSize tenantRate = upload ? this.tenantUploadRate : this.tenantDownloadRate;
+        if (null != tenant && null != tenantRate) {
+            buckets.add(this.tenantBucket(upload ? this.tenantUploads : this.tenantDownloads, tenant, tenantRate));
+        }
+        return buckets;
+    }
+
+    private TokenBucket tenantBucket(ConcurrentMap<String, TokenBucket> tenants, String tenant, DataSize rate) {
+        TokenBucket bucket = tenants.get(tenant);
+        if (null != bucket) {
+            return bucket;
+        }
+        if (tenants.size() >= MAX_IDLE_TENANTS) {
+            tenants.values().removeIf(TokenBucket::isFull);
+        }
+        return tenants.computeIfAbsent(tenant, k -> this.newBucket(rate));
+    }
+
+    private TokenBucket newBucket(DataSize rate) {
+        if (null == rate) {
+            return null;
+        }
+        long bytesPerSecond = rate.toBytes();
+        return new TokenBucket(bytesPerSecond, (long) (bytesPerSecond * (burst.toNanos() / 1_000_000_000.0)));
+    }
+}
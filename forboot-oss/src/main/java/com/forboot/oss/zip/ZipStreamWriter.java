@@ -0,0 +1,133 @@
+package com.forboot.oss.zip;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 流水线 zip 打包输出
+ * <p>
+ * 当前文件写出的同时预先打开后续 prefetch 个文件，同时打开的文件流不超过 prefetch + 1 个，
+ * 每写完一个文件立即刷新到输出流。不压缩模式使用 0 级压缩，适合已压缩的图片、音视频等媒体文件。
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+@Slf4j
+public class ZipStreamWriter {
+
+    /**
+     * 文件流打开函数
+     */
+    @FunctionalInterface
+    public interface ObjectOpener {
+
+        /**
+         * 打开文件流
+         *
+         * @param objectName 文件对象名
+         * @return {@link InputStream}
+         * @throws Exception 异常
+         */
+        InputStream open(String objectName) throws Exception;
+    }
+
+    private final Executor executor;
+
+    private final int prefetch;
+
+    private final boolean compress;
+
+    public ZipStreamWriter(Executor executor, int prefetch, boolean compress) {
+        this.executor = executor;
+        this.prefetch = Math.max(1, prefetch);
+        this.compress = compress;
+    }
+
+    /**
+     * 打包输出
+     *
+     * @param out            输出流，完成后不关闭
+     * @param objectNameList 文件对象名列表
+     * @param opener         {@link ObjectOpener}
+     * @throws Exception 异常
+     */
+    public void write(OutputStream out, List<String> objectNameList, ObjectOpener opener) throws Exception {
+        Deque<CompletableFuture<InputStream>> window = new ArrayDeque<>(prefetch);
+        Iterator<String> iterator = objectNameList.iterator();
+        while (window.size() < prefetch && iterator.hasNext()) {
+            window.add(this.open(iterator.next(), opener));
+        }
+        try {
+            ZipOutputStream zos = new ZipOutputStream(out);
+            zos.setLevel(compress ? Deflater.DEFAULT_COMPRESSION : Deflater.NO_COMPRESSION);
+            for (String objectName : objectNameList) {
+                CompletableFuture<InputStream> future = window.poll();
+                if (iterator.hasNext()) {
+                    window.add(this.open(iterator.next(), opener));
+                }
+                try (InputStream is = this.join(future)) {
+                    if (null == is) {
+                        throw new FileNotFoundException(objectName);
+                    }
+                    zos.putNextEntry(new ZipEntry(objectName));
+                    is.transferTo(zos);
+                    zos.closeEntry();
+                }
+                zos.flush();
+            }
+            zos.finish();
+            zos.flush();
+        } finally {
+            // 异常中断时关闭已预取的文件流
+            window.forEach(e -> e.thenAccept(this::closeQuietly));
+        }
+    }
+
+    protected CompletableFuture<InputStream> open(String objectName, ObjectOpener opener) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return opener.open(objectName);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    protected InputStream join(CompletableFuture<InputStream> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    protected void closeQuietly(InputStream is) {
+        if (null != is) {
+            try {
+                is.close();
+            } catch (IOException e) {
+                log.debug("close prefetched stream error", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.forboot.oss;
+
+import org.apache.tika.Tika;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link MediaType} 测试
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+class MediaTypeTests {
+
+    private final Tika tika = new Tika();
+
+    @Test
+    void detectSameAsTika() throws Exception {
+        Map<String, byte[]> samples = new LinkedHashMap<>();
+        samples.put("image/png", bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D, 'I', 'H', 'D', 'R'));
+        samples.put("image/jpeg", bytes(0xFF, 0xD8, 0xFF, 0xE0, 0, 0x10, 'J', 'F', 'I', 'F', 0));
+        samples.put("image/gif", ascii("GIF89a\u0001\u0000\u0001\u0000"));
+        samples.put("image/webp", ascii("RIFF$\u0000\u0000\u0000WEBPVP8 "));
+        samples.put("application/pdf", ascii("%PDF-1.7\n1 0 obj\n"));
+        samples.put("image/tiff", bytes('I', 'I', 0x2A, 0x00, 0x08, 0, 0, 0));
+        samples.put("application/gzip", this.gzip());
+        samples.put("audio/mpeg", ascii("ID3\u0004\u0000\u0000\u0000\u0000\u0000\u0000"));
+        samples.put("text/plain", ascii("hello forboot"));
+        samples.put("application/zip", this.zip());
+        samples.put("application/octet-stream", bytes(0, 1, 2, 3, 4, 5, 6, 7));
+        samples.put("empty", new byte[0]);
+        for (Map.Entry<String, byte[]> sample : samples.entrySet()) {
+            byte[] content = sample.getValue();
+            assertEquals(tika.detect(content), MediaType.detect(content, content.length), sample.getKey());
+        }
+        assertEquals("image/png", MediaType.detect(samples.get("image/png"), samples.get("image/png").length));
+    }
+
+    @Test
+    void detectBigEndianTiffAndGif87a() throws Exception {
+        byte[] tiff = bytes('M', 'M', 0x00, 0x2A, 0, 0, 0, 0x08);
+        assertEquals(tika.detect(tiff), MediaType.detect(tiff, tiff.length));
+        byte[] gif = ascii("GIF87a\u0001\u0000\u0001\u0000");
+        assertEquals(tika.detect(gif), MediaType.detect(gif, gif.length));
+    }
+
+    @Test
+    void detectOnlyValidLength() throws Exception {
+        byte[] prefix = new byte[MediaType.PREFIX_SIZE];
+        byte[] png = bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A);
+        System.arraycopy(png, 0, prefix, 0, png.length);
+        // 有效长度不足魔数长度时不匹配
+        assertEquals(tika.detect(new byte[4]), MediaType.detect(prefix, 4));
+    }
+
+    @Test
+    void resetMarkSupportedStream() throws Exception {
+        byte[] content = ascii("%PDF-1.4\n");
+        InputStream is = new BufferedInputStream(new ByteArrayInputStream(content));
+        assertEquals("application/pdf", MediaType.detect(is));
+        assertArrayEquals(content, is.readAllBytes());
+    }
+
+    private byte[] gzip() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(ascii("hello forboot"));
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] zip() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("a.txt"));
+            zip.write(ascii("hello forboot"));
+            zip.closeEntry();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,170 @@
+package com.forboot.oss.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link DiskCache} 测试
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+class DiskCacheTests {
+
+    @TempDir
+    Path cachePath;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void cacheSmallFileOnFirstMiss() throws Exception {
+        DiskCache cache = new DiskCache(cachePath.toString(), 1 << 20, 1 << 16, 1 << 10);
+        byte[] content = random(512);
+        assertArrayEquals(content, this.read(cache, "dir/a.bin", content));
+        assertArrayEquals(content, this.read(cache, "dir/a.bin", content));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(512, cache.getSize());
+    }
+
+    @Test
+    void admitLargeFileOnSecondMiss() throws Exception {
+        DiskCache cache = new DiskCache(cachePath.toString(), 1 << 20, 1 << 16, 1 << 10);
+        byte[] content = random(4096);
+        this.read(cache, "large.bin", content);
+        assertEquals(0, cache.getSize());
+        this.read(cache, "large.bin", content);
+        assertEquals(4096, cache.getSize());
+        assertArrayEquals(content, this.read(cache, "large.bin", content));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void skipOversizeFile() throws Exception {
+        DiskCache cache = new DiskCache(cachePath.toString(), 1 << 20, 1024, 1 << 20);
+        byte[] content = random(2048);
+        assertArrayEquals(content, this.read(cache, "huge.bin", content));
+        assertArrayEquals(content, this.read(cache, "huge.bin", content));
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void skipPartiallyReadFile() throws Exception {
+        DiskCache cache = new DiskCache(cachePath.toString(), 1 << 20, 1 << 16, 1 << 16);
+        byte[] content = random(4096);
+        try (InputStream is = cache.get("bucket", "partial.bin", () -> this.load(content))) {
+            is.readNBytes(100);
+        }
+        assertEquals(0, cache.getSize());
+        assertEquals(0, this.tempFiles());
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() throws Exception {
+        DiskCache cache = new DiskCache(cachePath.toString(), 3000, 1 << 16, 1 << 16);
+        byte[] content = random(1000);
+        this.read(cache, "a.bin", content);
+        this.read(cache, "b.bin", content);
+        this.read(cache, "c.bin", content);
+        // 访问 a 后 b 最久未使用
+        this.read(cache, "a.bin", content);
+        this.read(cache, "d.bin", content);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(3000, cache.getSize());
+
+        loads.set(0);
+        this.read(cache, "a.bin", content);
+        assertEquals(0, loads.get());
+        this.read(cache, "b.bin", content);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidateCachedFile() throws Exception {
+        DiskCache cache = new DiskCache(cachePath.toString(), 1 << 20, 1 << 16, 1 << 16);
+        this.read(cache, "a.bin", "old".getBytes(StandardCharsets.UTF_8));
+        cache.invalidate("bucket", "a.bin");
+        assertEquals(0, cache.getSize());
+        assertArrayEquals("new".getBytes(StandardCharsets.UTF_8),
+                this.read(cache, "a.bin", "new".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void discardFillInvalidatedDuringDownload() throws Exception {
+        DiskCache cache = new DiskCache(cachePath.toString(), 1 << 20, 1 << 16, 1 << 16);
+        byte[] old = "old".getBytes(StandardCharsets.UTF_8);
+        try (InputStream is = cache.get("bucket", "a.bin", () -> this.load(old))) {
+            // 下载期间文件被更新
+            cache.invalidate("bucket", "a.bin");
+            assertArrayEquals(old, is.readAllBytes());
+        }
+        assertEquals(0, cache.getSize());
+        byte[] updated = "new".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(updated, this.read(cache, "a.bin", updated));
+    }
+
+    @Test
+    void restoreAfterRestart() throws Exception {
+        DiskCache cache = new DiskCache(cachePath.toString(), 1 << 20, 1 << 16, 1 << 16);
+        byte[] content = random(100);
+        this.read(cache, "a.bin", content);
+
+        Path foreign = Files.writeString(cachePath.resolve("readme.txt"), "keep");
+        Path temp;
+        try (Stream<Path> stream = Files.list(cachePath)) {
+            // 写入缓存时中断残留的临时文件
+            temp = stream.filter(Files::isDirectory).findFirst().orElseThrow()
+                    .resolve("0".repeat(64) + ".interrupted.cache-tmp");
+        }
+        Files.write(temp, content);
+
+        DiskCache restarted = new DiskCache(cachePath.toString(), 1 << 20, 1 << 16, 1 << 16);
+        assertEquals(100, restarted.getSize());
+        loads.set(0);
+        assertArrayEquals(content, this.read(restarted, "a.bin", content));
+        assertEquals(0, loads.get());
+        // 只清理残留的临时文件，缓存目录中的其它文件保留
+        assertFalse(Files.exists(temp));
+        assertTrue(Files.exists(foreign));
+    }
+
+    private byte[] read(DiskCache cache, String objectName, byte[] content) throws Exception {
+        try (InputStream is = cache.get("bucket", objectName, () -> this.load(content))) {
+            return is.readAllBytes();
+        }
+    }
+
+    private InputStream load(byte[] content) {
+        loads.incrementAndGet();
+        return new ByteArrayInputStream(content);
+    }
+
+    private long tempFiles() throws Exception {
+        try (Stream<Path> stream = Files.walk(cachePath)) {
+            return stream.filter(e -> e.getFileName().toString().endsWith(".cache-tmp")).count();
+        }
+    }
+
+    private static byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
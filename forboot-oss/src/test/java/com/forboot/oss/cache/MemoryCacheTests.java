@@ -0,0 +1,138 @@
+package com.forboot.oss.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link MemoryCache} 测试
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+class MemoryCacheTests {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void cacheOnMiss() throws Exception {
+        MemoryCache cache = new MemoryCache(1 << 20, 1 << 16);
+        byte[] content = random(3000, 1);
+        assertArrayEquals(content, this.read(cache, "a.bin", content));
+        assertArrayEquals(content, this.read(cache, "a.bin", content));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getCount());
+    }
+
+    @Test
+    void passThroughOversizeFile() throws Exception {
+        MemoryCache cache = new MemoryCache(1 << 20, 1024);
+        byte[] content = random(4096, 2);
+        assertArrayEquals(content, this.read(cache, "large.bin", content));
+        assertArrayEquals(content, this.read(cache, "large.bin", content));
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getCount());
+    }
+
+    @Test
+    void invalidateCachedFile() throws Exception {
+        MemoryCache cache = new MemoryCache(1 << 20, 1 << 16);
+        this.read(cache, "a.bin", "old".getBytes(StandardCharsets.UTF_8));
+        cache.invalidate("bucket", "a.bin");
+        assertEquals(0, cache.getCount());
+        byte[] updated = "new".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(updated, this.read(cache, "a.bin", updated));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void discardLoadInvalidatedDuringDownload() throws Exception {
+        MemoryCache cache = new MemoryCache(1 << 20, 1 << 16);
+        byte[] old = "old".getBytes(StandardCharsets.UTF_8);
+        try (InputStream is = cache.get("bucket", "a.bin", () -> {
+            // 下载期间文件被更新
+            cache.invalidate("bucket", "a.bin");
+            return this.load(old);
+        })) {
+            assertArrayEquals(old, is.readAllBytes());
+        }
+        assertEquals(0, cache.getCount());
+        byte[] updated = "new".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(updated, this.read(cache, "a.bin", updated));
+        assertArrayEquals(updated, this.read(cache, "a.bin", updated));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void keepOpenReaderIntactAfterEviction() throws Exception {
+        MemoryCache cache = new MemoryCache(1 << 20, 1 << 16);
+        byte[] content = random(2000, 3);
+        InputStream held = cache.get("bucket", "a.bin", () -> this.load(content));
+        held.close();
+        held = cache.get("bucket", "a.bin", () -> this.load(content));
+        assertEquals(1, loads.get());
+
+        // 缓存的块在读取流关闭前不会分配给其它文件
+        cache.invalidate("bucket", "a.bin");
+        byte[] other = random(2000, 4);
+        this.read(cache, "b.bin", other);
+        try (InputStream is = held) {
+            assertArrayEquals(content, is.readAllBytes());
+        }
+        assertArrayEquals(other, this.read(cache, "b.bin", other));
+    }
+
+    @Test
+    void admitHotFilesWhenFull() throws Exception {
+        // 单个 1MB slab 切分为 256 个 4KB 块
+        MemoryCache cache = new MemoryCache(1 << 20, 1 << 16);
+        byte[] content = random(4000, 5);
+        for (int i = 0; i < 256; i++) {
+            for (int j = 0; j < 3; j++) {
+                this.read(cache, "hot-" + i, content);
+            }
+        }
+        assertEquals(256, cache.getCount());
+        long hits = cache.getHitCount();
+
+        // 只访问一次的文件不会替换热点文件
+        for (int i = 0; i < 256; i++) {
+            this.read(cache, "cold-" + i, content);
+        }
+        assertTrue(cache.getRejectionCount() > 0);
+        for (int i = 0; i < 256; i++) {
+            this.read(cache, "hot-" + i, content);
+        }
+        assertEquals(hits + 256, cache.getHitCount());
+        assertEquals(1 << 20, cache.getAllocatedSize());
+    }
+
+    private byte[] read(MemoryCache cache, String objectName, byte[] content) throws Exception {
+        try (InputStream is = cache.get("bucket", objectName, () -> this.load(content))) {
+            return is.readAllBytes();
+        }
+    }
+
+    private InputStream load(byte[] content) {
+        loads.incrementAndGet();
+        return new ByteArrayInputStream(content);
+    }
+
+    private static byte[] random(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
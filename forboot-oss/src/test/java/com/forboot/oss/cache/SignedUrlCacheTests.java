@@ -0,0 +1,79 @@
+package com.forboot.oss.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link SignedUrlCache} 测试
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+class SignedUrlCacheTests {
+
+    private final AtomicInteger signs = new AtomicInteger();
+
+    @Test
+    void reuseSignedUrl() throws Exception {
+        SignedUrlCache cache = new SignedUrlCache(100, 0.5);
+        String url = cache.get("bucket", "a.png", 3600, () -> this.sign("a.png"));
+        assertEquals(url, cache.get("bucket", "a.png", 3600, () -> this.sign("a.png")));
+        assertEquals(1, signs.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // 有效期不同的签名地址分别缓存
+        assertNotEquals(url, cache.get("bucket", "a.png", 60, () -> this.sign("a.png")));
+        assertEquals(2, signs.get());
+    }
+
+    @Test
+    void resignWhenRemainingTtlIsShort() throws Exception {
+        SignedUrlCache cache = new SignedUrlCache(100, 0.5);
+        String url = cache.get("bucket", "a.png", 1, () -> this.sign("a.png"));
+        assertEquals(url, cache.get("bucket", "a.png", 1, () -> this.sign("a.png")));
+
+        // 剩余有效期不足一半时重新签名
+        Thread.sleep(600);
+        assertNotEquals(url, cache.get("bucket", "a.png", 1, () -> this.sign("a.png")));
+        assertEquals(2, signs.get());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() throws Exception {
+        SignedUrlCache cache = new SignedUrlCache(32, 0.5);
+        String hot = cache.get("bucket", "hot.png", 3600, () -> this.sign("hot.png"));
+        cache.get("bucket", "cold.png", 3600, () -> this.sign("cold.png"));
+        for (int i = 0; i < 1000; i++) {
+            String objectName = "file-" + i + ".png";
+            cache.get("bucket", objectName, 3600, () -> this.sign(objectName));
+            // 持续访问的地址始终是所在分段最近使用的
+            assertEquals(hot, cache.get("bucket", "hot.png", 3600, () -> this.sign("hot.png")));
+        }
+        assertTrue(cache.size() <= 32, "size: " + cache.size());
+        assertTrue(cache.getEvictionCount() >= 1002 - 32);
+
+        int before = signs.get();
+        cache.get("bucket", "cold.png", 3600, () -> this.sign("cold.png"));
+        assertEquals(before + 1, signs.get());
+    }
+
+    @Test
+    void skipNullUrl() throws Exception {
+        SignedUrlCache cache = new SignedUrlCache(100, 0.5);
+        cache.get("bucket", "a.png", 3600, () -> null);
+        assertEquals(0, cache.size());
+    }
+
+    private String sign(String objectName) {
+        return "https://bucket.example.com/" + objectName + "?signature=" + signs.incrementAndGet();
+    }
+}
@@ -0,0 +1,75 @@
+package com.forboot.oss.io;
+
+import com.forboot.oss.enums.ChecksumAlgorithm;
+import com.forboot.oss.exception.ChecksumException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@link ChecksumInputStream} 测试
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+class ChecksumInputStreamTests {
+
+    private static final byte[] CONTENT = "The quick brown fox jumps over the lazy dog"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private static final String MD5 = "9e107d9d372bb6826bd81d3542a419d6";
+
+    private static final String SHA256 = "d7a8fbb307d7809469ca9abcb0082e4f8d5651e46d3cdb762d02d0bf37c9e592";
+
+    @Test
+    void computeChecksum() throws Exception {
+        ChecksumInputStream md5 = new ChecksumInputStream(new ByteArrayInputStream(CONTENT), ChecksumAlgorithm.MD5);
+        md5.transferTo(OutputStream.nullOutputStream());
+        assertEquals(MD5, md5.getChecksum());
+
+        ChecksumInputStream sha256 = new ChecksumInputStream(new ByteArrayInputStream(CONTENT),
+                ChecksumAlgorithm.SHA256);
+        // 单字节读取与跳过同样计入
+        sha256.read();
+        sha256.skip(10);
+        sha256.transferTo(OutputStream.nullOutputStream());
+        assertEquals(SHA256, sha256.getChecksum());
+    }
+
+    @Test
+    void verifyExpectedChecksum() throws Exception {
+        InputStream is = new ChecksumInputStream(new ByteArrayInputStream(CONTENT), ChecksumAlgorithm.MD5,
+                MD5.toUpperCase());
+        is.transferTo(OutputStream.nullOutputStream());
+    }
+
+    @Test
+    void rejectMismatchAtEnd() {
+        ChecksumInputStream is = new ChecksumInputStream(new ByteArrayInputStream(CONTENT), ChecksumAlgorithm.MD5,
+                SHA256.substring(0, 32));
+        IOException e = assertThrows(IOException.class, () -> is.transferTo(OutputStream.nullOutputStream()));
+        assertInstanceOf(ChecksumException.class, e.getCause());
+        assertEquals(MD5, is.getChecksum());
+    }
+
+    @Test
+    void freezeChecksumOfPartialRead() throws Exception {
+        ChecksumInputStream is = new ChecksumInputStream(new ByteArrayInputStream(CONTENT), ChecksumAlgorithm.MD5);
+        is.readNBytes(CONTENT.length);
+        // 未读到末尾时按已读取内容计算，此后不再更新
+        String checksum = is.getChecksum();
+        assertEquals(MD5, checksum);
+        assertEquals(-1, is.read());
+        assertEquals(checksum, is.getChecksum());
+    }
+}
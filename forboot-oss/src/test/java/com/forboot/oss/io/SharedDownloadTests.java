@@ -0,0 +1,170 @@
+package com.forboot.oss.io;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link SharedDownload} 测试
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+class SharedDownloadTests {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final AtomicInteger completes = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shareInMemory() throws Exception {
+        this.shareAmongReaders(1 << 20);
+    }
+
+    @Test
+    void shareThroughTempFile() throws Exception {
+        // 超过内存阈值后转存到临时文件
+        this.shareAmongReaders(64 * 1024);
+    }
+
+    @Test
+    void rejectJoinAfterAllReadersClosed() throws Exception {
+        byte[] content = random(1000);
+        SharedDownload download = new SharedDownload(() -> this.load(content), 1 << 20, completes::incrementAndGet);
+        try (InputStream is = download.start()) {
+            assertArrayEquals(content, is.readAllBytes());
+        }
+        assertTrue(completes.get() > 0);
+        assertNull(download.join());
+    }
+
+    @Test
+    void propagateOpenFailure() throws Exception {
+        FileNotFoundException error = new FileNotFoundException("a.bin");
+        SharedDownload download = new SharedDownload(() -> {
+            throw error;
+        }, 1 << 20, completes::incrementAndGet);
+        assertSame(error, assertThrows(FileNotFoundException.class, download::start));
+        assertSame(error, assertThrows(FileNotFoundException.class, download::join));
+        assertEquals(1, completes.get());
+    }
+
+    @Test
+    void propagateReadFailure() throws Exception {
+        SharedDownload download = new SharedDownload(() -> new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        }, 1 << 20, completes::incrementAndGet);
+        InputStream first = download.start();
+        InputStream second = download.join();
+        assertNotNull(second);
+        assertThrows(IOException.class, first::read);
+        assertThrows(IOException.class, second::read);
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void returnNullForMissingObject() throws Exception {
+        SharedDownload download = new SharedDownload(() -> null, 1 << 20, completes::incrementAndGet);
+        assertNull(download.start());
+        assertNull(download.join());
+        assertEquals(1, completes.get());
+    }
+
+    private void shareAmongReaders(long memoryThreshold) throws Exception {
+        byte[] content = random(300 * 1024);
+        CountDownLatch opened = new CountDownLatch(1);
+        AtomicBoolean closed = new AtomicBoolean();
+        SharedDownload download = new SharedDownload(() -> {
+            loads.incrementAndGet();
+            opened.await();
+            return new ByteArrayInputStream(content) {
+                @Override
+                public void close() {
+                    closed.set(true);
+                }
+            };
+        }, memoryThreshold, completes::incrementAndGet);
+
+        List<Future<byte[]>> readers = new ArrayList<>();
+        readers.add(executor.submit(() -> this.readAll(download.start())));
+        for (int i = 0; i < 3; i++) {
+            // 等待远程文件流打开后加入
+            readers.add(executor.submit(() -> this.readAll(download.join())));
+        }
+        opened.countDown();
+        assertArrayEquals(content, readers.get(0).get(10, TimeUnit.SECONDS));
+        for (Future<byte[]> reader : readers.subList(1, readers.size())) {
+            byte[] read = reader.get(10, TimeUnit.SECONDS);
+            // 其它读取方已全部读完关闭后才加入的返回 null，由调用方重新下载
+            if (null != read) {
+                assertArrayEquals(content, read);
+            }
+        }
+        assertEquals(1, loads.get());
+        assertTrue(closed.get());
+        assertTrue(completes.get() > 0);
+    }
+
+    private byte[] readAll(InputStream is) throws IOException {
+        if (null == is) {
+            return null;
+        }
+        try (is) {
+            // 小块读取，让读取方交替从远程拉取
+            byte[] buffer = new byte[4096];
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (int n = is.read(buffer); n != -1; n = is.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private InputStream load(byte[] content) {
+        loads.incrementAndGet();
+        return new ByteArrayInputStream(content);
+    }
+
+    private static byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
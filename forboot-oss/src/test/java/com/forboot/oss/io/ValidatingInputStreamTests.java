@@ -0,0 +1,94 @@
+package com.forboot.oss.io;
+
+import com.forboot.oss.MediaType;
+import com.forboot.oss.exception.FileSizeException;
+import com.forboot.oss.exception.MediaTypeException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@link ValidatingInputStream} 测试
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+class ValidatingInputStreamTests {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D};
+
+    @Test
+    void passThroughValidContent() throws Exception {
+        byte[] content = random(100_000);
+        System.arraycopy(PNG, 0, content, 0, PNG.length);
+        ValidatingInputStream is = new ValidatingInputStream(new ByteArrayInputStream(content), content.length,
+                e -> e.startsWith("image/"));
+        assertArrayEquals(content, is.readAllBytes());
+        assertEquals("image/png", is.getMediaType());
+        assertEquals(content.length, is.getCount());
+        assertNull(is.getRejection());
+    }
+
+    @Test
+    void rejectOversizeContent() {
+        ValidatingInputStream is = new ValidatingInputStream(new ByteArrayInputStream(random(2048)), 1024, null);
+        IOException e = assertThrows(IOException.class, is::readAllBytes);
+        FileSizeException rejection = assertInstanceOf(FileSizeException.class, is.getRejection());
+        assertSame(rejection, e.getCause());
+        // 拒绝后不再读取
+        assertThrows(IOException.class, is::read);
+    }
+
+    @Test
+    void rejectIllegalMediaTypeBeforeReading() {
+        byte[] content = "plain text".getBytes(StandardCharsets.UTF_8);
+        ValidatingInputStream is = new ValidatingInputStream(new ByteArrayInputStream(content), -1,
+                e -> e.startsWith("image/"));
+        assertThrows(IOException.class, () -> is.read(new byte[16], 0, 16));
+        assertInstanceOf(MediaTypeException.class, is.getRejection());
+        assertEquals("text/plain", is.getMediaType());
+        assertEquals(0, is.getCount());
+    }
+
+    @Test
+    void countSkippedBytes() throws Exception {
+        ValidatingInputStream is = new ValidatingInputStream(new ByteArrayInputStream(random(2048)), 1024, null);
+        assertEquals(1000, is.skip(1000));
+        assertThrows(IOException.class, () -> is.skip(100));
+        assertInstanceOf(FileSizeException.class, is.getRejection());
+    }
+
+    @Test
+    void replayPrefixAfterSniffing() throws Exception {
+        byte[] content = random(MediaType.PREFIX_SIZE * 2 + 10);
+        System.arraycopy(PNG, 0, content, 0, PNG.length);
+        InputStream is = new ValidatingInputStream(new ByteArrayInputStream(content), -1, e -> true);
+        // 读取长度与预读长度不对齐
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4093];
+        for (int n = is.read(buffer); n != -1; n = is.read(buffer)) {
+            out.write(buffer, 0, n);
+        }
+        assertArrayEquals(content, out.toByteArray());
+    }
+
+    private static byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
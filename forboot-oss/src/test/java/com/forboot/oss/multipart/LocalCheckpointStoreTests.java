@@ -0,0 +1,92 @@
+package com.forboot.oss.multipart;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * {@link LocalCheckpointStore} 测试
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+class LocalCheckpointStoreTests {
+
+    @TempDir
+    Path checkpointPath;
+
+    @Test
+    void saveAndLoad() throws Exception {
+        LocalCheckpointStore store = new LocalCheckpointStore(checkpointPath.toString());
+        store.save(this.checkpoint("2023/06/15/a.bin"));
+        store.savePart("bucket", "2023/06/15/a.bin", new UploadPart(1, "\"etag-1\"", 1024, "md5-1"));
+        store.savePart("bucket", "2023/06/15/a.bin", new UploadPart(2, "\"etag-2\"", 512, "md5-2"));
+
+        Checkpoint checkpoint = store.load("bucket", "2023/06/15/a.bin");
+        assertNotNull(checkpoint);
+        assertEquals("bucket", checkpoint.getBucketName());
+        assertEquals("2023/06/15/a.bin", checkpoint.getObjectName());
+        assertEquals("upload-1", checkpoint.getUploadId());
+        assertEquals(1024L, checkpoint.getPartSize());
+        assertEquals(1686758400000L, checkpoint.getCreatedAt());
+        assertEquals(2, checkpoint.getParts().size());
+        UploadPart part = checkpoint.getParts().get(1);
+        assertEquals(2, part.getPartNumber());
+        assertEquals("\"etag-2\"", part.getETag());
+        assertEquals(512L, part.getSize());
+        assertEquals("md5-2", part.getChecksum());
+
+        store.remove("bucket", "2023/06/15/a.bin");
+        assertNull(store.load("bucket", "2023/06/15/a.bin"));
+    }
+
+    @Test
+    void ignoreIncompletePartLine() throws Exception {
+        LocalCheckpointStore store = new LocalCheckpointStore(checkpointPath.toString());
+        store.save(this.checkpoint("a.bin"));
+        store.savePart("bucket", "a.bin", new UploadPart(1, "\"etag-1\"", 1024, "md5-1"));
+        // 写入分片时中断
+        Files.writeString(checkpointPath.resolve("bucket/a.bin.checkpoint"), "2\t\"etag-2\"\t10",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        Checkpoint checkpoint = store.load("bucket", "a.bin");
+        assertNotNull(checkpoint);
+        assertEquals(1, checkpoint.getParts().size());
+    }
+
+    @Test
+    void treatCorruptHeaderAsMissing() throws Exception {
+        LocalCheckpointStore store = new LocalCheckpointStore(checkpointPath.toString());
+        Path file = checkpointPath.resolve("bucket/a.bin.checkpoint");
+        Files.createDirectories(file.getParent());
+
+        Files.writeString(file, "upload-1\tbroken\t1686758400000\n", StandardCharsets.UTF_8);
+        assertNull(store.load("bucket", "a.bin"));
+
+        Files.writeString(file, "upload-1\t1024\n", StandardCharsets.UTF_8);
+        assertNull(store.load("bucket", "a.bin"));
+
+        Files.writeString(file, "", StandardCharsets.UTF_8);
+        assertNull(store.load("bucket", "a.bin"));
+    }
+
+    private Checkpoint checkpoint(String objectName) {
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.setBucketName("bucket");
+        checkpoint.setObjectName(objectName);
+        checkpoint.setUploadId("upload-1");
+        checkpoint.setPartSize(1024);
+        checkpoint.setCreatedAt(1686758400000L);
+        return checkpoint;
+    }
+}
@@ -0,0 +1,280 @@
+package com.forboot.oss.multipart;
+
+import com.forboot.oss.enums.RetryCategory;
+import com.forboot.oss.exception.FileSizeException;
+import com.forboot.oss.model.response.OssResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link MultipartUploader} 测试
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+class MultipartUploaderTests {
+
+    private static final int PART_SIZE = 1024;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private final MemoryHandler handler = new MemoryHandler();
+
+    @TempDir
+    Path checkpointPath;
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void uploadSmallFileWithPutObject() throws Exception {
+        byte[] content = random(PART_SIZE - 1, 1);
+        MultipartUploader uploader = new MultipartUploader(handler, executor, PART_SIZE, 2);
+        uploader.upload("bucket", "small", new ByteArrayInputStream(content));
+        assertArrayEquals(content, handler.objects.get("small"));
+        assertEquals(0, handler.initiates.get());
+    }
+
+    @Test
+    void completePartsInOrder() throws Exception {
+        // 靠前的分片上传更慢，完成顺序与分片顺序相反
+        handler.delay = number -> (10 - number) * 5L;
+        byte[] content = random(PART_SIZE * 8 + 100, 2);
+        MultipartUploader uploader = new MultipartUploader(handler, executor, PART_SIZE, 4);
+        uploader.upload("bucket", "ordered", new ByteArrayInputStream(content));
+        assertArrayEquals(content, handler.objects.get("ordered"));
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9), handler.completedParts);
+    }
+
+    @Test
+    void boundInFlightPartsAndBuffers() throws Exception {
+        handler.delay = number -> 10L;
+        byte[] content = random(PART_SIZE * 20, 3);
+        MultipartUploader uploader = new MultipartUploader(handler, executor, PART_SIZE, 2);
+        uploader.upload("bucket", "bounded", new ByteArrayInputStream(content));
+        assertArrayEquals(content, handler.objects.get("bounded"));
+        assertTrue(handler.maxConcurrent.get() <= 2, "in-flight parts: " + handler.maxConcurrent.get());
+        assertTrue(handler.buffers.size() <= 2, "buffers: " + handler.buffers.size());
+    }
+
+    @Test
+    void resumeAcknowledgedParts() throws Exception {
+        LocalCheckpointStore store = new LocalCheckpointStore(checkpointPath.toString());
+        MultipartUploader uploader = new MultipartUploader(handler, Runnable::run, PART_SIZE, 1, store,
+                Duration.ofHours(1), e -> RetryCategory.TRANSIENT);
+        byte[] content = random(PART_SIZE * 5, 4);
+        handler.failAt = 4;
+        assertThrows(IOException.class, () -> uploader.upload("bucket", "resume", new ByteArrayInputStream(content)));
+        Checkpoint checkpoint = store.load("bucket", "resume");
+        assertNotNull(checkpoint);
+        assertEquals(3, checkpoint.getParts().size());
+        assertEquals(0, handler.aborts.get());
+
+        handler.failAt = -1;
+        handler.uploadedParts.clear();
+        uploader.upload("bucket", "resume", new ByteArrayInputStream(content));
+        assertArrayEquals(content, handler.objects.get("resume"));
+        assertEquals(List.of(4, 5), handler.uploadedParts);
+        assertEquals(1, handler.initiates.get());
+        assertNull(store.load("bucket", "resume"));
+    }
+
+    @Test
+    void reuploadChangedParts() throws Exception {
+        LocalCheckpointStore store = new LocalCheckpointStore(checkpointPath.toString());
+        MultipartUploader uploader = new MultipartUploader(handler, Runnable::run, PART_SIZE, 1, store,
+                Duration.ofHours(1), e -> RetryCategory.TRANSIENT);
+        handler.failAt = 3;
+        assertThrows(IOException.class,
+                () -> uploader.upload("bucket", "changed", new ByteArrayInputStream(random(PART_SIZE * 3, 5))));
+
+        handler.failAt = -1;
+        handler.uploadedParts.clear();
+        byte[] content = random(PART_SIZE * 3, 6);
+        uploader.upload("bucket", "changed", new ByteArrayInputStream(content));
+        assertArrayEquals(content, handler.objects.get("changed"));
+        assertEquals(List.of(1, 2, 3), handler.uploadedParts);
+    }
+
+    @Test
+    void abortOnNonRetryableFailure() throws Exception {
+        LocalCheckpointStore store = new LocalCheckpointStore(checkpointPath.toString());
+        MultipartUploader uploader = new MultipartUploader(handler, Runnable::run, PART_SIZE, 1, store,
+                Duration.ofHours(1), e -> RetryCategory.NONE);
+        handler.failAt = 3;
+        handler.failure = new FileSizeException("File size exceeds");
+        assertThrows(FileSizeException.class,
+                () -> uploader.upload("bucket", "rejected", new ByteArrayInputStream(random(PART_SIZE * 4, 7))));
+        assertEquals(1, handler.aborts.get());
+        assertTrue(handler.uploads.isEmpty());
+        assertNull(store.load("bucket", "rejected"));
+    }
+
+    @Test
+    void abortWithoutAcknowledgedParts() throws Exception {
+        LocalCheckpointStore store = new LocalCheckpointStore(checkpointPath.toString());
+        MultipartUploader uploader = new MultipartUploader(handler, Runnable::run, PART_SIZE, 1, store,
+                Duration.ofHours(1), e -> RetryCategory.TRANSIENT);
+        handler.failAt = 1;
+        assertThrows(IOException.class,
+                () -> uploader.upload("bucket", "first", new ByteArrayInputStream(random(PART_SIZE * 2, 8))));
+        assertEquals(1, handler.aborts.get());
+        assertNull(store.load("bucket", "first"));
+    }
+
+    @Test
+    void discardCheckpointOfMissingUpload() throws Exception {
+        LocalCheckpointStore store = new LocalCheckpointStore(checkpointPath.toString());
+        MultipartUploader uploader = new MultipartUploader(handler, Runnable::run, PART_SIZE, 1, store,
+                Duration.ofHours(1), e -> RetryCategory.TRANSIENT);
+        byte[] content = random(PART_SIZE * 3, 9);
+        handler.failAt = 3;
+        assertThrows(IOException.class,
+                () -> uploader.upload("bucket", "expired", new ByteArrayInputStream(content)));
+        // 平台已清理分片上传
+        handler.uploads.clear();
+        handler.failAt = -1;
+        uploader.upload("bucket", "expired", new ByteArrayInputStream(content));
+        assertArrayEquals(content, handler.objects.get("expired"));
+        assertEquals(2, handler.initiates.get());
+    }
+
+    private static byte[] random(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * 内存中的分片上传
+     */
+    private static class MemoryHandler implements MultipartUploadHandler {
+
+        private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+        private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+        private final List<Integer> uploadedParts = Collections.synchronizedList(new ArrayList<>());
+
+        private final Set<byte[]> buffers = Collections.synchronizedSet(
+                Collections.newSetFromMap(new IdentityHashMap<>()));
+
+        private final AtomicInteger concurrent = new AtomicInteger();
+
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        private final AtomicInteger initiates = new AtomicInteger();
+
+        private final AtomicInteger aborts = new AtomicInteger();
+
+        private List<Integer> completedParts;
+
+        private volatile IntToLongFunction delay;
+
+        private volatile int failAt = -1;
+
+        private volatile Exception failure = new IOException("upload part failed");
+
+        @Override
+        public OssResult putObject(String bucketName, String objectName, InputStream is, long size) throws Exception {
+            objects.put(objectName, is.readAllBytes());
+            return OssResult.builder().bucketName(bucketName).objectName(objectName).build();
+        }
+
+        @Override
+        public String initiateMultipartUpload(String bucketName, String objectName) {
+            String uploadId = "upload-" + initiates.incrementAndGet();
+            uploads.put(uploadId, new ConcurrentHashMap<>());
+            return uploadId;
+        }
+
+        @Override
+        public UploadPart uploadPart(String bucketName, String objectName, String uploadId, int partNumber,
+                                     byte[] data, int length) throws Exception {
+            buffers.add(data);
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                if (partNumber == failAt) {
+                    throw failure;
+                }
+                if (null != delay) {
+                    Thread.sleep(delay.applyAsLong(partNumber));
+                }
+                byte[] content = Arrays.copyOf(data, length);
+                uploads.get(uploadId).put(partNumber, content);
+                uploadedParts.add(partNumber);
+                return new UploadPart(partNumber, "\"" + Arrays.hashCode(content) + "\"", length);
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        }
+
+        @Override
+        public List<UploadPart> listParts(String bucketName, String objectName, String uploadId) {
+            Map<Integer, byte[]> parts = uploads.get(uploadId);
+            if (null == parts) {
+                return null;
+            }
+            List<UploadPart> list = new ArrayList<>();
+            new TreeMap<>(parts).forEach((number, content) ->
+                    list.add(new UploadPart(number, String.valueOf(Arrays.hashCode(content)), content.length)));
+            return list;
+        }
+
+        @Override
+        public OssResult completeMultipartUpload(String bucketName, String objectName, String uploadId,
+                                                 List<UploadPart> parts) throws IOException {
+            Map<Integer, byte[]> uploaded = uploads.remove(uploadId);
+            completedParts = parts.stream().map(UploadPart::getPartNumber).toList();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (UploadPart part : parts) {
+                byte[] content = uploaded.get(part.getPartNumber());
+                assertEquals(content.length, part.getSize());
+                out.write(content);
+            }
+            objects.put(objectName, out.toByteArray());
+            return OssResult.builder().bucketName(bucketName).objectName(objectName).build();
+        }
+
+        @Override
+        public void abortMultipartUpload(String bucketName, String objectName, String uploadId) {
+            aborts.incrementAndGet();
+            uploads.remove(uploadId);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.forboot.oss.platform;
+
+import com.forboot.oss.enums.StoragePlatform;
+import com.forboot.oss.model.response.BatchResult;
+import com.forboot.oss.property.OssProperty;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link Local} 测试
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+class LocalTests {
+
+    private static final byte[] CONTENT = new byte[100];
+
+    static {
+        for (int i = 0; i < CONTENT.length; i++) {
+            CONTENT[i] = (byte) i;
+        }
+    }
+
+    @TempDir
+    Path localFilePath;
+
+    private Local local;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        OssProperty ossProperty = new OssProperty();
+        ossProperty.setPlatform(StoragePlatform.LOCAL);
+        ossProperty.setLocalFilePath(localFilePath.toString());
+        ossProperty.setLocalFileUrl("http://localhost/files");
+        ossProperty.setBucketName("bucket");
+        this.local = new Local(ossProperty);
+        this.local.uploadFile(new ByteArrayInputStream(CONTENT), CONTENT.length, "a.bin", "range/a.bin");
+        this.local.uploadFile(new ByteArrayInputStream(new byte[0]), 0, "empty.bin", "range/empty.bin");
+    }
+
+    @Test
+    void downloadWithoutRange() throws Exception {
+        MockHttpServletResponse response = this.download(null, "range/a.bin");
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+    }
+
+    @Test
+    void downloadRange() throws Exception {
+        MockHttpServletResponse response = this.download("bytes=10-19", "range/a.bin");
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("bytes 10-19/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(CONTENT, 10, 20), response.getContentAsByteArray());
+    }
+
+    @Test
+    void downloadOpenEndedRange() throws Exception {
+        MockHttpServletResponse response = this.download("bytes=90-", "range/a.bin");
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("bytes 90-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(CONTENT, 90, 100), response.getContentAsByteArray());
+
+        response = this.download("bytes=95-500", "range/a.bin");
+        assertEquals("bytes 95-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(CONTENT, 95, 100), response.getContentAsByteArray());
+    }
+
+    @Test
+    void downloadSuffixRange() throws Exception {
+        MockHttpServletResponse response = this.download("bytes=-10", "range/a.bin");
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("bytes 90-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(CONTENT, 90, 100), response.getContentAsByteArray());
+    }
+
+    @Test
+    void downloadMultipleRangesAsWholeFile() throws Exception {
+        MockHttpServletResponse response = this.download("bytes=0-9,20-29", "range/a.bin");
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+    }
+
+    @Test
+    void rejectUnsatisfiableRange() throws Exception {
+        for (String range : List.of("bytes=100-", "bytes=200-300", "bytes=-0", "bytes=20-10", "bytes=abc")) {
+            MockHttpServletResponse response = this.download(range, "range/a.bin");
+            assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus(), range);
+            assertEquals("bytes */100", response.getHeader(HttpHeaders.CONTENT_RANGE), range);
+            assertEquals(0, response.getContentAsByteArray().length, range);
+        }
+    }
+
+    @Test
+    void rejectRangeOfEmptyFile() throws Exception {
+        MockHttpServletResponse response = this.download("bytes=0-", "range/empty.bin");
+        assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus());
+        assertEquals("bytes */0", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void deleteBatchPerFile() throws Exception {
+        List<BatchResult<Void>> results = this.local.deleteBatch(List.of("range/a.bin", "range/missing.bin",
+                "range/empty.bin"));
+        assertEquals(List.of("range/a.bin", "range/missing.bin", "range/empty.bin"),
+                results.stream().map(BatchResult::getKey).toList());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+    }
+
+    private MockHttpServletResponse download(String range, String objectName) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/" + objectName);
+        if (null != range) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        this.local.download(request, response, objectName);
+        return response;
+    }
+}
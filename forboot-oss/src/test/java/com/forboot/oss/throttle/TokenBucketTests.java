@@ -0,0 +1,98 @@
+package com.forboot.oss.throttle;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link TokenBucket} 测试
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+class TokenBucketTests {
+
+    @Test
+    void allowBurstWithinCapacity() throws Exception {
+        TokenBucket bucket = new TokenBucket(1024, 64 * 1024);
+        long start = System.nanoTime();
+        bucket.acquire(64 * 1024);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+        assertFalse(bucket.isFull());
+    }
+
+    @Test
+    void limitRate() throws Exception {
+        // 100KB/s，容量 10KB，获取 60KB 约需 0.5 秒
+        TokenBucket bucket = new TokenBucket(100 * 1024, 10 * 1024);
+        long start = System.nanoTime();
+        for (int i = 0; i < 60; i++) {
+            bucket.acquire(1024);
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(millis >= 450 && millis < 1500, "elapsed: " + millis);
+    }
+
+    @Test
+    void shareRateAcrossThreads() throws Exception {
+        TokenBucket bucket = new TokenBucket(100 * 1024, 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(4);
+        long start = System.nanoTime();
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                try {
+                    for (int i = 0; i < 10; i++) {
+                        bucket.acquire(1024);
+                    }
+                } catch (InterruptedIOException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        // 4 个线程共 40KB，总速率不超过 100KB/s
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(millis >= 350, "elapsed: " + millis);
+    }
+
+    @Test
+    void refillToCapacity() throws Exception {
+        TokenBucket bucket = new TokenBucket(100 * 1024, 1024);
+        bucket.acquire(1024);
+        assertFalse(bucket.isFull());
+        Thread.sleep(50);
+        assertTrue(bucket.isFull());
+    }
+
+    @Test
+    void interruptWaiting() throws Exception {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        bucket.acquire(1);
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(InterruptedIOException.class, () -> bucket.acquire(1024));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void rejectNonPositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1024));
+    }
+}
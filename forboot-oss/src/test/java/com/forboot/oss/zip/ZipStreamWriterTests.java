@@ -0,0 +1,123 @@
+package com.forboot.oss.zip;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ZipStreamWriter} 测试
+ * <p>
+ * 尊重知识产权，CV 请保留版权，<a href="https://www.forboot.com">ForBoot</a> 出品
+ *
+ * @author ye21st
+ * @since 2023/6/15
+ */
+class ZipStreamWriterTests {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    private final AtomicInteger opened = new AtomicInteger();
+
+    private final AtomicInteger maxOpened = new AtomicInteger();
+
+    private final AtomicInteger closed = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void writeEntriesInOrder() throws Exception {
+        List<String> objectNameList = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            objectNameList.add("dir/file-" + i + ".txt");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ZipStreamWriter(executor, 3, true).write(out, objectNameList, this::open);
+
+        Map<String, String> entries = this.unzip(out.toByteArray());
+        assertEquals(objectNameList, new ArrayList<>(entries.keySet()));
+        entries.forEach((name, content) -> assertEquals("content of " + name, content));
+        assertEquals(objectNameList.size(), closed.get());
+        assertTrue(maxOpened.get() <= 4, "opened streams: " + maxOpened.get());
+    }
+
+    @Test
+    void writeUncompressedEntries() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ZipStreamWriter(executor, 2, false).write(out, List.of("a.txt", "b.txt"), this::open);
+
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry = zis.getNextEntry();
+            assertEquals("a.txt", entry.getName());
+            assertEquals("content of a.txt", new String(zis.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void closePrefetchedStreamsOnFailure() throws Exception {
+        List<String> objectNameList = List.of("a.txt", "b.txt", "missing.txt", "c.txt", "d.txt");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipStreamWriter writer = new ZipStreamWriter(executor, 2, true);
+        assertThrows(FileNotFoundException.class, () -> writer.write(out, objectNameList,
+                e -> e.startsWith("missing") ? null : this.open(e)));
+
+        // 预取的文件流异步关闭
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(opened.get(), closed.get());
+    }
+
+    @Test
+    void propagateOpenFailure() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipStreamWriter writer = new ZipStreamWriter(executor, 2, true);
+        IOException e = assertThrows(IOException.class, () -> writer.write(out, List.of("a.txt", "b.txt"),
+                objectName -> {
+                    throw new IOException("open " + objectName + " failed");
+                }));
+        assertEquals("open a.txt failed", e.getMessage());
+    }
+
+    private InputStream open(String objectName) {
+        maxOpened.accumulateAndGet(opened.incrementAndGet() - closed.get(), Math::max);
+        return new ByteArrayInputStream(("content of " + objectName).getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+            }
+        };
+    }
+
+    private Map<String, String> unzip(byte[] zip) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            for (ZipEntry entry = zis.getNextEntry(); null != entry; entry = zis.getNextEntry()) {
+                entries.put(entry.getName(), new String(zis.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+}